@@ -191,6 +191,7 @@ export class ClassOrInterfaceTypeContext extends AstElementTypeContext {
   public extends_: string[]; // Languages that support multiple inheritance include: C++, Common Lisp
 
   public definedInClassOrInterfaceTypeKey: string | undefined; // key of the class or interface where this class or interface is defined
+  public reporting_details_path: string | undefined; // details file of the OUTPUT_PROJECTION=detection, only set on top level classes
 
   //dict of classes with name as key
   public innerDefinedClasses: Dictionary<ClassOrInterfaceTypeContext>;
@@ -2,11 +2,20 @@ import { SoftwareProjectDicts } from './SoftwareProject';
 
 import fs from 'fs';
 import path from 'path';
-import { ClassOrInterfaceTypeContext } from './ParsedAstTypes';
+import { AstPosition, ClassOrInterfaceTypeContext } from './ParsedAstTypes';
+import { DataClumpsVariableFromContext, DataClumpsVariableToContext, DataClumpTypeContext, Dictionary } from 'data-clumps-type-context';
 import { DetectorOptions } from '../index';
 import { pathMatchesPattern } from './FilePathHelper';
 
+type ReportingDetails = {
+  positions?: Record<string, AstPosition>; // element key -> position, including the inner classes
+  modifiers?: Record<string, string[]>; // key of a class, method or parameter -> modifiers
+};
+
 export class ParserHelper {
+  // Written by the OUTPUT_PROJECTION=detection of the astGenerator next to the class files
+  static REPORTING_DETAILS_FOLDER = path.join('.extraction', 'reporting-details');
+
   static async getSoftwareProjectDictsFromParsedAstFolder(path_to_folder_of_parsed_ast: string, detectorOptions: Partial<DetectorOptions>): Promise<SoftwareProjectDicts> {
     let softwareProjectDicts: SoftwareProjectDicts = new SoftwareProjectDicts();
 
@@ -17,6 +26,8 @@ export class ParserHelper {
       }
     }
 
+    let hasReportingDetails = fs.existsSync(path.join(path_to_folder_of_parsed_ast, ParserHelper.REPORTING_DETAILS_FOLDER));
+
     let filesAndFoldersInPath = fs.readdirSync(path_to_folder_of_parsed_ast, { withFileTypes: true });
     for (let fileOrFolder of filesAndFoldersInPath) {
       let fullPath = path.join(path_to_folder_of_parsed_ast, fileOrFolder.name);
@@ -56,6 +67,9 @@ export class ParserHelper {
         }
 
         if (!isExcluded) {
+          if (hasReportingDetails) {
+            ParserHelper.setReportingDetailsPath(path_to_folder_of_parsed_ast, classOrInterface);
+          }
           softwareProjectDicts.loadClassOrInterface(classOrInterface);
         }
       }
@@ -64,6 +78,75 @@ export class ParserHelper {
     return softwareProjectDicts;
   }
 
+  /**
+   * The detection projection moves the positions and the modifiers of classes, methods and parameters, which are only needed for the report, into ".extraction/reporting-details/[classKey].json".
+   * Only the path of that file is kept on the top level class. The details are read once a data clump is reported, see restoreReportingDetailsOfDataClumps.
+   */
+  static setReportingDetailsPath(path_to_folder_of_parsed_ast: string, classOrInterface: ClassOrInterfaceTypeContext): void {
+    classOrInterface.reporting_details_path = path.join(path_to_folder_of_parsed_ast, ParserHelper.REPORTING_DETAILS_FOLDER, classOrInterface.key + '.json');
+  }
+
+  /**
+   * Puts the positions and modifiers back into the variables of the reported data clumps which have none.
+   * Each details file is read at most once and only if one of its variables is reported.
+   */
+  static restoreReportingDetailsOfDataClumps(dataClumps: Dictionary<DataClumpTypeContext>, softwareProjectDicts: SoftwareProjectDicts): void {
+    let detailsCache: Record<string, ReportingDetails | null> = {};
+    let restore = (variable: DataClumpsVariableFromContext | DataClumpsVariableToContext) => {
+      let details = ParserHelper.getReportingDetailsOfVariable(variable.key, softwareProjectDicts, detailsCache);
+      if (!details) {
+        return;
+      }
+      let position = details.positions?.[variable.key];
+      if (position && (!variable.position || variable.position.startLine === undefined)) {
+        variable.position = {
+          startLine: position.startLine,
+          startColumn: position.startColumn,
+          endLine: position.endLine,
+          endColumn: position.endColumn,
+        };
+      }
+      let modifiers = details.modifiers?.[variable.key];
+      if (modifiers && (!variable.modifiers || variable.modifiers.length === 0)) {
+        variable.modifiers = modifiers;
+      }
+    };
+
+    for (let dataClumpKey of Object.keys(dataClumps)) {
+      let data_clump_data = dataClumps[dataClumpKey].data_clump_data;
+      for (let variableKey of Object.keys(data_clump_data)) {
+        let variable = data_clump_data[variableKey];
+        restore(variable);
+        if (variable.to_variable) {
+          restore(variable.to_variable);
+        }
+      }
+    }
+  }
+
+  private static getReportingDetailsOfVariable(variableKey: string, softwareProjectDicts: SoftwareProjectDicts, detailsCache: Record<string, ReportingDetails | null>): ReportingDetails | null {
+    let classOrInterfaceKey: string | undefined = softwareProjectDicts.dictMemberFieldParameters[variableKey]?.classOrInterfaceKey;
+    if (!classOrInterfaceKey) {
+      let methodParameter = softwareProjectDicts.dictMethodParameters[variableKey];
+      classOrInterfaceKey = methodParameter ? softwareProjectDicts.dictMethod[methodParameter.methodKey]?.classOrInterfaceKey : undefined;
+    }
+
+    // the details file belongs to the top level class
+    let classOrInterface = classOrInterfaceKey ? softwareProjectDicts.dictClassOrInterface[classOrInterfaceKey] : undefined;
+    while (classOrInterface && !classOrInterface.reporting_details_path && classOrInterface.definedInClassOrInterfaceTypeKey) {
+      classOrInterface = softwareProjectDicts.dictClassOrInterface[classOrInterface.definedInClassOrInterfaceTypeKey];
+    }
+    let detailsPath = classOrInterface?.reporting_details_path;
+    if (!detailsPath) {
+      return null;
+    }
+
+    if (detailsCache[detailsPath] === undefined) {
+      detailsCache[detailsPath] = fs.existsSync(detailsPath) ? JSON.parse(fs.readFileSync(detailsPath, 'utf-8')) : null;
+    }
+    return detailsCache[detailsPath];
+  }
+
   static async removeGeneratedAst(path_to_folder_of_parsed_ast: string, additionalMessageToLog: string): Promise<void> {
     // delete file if exists
     let tries = 1;
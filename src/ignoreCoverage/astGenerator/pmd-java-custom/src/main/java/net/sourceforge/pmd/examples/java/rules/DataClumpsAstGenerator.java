@@ -0,0 +1,308 @@
+package net.sourceforge.pmd.examples.java.rules;
+
+import net.sourceforge.pmd.examples.java.rules.batch.BatchScheduler;
+import net.sourceforge.pmd.examples.java.rules.bytecode.AuxClassExtractor;
+import net.sourceforge.pmd.examples.java.rules.checkpoint.ExtractionCheckpoint;
+import net.sourceforge.pmd.examples.java.rules.checkpoint.ExtractionJournal;
+import net.sourceforge.pmd.examples.java.rules.delta.ExtractionDelta;
+import net.sourceforge.pmd.examples.java.rules.delta.ExtractionDeltaBuilder;
+import net.sourceforge.pmd.examples.java.rules.estimate.CostEstimate;
+import net.sourceforge.pmd.examples.java.rules.estimate.ExtractionCostEstimator;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputTransport;
+import net.sourceforge.pmd.examples.java.rules.index.ClassIndexWriter;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextConsumer;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextStreamWriter;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import net.sourceforge.pmd.examples.java.rules.output.SkippedFileReportWriter;
+import net.sourceforge.pmd.examples.java.rules.output.StatisticsSummaryWriter;
+import net.sourceforge.pmd.examples.java.rules.shard.ShardManifest;
+import net.sourceforge.pmd.examples.java.rules.shard.ShardMerger;
+import net.sourceforge.pmd.examples.java.rules.shard.ShardPartition;
+import net.sourceforge.pmd.examples.java.rules.statistics.ExtractionStatistics;
+import net.sourceforge.pmd.examples.java.rules.statistics.StatisticsSummary;
+import net.sourceforge.pmd.examples.java.rules.watch.WatchModeExtractor;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line launcher for the modes which do not fit into a single "pmd check" run. The options are read
+ * from the same environment variables the makefile exports for {@code make run}.
+ * Its log lines go to stderr, since stdout carries the records of OUTPUT_TRANSPORT=stdout.
+ * <pre>
+ * java -cp "./pmd-bin-7.0.0-rc3/lib/*" net.sourceforge.pmd.examples.java.rules.DataClumpsAstGenerator [--watch | --delta PREVIOUS_DESTINATION | --batch MANIFEST | --shard I/N | --aux-classes | --class-index | --estimate] [--jfr RECORDING_FILE]
+ * java -cp "./pmd-bin-7.0.0-rc3/lib/*" net.sourceforge.pmd.examples.java.rules.DataClumpsAstGenerator --merge-shards SHARD_DESTINATION...
+ * java -cp "./pmd-bin-7.0.0-rc3/lib/*" net.sourceforge.pmd.examples.java.rules.DataClumpsAstGenerator --merge-statistics OUTPUT STATISTICS...
+ * </pre>
+ */
+public class DataClumpsAstGenerator {
+
+    private static final String USAGE = "Usage: DataClumpsAstGenerator [--watch | --delta PREVIOUS_DESTINATION | --batch MANIFEST | --shard I/N | --aux-classes | --class-index | --estimate] [--jfr RECORDING_FILE]\n"
+            + "       DataClumpsAstGenerator --merge-shards SHARD_DESTINATION...\n"
+            + "       DataClumpsAstGenerator --merge-statistics OUTPUT STATISTICS...\n"
+            + "  (no option)  extract SOURCE into DESTINATION, like make run, or stream it (OUTPUT_TRANSPORT)\n"
+            + "               with CHECKPOINT=true only the files an interrupted run did not complete\n"
+            + "  --watch      extract SOURCE and keep re-extracting the java files which change\n"
+            + "  --delta      compare the extraction in DESTINATION with the one of a previous commit\n"
+            + "  --batch      extract all projects of a JSON manifest on one shared thread pool\n"
+            + "  --shard      extract only shard I of N (1 <= I <= N) of the java files in SOURCE, the same partition on every node\n"
+            + "  --aux-classes  write the classes of the JARs and class folders in AUX_CLASS_SOURCES as auxclass into DESTINATION\n"
+            + "  --class-index  index the class files of DESTINATION into DESTINATION/.extraction/classes.index for lookups of single classes\n"
+            + "  --estimate   predict time, peak heap and output of extracting SOURCE from a sample of ESTIMATE_SAMPLE_FILES files into DESTINATION/.extraction/estimate.json\n"
+            + "  --merge-shards  combine the destinations of all shards into DESTINATION like one run over SOURCE\n"
+            + "  --jfr        continuous flight recording with the extraction events, written to RECORDING_FILE on exit\n"
+            + "  --merge-statistics  merge the statistics.json files of several runs (STATISTICS_SUMMARY=true) into OUTPUT";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--merge-statistics".equals(args[0])) {
+            mergeStatistics(args);
+            return;
+        }
+        run(ExtractionOptions.fromEnvironment(), args);
+    }
+
+    static void run(ExtractionOptions options, String[] args) throws Exception {
+        if (args.length > 0 && "--merge-shards".equals(args[0])) {
+            mergeShards(options, args);
+            return;
+        }
+        boolean watch = false;
+        String previousDestination = null;
+        String batchManifest = null;
+        String shard = null;
+        boolean auxClasses = false;
+        boolean classIndex = false;
+        boolean estimate = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--watch".equals(arg)) {
+                watch = true;
+            } else if ("--delta".equals(arg) && i + 1 < args.length) {
+                previousDestination = args[++i];
+            } else if ("--batch".equals(arg) && i + 1 < args.length) {
+                batchManifest = args[++i];
+            } else if ("--shard".equals(arg) && i + 1 < args.length) {
+                shard = args[++i];
+            } else if ("--aux-classes".equals(arg)) {
+                auxClasses = true;
+            } else if ("--class-index".equals(arg)) {
+                classIndex = true;
+            } else if ("--estimate".equals(arg)) {
+                estimate = true;
+            } else if ("--jfr".equals(arg) && i + 1 < args.length) {
+                String recordingFile = args[++i];
+                if (ExtractionEvents.get().isRecordingAvailable()) {
+                    ExtractionEvents.get().startRecording(Paths.get(recordingFile));
+                } else {
+                    System.err.println("AST JFR not available in this JVM, --jfr ignored");
+                }
+            } else {
+                exitWithUsage("Unknown option: " + arg);
+            }
+        }
+        if (auxClasses) {
+            extractAuxClasses(options);
+            return;
+        }
+        if (classIndex) {
+            int classes = ClassIndexWriter.write(options);
+            System.err.println("AST Class index: " + classes + " classes in " + OutputFolders.getMetaFile(options, ClassIndexWriter.FILE_NAME).getAbsolutePath());
+            return;
+        }
+        if (previousDestination != null) {
+            writeDelta(options, previousDestination);
+            return;
+        }
+        if (options.declarationsOnly && !options.isDeclarationsOnly()) {
+            System.err.println("AST Declarations only: off, GENERATE_REFERENCES_OF_FIELDS_AND_METHODS needs the method bodies");
+        }
+        if (batchManifest != null) {
+            new BatchScheduler(options).run(BatchScheduler.readManifest(new File(batchManifest)));
+            return;
+        }
+        if (options.source == null || options.source.isEmpty()) {
+            exitWithUsage("The environment variable SOURCE is not set");
+        }
+        if (estimate) {
+            writeEstimate(options);
+            return;
+        }
+
+        if (watch) {
+            WatchModeExtractor watchModeExtractor = new WatchModeExtractor(options);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    watchModeExtractor.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }));
+            watchModeExtractor.run();
+        } else {
+            DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+            extractor.setSkippedFileListener(new SkippedFileReportWriter(options));
+            List<Path> paths = Collections.singletonList(Paths.get(options.source));
+            ShardPartition.Shard selectedShard = null;
+            if (shard != null) {
+                selectedShard = selectShard(options, shard);
+                paths = selectedShard.files;
+            }
+            if (options.checkpoint) {
+                List<Path> remainingFiles = resumeFromCheckpoint(options);
+                if (selectedShard != null) {
+                    remainingFiles.retainAll(new HashSet<Path>(selectedShard.files));
+                }
+                paths = remainingFiles;
+                extractor.setCompletedFileListener(new ExtractionJournal(options));
+            }
+            ExtractionStatistics statistics = null;
+            if (options.writeStatisticsSummary) {
+                statistics = new ExtractionStatistics();
+                extractor.setStatistics(statistics);
+            }
+            try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(options)) {
+                extractor.extract(paths, consumer);
+                if (statistics != null) {
+                    StatisticsSummaryWriter.write(options, statistics);
+                }
+                if (selectedShard != null) {
+                    ShardManifest.write(options, selectedShard);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param shard "I/N", e.g. 2/4 for the second of four shards
+     */
+    private static ShardPartition.Shard selectShard(ExtractionOptions options, String shard) throws Exception {
+        String[] indexAndCount = shard.split("/");
+        int index = 0;
+        int count = 0;
+        try {
+            index = Integer.parseInt(indexAndCount[0].trim());
+            count = indexAndCount.length == 2 ? Integer.parseInt(indexAndCount[1].trim()) : 0;
+        } catch (NumberFormatException e) {
+            exitWithUsage("--shard needs I/N, not " + shard);
+        }
+        if (count < 1 || index < 1 || index > count) {
+            exitWithUsage("--shard needs I/N with 1 <= I <= N, not " + shard);
+        }
+        // the partition covers the whole SOURCE tree, so file_path stays relative to SOURCE like in a single run
+        ShardPartition partition = ShardPartition.compute(Paths.get(options.source), count);
+        ShardPartition.Shard selectedShard = partition.getShard(index);
+        System.err.println("AST Shard " + index + "/" + count + ": " + selectedShard.files.size() + " files, " + selectedShard.bytes + " bytes");
+        return selectedShard;
+    }
+
+    private static void mergeShards(ExtractionOptions options, String[] args) throws Exception {
+        if (args.length < 2) {
+            exitWithUsage("--merge-shards needs the destinations of the shards");
+        }
+        List<File> shardDestinations = new ArrayList<File>();
+        for (int i = 1; i < args.length; i++) {
+            shardDestinations.add(new File(args[i]));
+        }
+        ShardMerger merger = new ShardMerger(options);
+        merger.merge(shardDestinations);
+        System.err.println("AST Shards merged: " + shardDestinations.size() + " shards, " + merger.getClasses() + " classes, "
+                + merger.getDuplicates() + " duplicate class keys resolved into " + OutputFolders.getDestinationFolder(options).getAbsolutePath());
+    }
+
+    private static void mergeStatistics(String[] args) throws Exception {
+        if (args.length < 3) {
+            exitWithUsage("--merge-statistics needs the output file and at least one statistics file");
+        }
+        StatisticsSummary merged = new StatisticsSummary();
+        for (int i = 2; i < args.length; i++) {
+            merged = merged.merge(StatisticsSummaryWriter.read(new File(args[i])));
+        }
+        StatisticsSummaryWriter.write(new File(args[1]), merged);
+        System.err.println("AST Statistics of " + (args.length - 2) + " runs merged: " + merged.files + " files, "
+                + merged.classes + " classes into " + args[1]);
+    }
+
+    /**
+     * @return the files which the interrupted run in DESTINATION did not complete, all files on the first run
+     */
+    private static List<Path> resumeFromCheckpoint(ExtractionOptions options) throws Exception {
+        if (options.outputTransport != OutputTransport.FILES) {
+            exitWithUsage("CHECKPOINT needs the output files, OUTPUT_TRANSPORT has to be files");
+        }
+        ExtractionCheckpoint checkpoint = ExtractionCheckpoint.load(options);
+        List<Path> remainingFiles = checkpoint.getRemainingFiles(Paths.get(options.source));
+        System.err.println("AST Checkpoint: " + checkpoint.getCompletedFileCount() + " files done, " + remainingFiles.size()
+                + " remaining, " + checkpoint.getDroppedEntries() + " journal entries and " + checkpoint.getRemovedOutputs()
+                + " incomplete outputs discarded");
+        return remainingFiles;
+    }
+
+    /**
+     * Runs after the extraction of SOURCE, a class which SOURCE has is not replaced by its auxclass.
+     */
+    private static void extractAuxClasses(ExtractionOptions options) throws Exception {
+        if (options.auxClassSources == null || options.auxClassSources.isEmpty()) {
+            exitWithUsage("--aux-classes needs the JARs and class folders in AUX_CLASS_SOURCES");
+        }
+        if (options.outputTransport != OutputTransport.FILES) {
+            exitWithUsage("--aux-classes needs the output files, OUTPUT_TRANSPORT has to be files");
+        }
+        ClassContextFileWriter outputFiles = new ClassContextFileWriter(options);
+        AtomicInteger sourceClasses = new AtomicInteger();
+        AuxClassExtractor auxClassExtractor = new AuxClassExtractor(options);
+        try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(options)) {
+            auxClassExtractor.extract(options.auxClassSources, classContext -> {
+                if (outputFiles.getOutputFile(classContext.key).exists()) {
+                    sourceClasses.incrementAndGet();
+                } else {
+                    consumer.accept(classContext);
+                }
+            });
+        }
+        System.err.println("AST Aux classes: " + (auxClassExtractor.getClasses() - sourceClasses.get()) + " classes from "
+                + auxClassExtractor.getReadJars() + " read and " + auxClassExtractor.getCachedJars() + " cached JARs, "
+                + sourceClasses.get() + " classes already extracted from SOURCE");
+    }
+
+    private static void writeEstimate(ExtractionOptions options) throws Exception {
+        CostEstimate estimate = new ExtractionCostEstimator(options).estimate();
+        estimate.write(options);
+        System.err.println("AST Estimate: " + estimate.sourceFiles + " files, " + estimate.sourceBytes + " bytes, sample of " + estimate.sampledFiles
+                + " files in " + estimate.estimateMillis + " ms");
+        System.err.println("AST Estimate: wall " + format(estimate.wallMillis, "ms") + " with " + estimate.threads + " threads, cpu "
+                + format(estimate.cpuMillis, "ms") + ", longest file " + format(estimate.longestFileMillis, "ms"));
+        if (estimate.peakHeapBytes != null) {
+            System.err.println("AST Estimate: peak heap " + format(estimate.peakHeapBytes, "bytes") + ", allocated " + format(estimate.allocatedBytes, "bytes"));
+        }
+        System.err.println("AST Estimate: output " + format(estimate.outputFiles, "files") + ", " + format(estimate.outputBytes, "bytes")
+                + " into " + OutputFolders.getMetaFile(options, CostEstimate.FILE_NAME).getAbsolutePath());
+    }
+
+    private static String format(CostEstimate.Interval interval, String unit){
+        return interval.estimate + " " + unit + " (" + interval.lower + " - " + interval.upper + ")";
+    }
+
+    private static void writeDelta(ExtractionOptions options, String previousDestination) throws Exception {
+        File destination = OutputFolders.getDestinationFolder(options);
+        ExtractionDelta delta = new ExtractionDeltaBuilder().compute(destination, new File(previousDestination));
+        System.err.println("AST Delta to " + previousDestination + ": " + delta.addedClasses.size() + " added, "
+                + delta.removedClasses.size() + " removed, " + delta.changedClasses.size() + " changed, "
+                + delta.unchangedClasses + " unchanged classes");
+    }
+
+    static void exitWithUsage(String message){
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
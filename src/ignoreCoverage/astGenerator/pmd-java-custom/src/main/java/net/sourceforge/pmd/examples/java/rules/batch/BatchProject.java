@@ -0,0 +1,23 @@
+package net.sourceforge.pmd.examples.java.rules.batch;
+
+/**
+ * Entry of the batch manifest, a JSON array of projects:
+ * <pre>
+ * [
+ *   {"name": "argouml", "source": "/repos/argouml/src", "destination": "/out/argouml"},
+ *   {"name": "jhotdraw", "source": "/repos/jhotdraw", "destination": "/out/jhotdraw", "auxClasspath": "/repos/jhotdraw/lib/a.jar"}
+ * ]
+ * </pre>
+ * Options which are not set in the manifest are taken from the environment variables like in {@code make run}.
+ */
+public class BatchProject {
+    public String name; // used in the log and the batch report, defaults to the source folder
+    public String source;
+    public String destination;
+    public String auxClasspath;
+    public String mode; // ExtractionMode, null: EXTRACTION_MODE of the environment
+
+    public BatchProject(){
+
+    }
+}
@@ -0,0 +1,24 @@
+package net.sourceforge.pmd.examples.java.rules.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry of the batch report ".extraction/batch-report.json" of a project.
+ */
+public class BatchProjectResult {
+    public String name;
+    public String source;
+    public String destination;
+    public int files; // extracted by this run, without the resumedFiles
+    public int resumedFiles; // done by an earlier run according to the checkpoint
+    public long bytes;
+    public int chunks;
+    public int classes;
+    public long finishedAfterMillis; // since the start of the batch, all projects share the same pool
+    public List<String> errors = new ArrayList<String>(); // chunks which failed, e.g. on an aux classpath which can not be read, the files PMD can not extract are in the skip report
+
+    public BatchProjectResult(){
+
+    }
+}
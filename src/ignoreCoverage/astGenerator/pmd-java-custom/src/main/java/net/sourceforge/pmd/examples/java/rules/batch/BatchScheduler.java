@@ -0,0 +1,242 @@
+package net.sourceforge.pmd.examples.java.rules.batch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.checkpoint.ExtractionCheckpoint;
+import net.sourceforge.pmd.examples.java.rules.checkpoint.ExtractionJournal;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionMode;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.PackageMemberIndex;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputTransport;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextConsumer;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextStreamWriter;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import net.sourceforge.pmd.examples.java.rules.output.SkippedFileReportWriter;
+import net.sourceforge.pmd.examples.java.rules.output.StatisticsSummaryWriter;
+import net.sourceforge.pmd.examples.java.rules.output.TypeHierarchyIndexWriter;
+import net.sourceforge.pmd.examples.java.rules.statistics.ExtractionStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Extracts many projects in one JVM. The files of every project are split into chunks and all chunks are
+ * scheduled on one shared work-stealing pool, largest first, so the threads which finished a small project
+ * help with the big ones. Every chunk runs its own single threaded PMD analysis and writes into the
+ * destination of its project only.
+ * <p>
+ * The chunks of a project share its writers, statistics and package member index. With CHECKPOINT a project
+ * resumes from the journal in its destination, with TYPE_HIERARCHY_INDEX its chunks append to one index.
+ */
+public class BatchScheduler {
+
+    public static final String REPORT_FILE_NAME = "batch-report.json";
+
+    private static final int CHUNKS_PER_THREAD = 4; // enough chunks per project to keep all threads busy
+    private static final int MIN_CHUNK_FILES = 8; // every chunk pays the start of a PMD analysis
+    private static final int MAX_CHUNK_FILES = 128;
+
+    private final ExtractionOptions defaults;
+
+    /**
+     * @param defaults options of all projects, the manifest overrides source, destination, auxClasspath and mode.
+     *                 defaults.threads is the size of the shared pool.
+     */
+    public BatchScheduler(ExtractionOptions defaults){
+        this.defaults = defaults;
+    }
+
+    public static List<BatchProject> readManifest(File manifest) throws IOException {
+        return new ObjectMapper().readValue(manifest, new TypeReference<List<BatchProject>>() { });
+    }
+
+    public List<BatchProjectResult> run(List<BatchProject> projects) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<ProjectRun> projectRuns = new ArrayList<ProjectRun>();
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        for (BatchProject project : projects) {
+            ProjectRun projectRun = this.createProjectRun(project, start);
+            projectRuns.add(projectRun);
+            chunks.addAll(projectRun.chunks);
+        }
+        chunks.sort(Comparator.comparingLong((Chunk chunk) -> chunk.bytes).reversed());
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, this.defaults.threads));
+        try {
+            for (Chunk chunk : chunks) {
+                pool.execute(() -> runChunk(chunk));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        List<BatchProjectResult> results = new ArrayList<BatchProjectResult>();
+        for (ProjectRun projectRun : projectRuns) {
+            if (projectRun.chunks.isEmpty()) {
+                finishProject(projectRun);
+            }
+            results.add(projectRun.result);
+        }
+        return results;
+    }
+
+    private ProjectRun createProjectRun(BatchProject project, long batchStart) throws IOException {
+        if (project.source == null || project.destination == null) {
+            throw new IllegalArgumentException("Every project of the batch manifest needs a source and a destination: " + project.name);
+        }
+        ExtractionOptions options = this.defaults.copy();
+        options.source = project.source;
+        options.destination = project.destination;
+        options.threads = 0; // PMD runs the chunk on the pool thread which took it
+        options.outputTransport = OutputTransport.FILES; // every project is written into its own destination
+        if (project.auxClasspath != null) {
+            options.auxClasspath = project.auxClasspath;
+        }
+        if (project.mode != null) {
+            options.mode = ExtractionMode.fromString(project.mode, options.mode);
+        }
+
+        ProjectRun projectRun = new ProjectRun(options, batchStart);
+        projectRun.result.name = project.name != null ? project.name : project.source;
+        projectRun.result.source = project.source;
+        projectRun.result.destination = project.destination;
+
+        List<Path> files;
+        if (options.checkpoint) {
+            ExtractionCheckpoint checkpoint = ExtractionCheckpoint.load(options);
+            files = checkpoint.getRemainingFiles(Paths.get(project.source));
+            projectRun.result.resumedFiles = checkpoint.getCompletedFileCount();
+        } else {
+            try (Stream<Path> paths = Files.walk(Paths.get(project.source))) {
+                files = paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+            }
+        }
+        int chunkSize = Math.min(MAX_CHUNK_FILES, Math.max(MIN_CHUNK_FILES, files.size() / (Math.max(1, this.defaults.threads) * CHUNKS_PER_THREAD)));
+        for (int i = 0; i < files.size(); i += chunkSize) {
+            Chunk chunk = new Chunk(projectRun, files.subList(i, Math.min(files.size(), i + chunkSize)));
+            projectRun.chunks.add(chunk);
+            projectRun.result.bytes += chunk.bytes;
+        }
+        projectRun.result.files = files.size();
+        projectRun.result.chunks = projectRun.chunks.size();
+        projectRun.remainingChunks.set(projectRun.chunks.size());
+        return projectRun;
+    }
+
+    private static void runChunk(Chunk chunk){
+        ProjectRun projectRun = chunk.projectRun;
+        try {
+            DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(projectRun.options);
+            extractor.setSkippedFileListener(projectRun.skippedFileWriter);
+            extractor.setStatistics(projectRun.statistics);
+            extractor.setTypeHierarchyListener(projectRun.typeHierarchyWriter);
+            extractor.setCompletedFileListener(projectRun.journal);
+            extractor.setPackageMemberIndex(projectRun.getPackageMemberIndex());
+            extractor.extract(chunk.files, classContext -> {
+                projectRun.writer.accept(classContext);
+                projectRun.classes.incrementAndGet();
+            });
+        } catch (RuntimeException e) {
+            String error = chunk.files.get(0) + " (+" + (chunk.files.size() - 1) + " files): " + e;
+            System.err.println("AST Batch error in " + projectRun.result.name + ": " + error);
+            synchronized (projectRun.result) {
+                projectRun.result.errors.add(error);
+            }
+        } finally {
+            if (projectRun.remainingChunks.decrementAndGet() == 0) {
+                finishProject(projectRun);
+            }
+        }
+    }
+
+    private static void finishProject(ProjectRun projectRun){
+        BatchProjectResult result = projectRun.result;
+        result.classes = projectRun.classes.get();
+        result.finishedAfterMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - projectRun.batchStart);
+        try {
+            projectRun.writer.close();
+        } catch (IOException e) {
+            System.err.println("AST Batch output of " + result.name + " could not be closed: " + e);
+        }
+        if (projectRun.statistics != null) {
+            StatisticsSummaryWriter.write(projectRun.options, projectRun.statistics);
+        }
+        File reportFile = OutputFolders.getMetaFile(projectRun.options, REPORT_FILE_NAME);
+        reportFile.getParentFile().mkdirs();
+        try {
+            synchronized (result) {
+                new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, result);
+            }
+        } catch (IOException e) {
+            System.err.println("AST Batch report of " + result.name + " could not be written to " + reportFile.getAbsolutePath() + ": " + e);
+        }
+        System.out.println("AST Batch finished: " + result.name + " (" + result.files + " files, " + result.classes
+                + " classes, " + result.errors.size() + " errors) after " + result.finishedAfterMillis + " ms");
+    }
+
+    private static class ProjectRun {
+        final ExtractionOptions options;
+        final long batchStart;
+        final ClassContextConsumer writer; // OUTPUT_PROJECTION applies, closed in finishProject
+        final SkippedFileReportWriter skippedFileWriter;
+        final ExtractionStatistics statistics; // null: STATISTICS_SUMMARY is off, shared by the chunks of the project
+        final TypeHierarchyIndexWriter typeHierarchyWriter; // null: TYPE_HIERARCHY_INDEX is off
+        final ExtractionJournal journal; // null: CHECKPOINT is off
+        final BatchProjectResult result = new BatchProjectResult();
+        final List<Chunk> chunks = new ArrayList<Chunk>();
+        final AtomicInteger remainingChunks = new AtomicInteger();
+        final AtomicInteger classes = new AtomicInteger();
+        private PackageMemberIndex packageMemberIndex; // built by the first chunk of the project
+
+        ProjectRun(ExtractionOptions options, long batchStart){
+            this.options = options;
+            this.batchStart = batchStart;
+            this.writer = ClassContextStreamWriter.createClassConsumer(options);
+            this.skippedFileWriter = new SkippedFileReportWriter(options);
+            this.statistics = options.writeStatisticsSummary ? new ExtractionStatistics() : null;
+            this.typeHierarchyWriter = options.writeTypeHierarchyIndex ? new TypeHierarchyIndexWriter(options) : null;
+            this.journal = options.checkpoint ? new ExtractionJournal(options) : null;
+        }
+
+        /**
+         * @return the index of the whole project shared by its chunks, null if options.ignoreWildcardImports
+         */
+        synchronized PackageMemberIndex getPackageMemberIndex(){
+            if (this.packageMemberIndex == null && !this.options.ignoreWildcardImports) {
+                this.packageMemberIndex = PackageMemberIndex.build(this.options, Collections.<Path>emptyList(), Collections.<String, String>emptyMap());
+            }
+            return this.packageMemberIndex;
+        }
+    }
+
+    private static class Chunk {
+        final ProjectRun projectRun;
+        final List<Path> files;
+        final long bytes;
+
+        Chunk(ProjectRun projectRun, List<Path> files){
+            this.projectRun = projectRun;
+            this.files = files;
+            long bytes = 0;
+            for (Path file : files) {
+                bytes += file.toFile().length();
+            }
+            this.bytes = bytes;
+        }
+    }
+}
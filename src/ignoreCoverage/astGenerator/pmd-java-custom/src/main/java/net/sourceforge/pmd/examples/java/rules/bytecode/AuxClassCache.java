@@ -0,0 +1,82 @@
+package net.sourceforge.pmd.examples.java.rules.bytecode;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * The auxclass contexts of a JAR, stored in the cache folder under the SHA-256 checksum of the JAR. A JAR
+ * with the same content is read only once, whatever its path and however many projects use it. The
+ * file_path of the cached classes is the entry in the JAR, the path of the JAR is added when they are read.
+ */
+class AuxClassCache {
+
+    private static final String VERSION = "v1"; // change it if the BytecodeClassReader writes something else
+    private static final TypeReference<List<ClassOrInterfaceTypeContext>> CLASSES = new TypeReference<List<ClassOrInterfaceTypeContext>>(){};
+
+    private final File folder;
+    private final ObjectMapper mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    AuxClassCache(File folder){
+        this.folder = folder;
+    }
+
+    /**
+     * @return the cached classes or null if the JAR was not read yet
+     */
+    List<ClassOrInterfaceTypeContext> read(String checksum) throws IOException {
+        File file = this.getFile(checksum);
+        if (!file.isFile()) {
+            return null;
+        }
+        return this.mapper.readValue(file, CLASSES);
+    }
+
+    void write(String checksum, List<ClassOrInterfaceTypeContext> classes) throws IOException {
+        this.folder.mkdirs();
+        // written under a temporary name and moved, so a parallel run never reads half a file
+        File temporaryFile = File.createTempFile(checksum, ".tmp", this.folder);
+        try {
+            this.mapper.writeValue(temporaryFile, classes);
+            Files.move(temporaryFile.toPath(), this.getFile(checksum).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    private File getFile(String checksum){
+        return new File(this.folder, VERSION + "-" + checksum + ".json");
+    }
+
+    static String getChecksum(Path jar) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(jar)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder checksum = new StringBuilder();
+        for (byte b : digest.digest()) {
+            checksum.append(String.format("%02x", b));
+        }
+        return checksum.toString();
+    }
+}
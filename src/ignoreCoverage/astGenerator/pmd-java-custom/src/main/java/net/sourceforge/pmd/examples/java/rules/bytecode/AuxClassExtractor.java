@@ -0,0 +1,195 @@
+package net.sourceforge.pmd.examples.java.rules.bytecode;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the classes of JARs and class folders from their bytecode into auxclass contexts, which complete the
+ * type hierarchies of the analysed sources without parsing the sources of the dependencies. The classes of a
+ * JAR are cached per checksum in options.auxClassCache.
+ * <p>
+ * A class key is only handed out once: like on the classpath, the first JAR or folder with the class wins.
+ */
+public class AuxClassExtractor {
+
+    private final AuxClassCache cache; // null: no cache
+    private final Set<String> classKeys = new HashSet<String>();
+    private int classes;
+    private int cachedJars;
+    private int readJars;
+
+    public AuxClassExtractor(ExtractionOptions options){
+        boolean useCache = options.auxClassCache != null && !options.auxClassCache.isEmpty();
+        this.cache = useCache ? new AuxClassCache(new File(options.auxClassCache)) : null;
+    }
+
+    /**
+     * @param classpath JARs and class folders separated by {@link File#pathSeparator}
+     * @param consumer receives the top level classes, the member classes are inside of them like in the source extraction
+     */
+    public void extract(String classpath, Consumer<ClassOrInterfaceTypeContext> consumer) throws IOException {
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            Path path = Paths.get(entry.trim());
+            List<ClassOrInterfaceTypeContext> entryClasses;
+            if (Files.isDirectory(path)) {
+                entryClasses = this.readClassFolder(path);
+            } else if (Files.isRegularFile(path)) {
+                entryClasses = this.readJar(path);
+            } else {
+                System.out.println("AST Aux classes: " + path + " does not exist");
+                continue;
+            }
+            for (ClassOrInterfaceTypeContext classContext : entryClasses) {
+                if (this.classKeys.add(classContext.key)) {
+                    this.classes++;
+                    consumer.accept(classContext);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the top level classes of the JAR with the file_path "[jar]!/[entry]"
+     */
+    public List<ClassOrInterfaceTypeContext> readJar(Path jar) throws IOException {
+        String checksum = this.cache != null ? AuxClassCache.getChecksum(jar) : null;
+        List<ClassOrInterfaceTypeContext> jarClasses = checksum != null ? this.cache.read(checksum) : null;
+        if (jarClasses != null) {
+            this.cachedJars++;
+        } else {
+            this.readJars++;
+            List<BytecodeClassReader.ReadClass> readClasses = new ArrayList<BytecodeClassReader.ReadClass>();
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (isClassFile(entry.getName()) && !entry.getName().startsWith("META-INF/")) { // META-INF/versions of multi-release JARs
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            addClass(readClasses, readAllBytes(in), entry.getName());
+                        }
+                    }
+                }
+            }
+            jarClasses = nestMemberClasses(readClasses);
+            if (checksum != null) {
+                this.cache.write(checksum, jarClasses);
+            }
+        }
+        String jarPath = jar.toString().replace('\\', '/') + "!/";
+        for (ClassOrInterfaceTypeContext classContext : jarClasses) {
+            prefixFilePath(classContext, jarPath);
+        }
+        return jarClasses;
+    }
+
+    /**
+     * Class folders are not cached, they are usually the build output which changes anyway.
+     *
+     * @return the top level classes of the folder with the file_path "[folder]/[class file]"
+     */
+    public List<ClassOrInterfaceTypeContext> readClassFolder(Path folder) throws IOException {
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(folder)) {
+            classFiles = paths.filter(path -> isClassFile(path.getFileName().toString()) && Files.isRegularFile(path)).collect(Collectors.toList());
+        }
+        List<BytecodeClassReader.ReadClass> readClasses = new ArrayList<BytecodeClassReader.ReadClass>();
+        for (Path classFile : classFiles) {
+            addClass(readClasses, Files.readAllBytes(classFile), classFile.toString().replace('\\', '/'));
+        }
+        return nestMemberClasses(readClasses);
+    }
+
+    private static boolean isClassFile(String name){
+        return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+    }
+
+    private static void addClass(List<BytecodeClassReader.ReadClass> readClasses, byte[] classFile, String filePath){
+        BytecodeClassReader.ReadClass readClass = BytecodeClassReader.read(classFile, filePath);
+        if (readClass != null) {
+            readClasses.add(readClass);
+        }
+    }
+
+    /**
+     * Puts the member classes into the innerDefinedClasses and innerDefinedInterfaces of their outer class. A
+     * member class of a skipped class, e.g. of an enum, stays a top level class, like MyRule visits it.
+     *
+     * @return the top level classes ordered by their binary name
+     */
+    private static List<ClassOrInterfaceTypeContext> nestMemberClasses(List<BytecodeClassReader.ReadClass> readClasses){
+        Map<String, BytecodeClassReader.ReadClass> classesByBinaryName = new TreeMap<String, BytecodeClassReader.ReadClass>();
+        for (BytecodeClassReader.ReadClass readClass : readClasses) {
+            classesByBinaryName.put(readClass.binaryName, readClass);
+        }
+        List<ClassOrInterfaceTypeContext> topLevelClasses = new ArrayList<ClassOrInterfaceTypeContext>();
+        for (BytecodeClassReader.ReadClass readClass : classesByBinaryName.values()) {
+            BytecodeClassReader.ReadClass outerClass = readClass.outerBinaryName != null ? classesByBinaryName.get(readClass.outerBinaryName) : null;
+            if (outerClass == null) {
+                topLevelClasses.add(readClass.classContext);
+            } else if ("interface".equals(readClass.classContext.type)) {
+                outerClass.classContext.innerDefinedInterfaces.put(readClass.classContext.key, readClass.classContext);
+            } else {
+                outerClass.classContext.innerDefinedClasses.put(readClass.classContext.key, readClass.classContext);
+            }
+        }
+        return topLevelClasses;
+    }
+
+    private static void prefixFilePath(ClassOrInterfaceTypeContext classContext, String prefix){
+        classContext.file_path = prefix + classContext.file_path;
+        for (ClassOrInterfaceTypeContext innerClass : classContext.innerDefinedClasses.values()) {
+            prefixFilePath(innerClass, prefix);
+        }
+        for (ClassOrInterfaceTypeContext innerInterface : classContext.innerDefinedInterfaces.values()) {
+            prefixFilePath(innerInterface, prefix);
+        }
+    }
+
+    private static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the classes handed to the consumer
+     */
+    public int getClasses(){
+        return this.classes;
+    }
+
+    public int getCachedJars(){
+        return this.cachedJars;
+    }
+
+    public int getReadJars(){
+        return this.readJars;
+    }
+}
@@ -0,0 +1,394 @@
+package net.sourceforge.pmd.examples.java.rules.bytecode;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MemberFieldParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodTypeContext;
+import net.sourceforge.pmd.lang.java.ast.JModifier;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads one class file into an auxclass {@link ClassOrInterfaceTypeContext} with the same keys and type names
+ * as the FULL mode writes for the source of the class. Whatever the bytecode does not have stays empty: the
+ * positions, the @Override annotation (it has source retention) and the parameter names of classes compiled
+ * without -parameters or -g, which are named arg0, arg1, ... like java.lang.reflect does. The implicit default
+ * constructor and the supertypes are as the compiler wrote them, the source extraction has no constructor for
+ * the first and adds the type arguments of the second to extends_ and implements_.
+ * <p>
+ * Like the source extraction, only classes and interfaces are read: enums, records, annotations, anonymous
+ * and local classes and everything synthetic are skipped.
+ */
+class BytecodeClassReader extends ClassVisitor {
+
+    private final String filePath;
+    private final Map<String, String[]> innerClasses = new HashMap<String, String[]>(); // binary name -> outer binary name, simple name
+    private String binaryName;
+    private String outerBinaryName; // null for a top level class
+    private String simpleName;
+    private int access;
+    private String signature;
+    private String superName;
+    private String[] interfaces;
+    private boolean skipped;
+    private ClassOrInterfaceTypeContext classContext;
+
+    /**
+     * A class read from a class file, the inner classes are nested into their outer class later.
+     */
+    static class ReadClass {
+        final String binaryName;
+        final String outerBinaryName; // null for a top level class
+        final ClassOrInterfaceTypeContext classContext;
+
+        ReadClass(String binaryName, String outerBinaryName, ClassOrInterfaceTypeContext classContext){
+            this.binaryName = binaryName;
+            this.outerBinaryName = outerBinaryName;
+            this.classContext = classContext;
+        }
+    }
+
+    private BytecodeClassReader(String filePath){
+        super(Opcodes.ASM9);
+        this.filePath = filePath;
+    }
+
+    /**
+     * @param filePath written as file_path of the class
+     * @return the class or null if it is skipped
+     */
+    static ReadClass read(byte[] classFile, String filePath){
+        BytecodeClassReader reader = new BytecodeClassReader(filePath);
+        // the code is needed for the LocalVariableTable with the parameter names, the frames never
+        new ClassReader(classFile).accept(reader, ClassReader.SKIP_FRAMES);
+        if (reader.skipped) {
+            return null;
+        }
+        return new ReadClass(reader.binaryName, reader.outerBinaryName, reader.getClassContext());
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces){
+        this.binaryName = name;
+        this.simpleName = name.substring(name.lastIndexOf('/') + 1);
+        this.access = access;
+        this.signature = signature;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.skipped = (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_ANNOTATION | Opcodes.ACC_ENUM | Opcodes.ACC_MODULE)) != 0
+                || "java/lang/Record".equals(superName);
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access){
+        this.innerClasses.put(name, new String[]{outerName, innerName});
+        if (name.equals(this.binaryName)) {
+            if (outerName == null || innerName == null) {
+                this.skipped = true; // anonymous or local class
+                return;
+            }
+            this.outerBinaryName = outerName;
+            this.simpleName = innerName;
+            this.access = access; // the flags of the declaration, e.g. static and private
+        }
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value){
+        if (this.skipped || (access & Opcodes.ACC_SYNTHETIC) != 0) {
+            return null;
+        }
+        ClassOrInterfaceTypeContext classContext = this.getClassContext();
+        TypeSignaturePrinter type = new TypeSignaturePrinter(null);
+        new SignatureReader(signature != null ? signature : descriptor).acceptType(type);
+
+        MemberFieldParameterTypeContext fieldContext = new MemberFieldParameterTypeContext();
+        fieldContext.name = name;
+        fieldContext.type = type.getType();
+        fieldContext.hasTypeVariable = type.hasTypeVariable();
+        fieldContext.classOrInterfaceKey = classContext.key;
+        fieldContext.modifiers = getModifierNames(getFieldModifiers(access));
+        fieldContext.key = classContext.key + "/memberField/" + name;
+        classContext.fields.put(fieldContext.key, fieldContext);
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions){
+        if (this.skipped || (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0 || "<clinit>".equals(name)) {
+            return null;
+        }
+        return new MethodReader(access, name, descriptor, signature);
+    }
+
+    @Override
+    public void visitEnd(){
+        if (!this.skipped) {
+            this.getClassContext(); // a class without members
+        }
+    }
+
+    /**
+     * Creates the class context on the first member, once the InnerClasses attribute is read.
+     */
+    private ClassOrInterfaceTypeContext getClassContext(){
+        if (this.classContext != null) {
+            return this.classContext;
+        }
+        ClassOrInterfaceTypeContext classContext = new ClassOrInterfaceTypeContext();
+        classContext.name = this.simpleName;
+        classContext.key = this.getKey(this.binaryName);
+        boolean isInterface = (this.access & Opcodes.ACC_INTERFACE) != 0;
+        classContext.type = isInterface ? "interface" : "class";
+        classContext.modifiers = getModifierNames(getClassModifiers(this.access));
+        classContext.file_path = this.filePath;
+        classContext.auxclass = true;
+        if (this.outerBinaryName != null) {
+            classContext.definedInClassOrInterfaceTypeKey = this.getKey(this.outerBinaryName);
+        }
+
+        SignatureTypes supertypes = new SignatureTypes();
+        if (this.signature != null) {
+            new SignatureReader(this.signature).accept(supertypes);
+        } else {
+            if (this.superName != null) {
+                new SignatureReader("L" + this.superName + ";").acceptType(supertypes.visitSuperclass());
+            }
+            for (String interfaceName : this.interfaces) {
+                new SignatureReader("L" + interfaceName + ";").acceptType(supertypes.visitInterface());
+            }
+        }
+        if (supertypes.superclass != null && !"java.lang.Object".equals(supertypes.superclass)) {
+            classContext.extends_.add(supertypes.superclass);
+        }
+        // an interface extends its superinterfaces, like in the source
+        (isInterface ? classContext.extends_ : classContext.implements_).addAll(supertypes.interfaces);
+        this.classContext = classContext;
+        return classContext;
+    }
+
+    /**
+     * @return the canonical name, e.g. java.util.Map.Entry for java/util/Map$Entry
+     */
+    private String getKey(String binaryName){
+        String[] outerAndSimpleName = this.innerClasses.get(binaryName);
+        if (outerAndSimpleName != null && outerAndSimpleName[0] != null && outerAndSimpleName[1] != null) {
+            return this.getKey(outerAndSimpleName[0]) + "." + outerAndSimpleName[1];
+        }
+        return binaryName.replace('/', '.');
+    }
+
+    private boolean isInnerClass(){
+        return this.outerBinaryName != null && (this.access & Opcodes.ACC_STATIC) == 0 && (this.access & Opcodes.ACC_INTERFACE) == 0;
+    }
+
+    private static Set<JModifier> getClassModifiers(int access){
+        Set<JModifier> modifiers = getVisibility(access);
+        addIf(modifiers, access, Opcodes.ACC_ABSTRACT, JModifier.ABSTRACT);
+        addIf(modifiers, access, Opcodes.ACC_STATIC, JModifier.STATIC);
+        addIf(modifiers, access, Opcodes.ACC_FINAL, JModifier.FINAL);
+        return modifiers;
+    }
+
+    private static Set<JModifier> getFieldModifiers(int access){
+        Set<JModifier> modifiers = getVisibility(access);
+        addIf(modifiers, access, Opcodes.ACC_STATIC, JModifier.STATIC);
+        addIf(modifiers, access, Opcodes.ACC_FINAL, JModifier.FINAL);
+        addIf(modifiers, access, Opcodes.ACC_TRANSIENT, JModifier.TRANSIENT);
+        addIf(modifiers, access, Opcodes.ACC_VOLATILE, JModifier.VOLATILE);
+        return modifiers;
+    }
+
+    private Set<JModifier> getMethodModifiers(int access){
+        Set<JModifier> modifiers = getVisibility(access);
+        addIf(modifiers, access, Opcodes.ACC_ABSTRACT, JModifier.ABSTRACT);
+        addIf(modifiers, access, Opcodes.ACC_STATIC, JModifier.STATIC);
+        addIf(modifiers, access, Opcodes.ACC_FINAL, JModifier.FINAL);
+        addIf(modifiers, access, Opcodes.ACC_SYNCHRONIZED, JModifier.SYNCHRONIZED);
+        addIf(modifiers, access, Opcodes.ACC_NATIVE, JModifier.NATIVE);
+        boolean interfaceInstanceMethod = (this.access & Opcodes.ACC_INTERFACE) != 0
+                && (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0;
+        if (interfaceInstanceMethod) {
+            modifiers.add(JModifier.DEFAULT);
+        }
+        return modifiers;
+    }
+
+    private static Set<JModifier> getVisibility(int access){
+        Set<JModifier> modifiers = EnumSet.noneOf(JModifier.class);
+        addIf(modifiers, access, Opcodes.ACC_PUBLIC, JModifier.PUBLIC);
+        addIf(modifiers, access, Opcodes.ACC_PROTECTED, JModifier.PROTECTED);
+        addIf(modifiers, access, Opcodes.ACC_PRIVATE, JModifier.PRIVATE);
+        return modifiers;
+    }
+
+    private static void addIf(Set<JModifier> modifiers, int access, int flag, JModifier modifier){
+        if ((access & flag) != 0) {
+            modifiers.add(modifier);
+        }
+    }
+
+    private static List<String> getModifierNames(Set<JModifier> modifiers){
+        return modifiers.stream().map(Enum::name).collect(Collectors.toList());
+    }
+
+    /**
+     * Collects the parameter names from the MethodParameters attribute or the LocalVariableTable and adds the
+     * method or constructor at the end.
+     */
+    private class MethodReader extends MethodVisitor {
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final String signature;
+        private final Type[] parameterTypes;
+        private final List<String> parameterNames = new ArrayList<String>();
+        private final List<Integer> parameterAccess = new ArrayList<Integer>();
+        private final Map<Integer, String> localVariableNames = new HashMap<Integer, String>(); // slot -> name
+
+        MethodReader(int access, String name, String descriptor, String signature){
+            super(Opcodes.ASM9);
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.parameterTypes = Type.getArgumentTypes(descriptor);
+        }
+
+        @Override
+        public void visitParameter(String name, int access){
+            this.parameterNames.add(name);
+            this.parameterAccess.add(access);
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index){
+            if (!this.localVariableNames.containsKey(index)) {
+                this.localVariableNames.put(index, name);
+            }
+        }
+
+        @Override
+        public void visitEnd(){
+            ClassOrInterfaceTypeContext classContext = BytecodeClassReader.this.getClassContext();
+            boolean constructor = "<init>".equals(this.name);
+
+            SignatureTypes types = new SignatureTypes();
+            new SignatureReader(this.signature != null ? this.signature : this.descriptor).accept(types);
+            List<TypeSignaturePrinter> parameterTypes = types.parameters;
+            // the outer instance of an inner class constructor is in the descriptor, but not in the signature
+            int leadingParameters = this.parameterTypes.length - parameterTypes.size();
+            if (constructor && this.signature == null && BytecodeClassReader.this.isInnerClass() && parameterTypes.size() > 0) {
+                parameterTypes = parameterTypes.subList(1, parameterTypes.size());
+                leadingParameters = 1;
+            }
+
+            MethodTypeContext methodContext = new MethodTypeContext();
+            methodContext.name = constructor ? "constructor" : this.name;
+            methodContext.type = constructor ? null : types.returnType;
+            methodContext.classOrInterfaceKey = classContext.key;
+            methodContext.modifiers = getModifierNames(BytecodeClassReader.this.getMethodModifiers(this.access));
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                MethodParameterTypeContext parameterContext = new MethodParameterTypeContext();
+                parameterContext.name = this.getParameterName(leadingParameters + i);
+                parameterContext.type = parameterTypes.get(i).getType();
+                parameterContext.hasTypeVariable = parameterTypes.get(i).hasTypeVariable();
+                if (leadingParameters + i < this.parameterAccess.size() && (this.parameterAccess.get(leadingParameters + i) & Opcodes.ACC_FINAL) != 0) {
+                    parameterContext.modifiers.add(JModifier.FINAL.name());
+                }
+                methodContext.parameters.add(parameterContext);
+            }
+
+            StringBuilder key = new StringBuilder(classContext.key).append(constructor ? "/constructor/constructor(" : "/method/" + this.name + "(");
+            for (int i = 0; i < methodContext.parameters.size(); i++) {
+                MethodParameterTypeContext parameterContext = methodContext.parameters.get(i);
+                key.append(i > 0 ? ", " : "").append(parameterContext.type).append(' ').append(parameterContext.name);
+            }
+            methodContext.key = key.append(')').toString();
+            for (MethodParameterTypeContext parameterContext : methodContext.parameters) {
+                parameterContext.key = methodContext.key + "/parameter/" + parameterContext.name;
+                parameterContext.methodKey = methodContext.key;
+            }
+            (constructor ? classContext.constructors : classContext.methods).put(methodContext.key, methodContext);
+        }
+
+        /**
+         * @param index of the parameter in the descriptor
+         */
+        private String getParameterName(int index){
+            if (index < this.parameterNames.size() && this.parameterNames.get(index) != null) {
+                return this.parameterNames.get(index);
+            }
+            int slot = (this.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+            for (int i = 0; i < index; i++) {
+                slot += this.parameterTypes[i].getSize();
+            }
+            String localVariableName = this.localVariableNames.get(slot);
+            return localVariableName != null ? localVariableName : "arg" + index;
+        }
+    }
+
+    /**
+     * The printed types of a class or method signature.
+     */
+    private static class SignatureTypes extends SignatureVisitor {
+        String superclass;
+        final List<String> interfaces = new ArrayList<String>();
+        final List<TypeSignaturePrinter> parameters = new ArrayList<TypeSignaturePrinter>();
+        String returnType;
+
+        SignatureTypes(){
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public SignatureVisitor visitClassBound(){
+            return new TypeSignaturePrinter(null);
+        }
+
+        @Override
+        public SignatureVisitor visitInterfaceBound(){
+            return new TypeSignaturePrinter(null);
+        }
+
+        @Override
+        public SignatureVisitor visitSuperclass(){
+            return new TypeSignaturePrinter(type -> this.superclass = type.getType());
+        }
+
+        @Override
+        public SignatureVisitor visitInterface(){
+            return new TypeSignaturePrinter(type -> this.interfaces.add(type.getType()));
+        }
+
+        @Override
+        public SignatureVisitor visitParameterType(){
+            return new TypeSignaturePrinter(this.parameters::add);
+        }
+
+        @Override
+        public SignatureVisitor visitReturnType(){
+            return new TypeSignaturePrinter(type -> this.returnType = type.getType());
+        }
+
+        @Override
+        public SignatureVisitor visitExceptionType(){
+            return new TypeSignaturePrinter(null);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.sourceforge.pmd.examples.java.rules.bytecode;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.util.function.Consumer;
+
+/**
+ * Prints one type of a generic signature or a descriptor like the FULL mode prints a resolved type:
+ * java.util.Map&lt;java.lang.String, java.util.List&lt;? extends java.lang.Number&gt;&gt;, int[][], E and
+ * java.util.Map$Entry for a member class.
+ */
+class TypeSignaturePrinter extends SignatureVisitor {
+
+    private final StringBuilder builder = new StringBuilder();
+    private final Consumer<TypeSignaturePrinter> listener; // receives the printer once the type is complete, null: nobody
+    private int arrayDepth;
+    private int typeArguments; // of the innermost class type
+    private boolean typeVariable; // E, but not E[]
+    private boolean typeVariableArgument; // List<E>, but not List<? extends E>
+    private String type;
+
+    TypeSignaturePrinter(Consumer<TypeSignaturePrinter> listener){
+        super(Opcodes.ASM9);
+        this.listener = listener;
+    }
+
+    /**
+     * @return the printed type, null until the type is complete
+     */
+    String getType(){
+        return this.type;
+    }
+
+    /**
+     * @return true like ClassOrInterfaceExtractor.hasTypeVariable for the resolved type
+     */
+    boolean hasTypeVariable(){
+        return this.typeVariable || this.typeVariableArgument;
+    }
+
+    @Override
+    public void visitBaseType(char descriptor){
+        this.builder.append(getPrimitiveName(descriptor));
+        this.end();
+    }
+
+    @Override
+    public void visitTypeVariable(String name){
+        this.builder.append(name);
+        this.typeVariable = this.arrayDepth == 0;
+        this.end();
+    }
+
+    @Override
+    public SignatureVisitor visitArrayType(){
+        this.arrayDepth++;
+        return this;
+    }
+
+    @Override
+    public void visitClassType(String name){
+        this.builder.append(name.replace('/', '.'));
+    }
+
+    @Override
+    public void visitInnerClassType(String name){
+        boolean parameterizedOuterClass = this.typeArguments > 0;
+        this.closeTypeArguments();
+        this.typeVariableArgument = false; // only the type arguments of the innermost class count
+        // PMD prints the member class of a parameterized type as p.Outer<T>#Inner and otherwise as p.Outer$Inner
+        this.builder.append(parameterizedOuterClass ? '#' : '$').append(name);
+    }
+
+    @Override
+    public void visitTypeArgument(){
+        this.openTypeArgument();
+        this.builder.append('?');
+    }
+
+    @Override
+    public SignatureVisitor visitTypeArgument(char wildcard){
+        this.openTypeArgument();
+        if (wildcard == EXTENDS) {
+            this.builder.append("? extends ");
+        } else if (wildcard == SUPER) {
+            this.builder.append("? super ");
+        }
+        return new TypeSignaturePrinter(argument -> {
+            this.builder.append(argument.getType());
+            if (wildcard == INSTANCEOF && argument.typeVariable) {
+                this.typeVariableArgument = true;
+            }
+        });
+    }
+
+    @Override
+    public void visitEnd(){
+        this.closeTypeArguments();
+        this.end();
+    }
+
+    private void openTypeArgument(){
+        this.builder.append(this.typeArguments == 0 ? "<" : ", ");
+        this.typeArguments++;
+    }
+
+    private void closeTypeArguments(){
+        if (this.typeArguments > 0) {
+            this.builder.append('>');
+            this.typeArguments = 0;
+        }
+    }
+
+    private void end(){
+        for (int i = 0; i < this.arrayDepth; i++) {
+            this.builder.append("[]");
+        }
+        this.type = this.builder.toString();
+        if (this.listener != null) {
+            this.listener.accept(this);
+        }
+    }
+
+    private static String getPrimitiveName(char descriptor){
+        switch (descriptor) {
+            case 'Z': return "boolean";
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'S': return "short";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'F': return "float";
+            case 'D': return "double";
+            case 'V': return "void";
+            default: throw new IllegalArgumentException("Not a primitive type descriptor: " + descriptor);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package net.sourceforge.pmd.examples.java.rules.checkpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ClassOrInterfaceExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.CompletedFile;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * State of an interrupted run, read from the journal of {@link ExtractionJournal}. A journaled file counts as
+ * done only if the output files of all its classes exist and are complete JSON. The output files which are
+ * not covered by such a file were written by a file in progress when the run was killed, they may be cut off
+ * and are deleted, so the file is extracted again from the start. The journal is rewritten with the verified
+ * files only.
+ */
+public class ExtractionCheckpoint {
+
+    private final ExtractionOptions options;
+    private final Set<String> completedFiles = new HashSet<String>(); // file_path relative to options.source
+    private int droppedEntries; // journal lines which were cut off or whose output is incomplete
+    private int removedOutputs;
+
+    private ExtractionCheckpoint(ExtractionOptions options){
+        this.options = options;
+    }
+
+    public static ExtractionCheckpoint load(ExtractionOptions options) throws IOException {
+        ExtractionCheckpoint checkpoint = new ExtractionCheckpoint(options);
+        checkpoint.verify(checkpoint.readJournal());
+        return checkpoint;
+    }
+
+    /**
+     * @return file_path -> entry, the last entry of a file wins
+     */
+    private Map<String, CompletedFile> readJournal() throws IOException {
+        Map<String, CompletedFile> entries = new LinkedHashMap<String, CompletedFile>();
+        File journalFile = OutputFolders.getMetaFile(this.options, ExtractionJournal.FILE_NAME);
+        if (!journalFile.isFile()) {
+            return entries;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    CompletedFile completedFile = mapper.readValue(line, CompletedFile.class);
+                    entries.put(completedFile.file_path, completedFile);
+                } catch (IOException e) {
+                    this.droppedEntries++; // the last line of a killed run may be cut off
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void verify(Map<String, CompletedFile> entries) throws IOException {
+        File destination = OutputFolders.getDestinationFolder(this.options);
+        ObjectMapper mapper = new ObjectMapper();
+        List<CompletedFile> verifiedEntries = new ArrayList<CompletedFile>();
+        Set<String> verifiedKeys = new HashSet<String>();
+        for (CompletedFile entry : entries.values()) {
+            boolean complete = true;
+            for (String classKey : entry.classKeys) {
+                if (!verifiedKeys.contains(classKey) && !isCompleteOutput(mapper, new File(destination, classKey + ".json"), classKey)) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (complete) {
+                verifiedEntries.add(entry);
+                verifiedKeys.addAll(entry.classKeys);
+                this.completedFiles.add(entry.file_path);
+            } else {
+                this.droppedEntries++;
+            }
+        }
+
+        File[] outputFiles = destination.listFiles();
+        if (outputFiles != null) {
+            for (File outputFile : outputFiles) {
+                String fileName = outputFile.getName();
+                if (outputFile.isFile() && fileName.endsWith(".json")
+                        && !verifiedKeys.contains(fileName.substring(0, fileName.length() - ".json".length()))) {
+                    Files.delete(outputFile.toPath());
+                    this.removedOutputs++;
+                }
+            }
+        }
+        this.rewriteJournal(mapper, verifiedEntries);
+    }
+
+    private static boolean isCompleteOutput(ObjectMapper mapper, File outputFile, String classKey){
+        if (!outputFile.isFile()) {
+            return false;
+        }
+        try {
+            JsonNode classNode = mapper.readTree(outputFile);
+            return classNode != null && classKey.equals(classNode.path("key").asText(null));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the journal atomically, so a run killed while resuming still finds a valid journal.
+     */
+    private void rewriteJournal(ObjectMapper mapper, List<CompletedFile> verifiedEntries) throws IOException {
+        File journalFile = OutputFolders.getMetaFile(this.options, ExtractionJournal.FILE_NAME);
+        if (!journalFile.isFile()) {
+            return;
+        }
+        Path rewrittenJournal = journalFile.toPath().resolveSibling(ExtractionJournal.FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(rewrittenJournal, StandardCharsets.UTF_8)) {
+            for (CompletedFile entry : verifiedEntries) {
+                writer.write(mapper.writeValueAsString(entry));
+                writer.newLine();
+            }
+        }
+        Files.move(rewrittenJournal, journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the java files below the source root which are not done yet, sorted
+     */
+    public List<Path> getRemainingFiles(Path sourceRoot) throws IOException {
+        try (Stream<Path> paths = Files.walk(sourceRoot)) {
+            return paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                    .filter(path -> !this.completedFiles.contains(ClassOrInterfaceExtractor.getRelativeFilePath(path.toString(), this.options.source)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public int getCompletedFileCount(){
+        return this.completedFiles.size();
+    }
+
+    public int getDroppedEntries(){
+        return this.droppedEntries;
+    }
+
+    public int getRemovedOutputs(){
+        return this.removedOutputs;
+    }
+}
@@ -0,0 +1,45 @@
+package net.sourceforge.pmd.examples.java.rules.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.CompletedFile;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Appends every completed file with the keys of its classes as one JSON line to ".extraction/journal.jsonl"
+ * in the destination. The line is written after the output files of the classes, so every file in the
+ * journal has its complete output, see {@link ExtractionCheckpoint}. The line is handed to the operating
+ * system before the next file starts, so it survives a killed JVM.
+ */
+public class ExtractionJournal implements Consumer<CompletedFile> {
+
+    public static final String FILE_NAME = "journal.jsonl";
+    private static final Object LOCK = new Object(); // the rule copies of all PMD threads append to the same file
+
+    private final File journalFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ExtractionJournal(ExtractionOptions options){
+        this.journalFile = OutputFolders.getMetaFile(options, FILE_NAME);
+    }
+
+    @Override
+    public void accept(CompletedFile completedFile) {
+        synchronized (LOCK) {
+            this.journalFile.getParentFile().mkdirs();
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(this.journalFile, true))) {
+                writer.write(this.mapper.writeValueAsString(completedFile));
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal the file " + completedFile.file_path, e); // resuming would repeat the file
+            }
+        }
+    }
+}
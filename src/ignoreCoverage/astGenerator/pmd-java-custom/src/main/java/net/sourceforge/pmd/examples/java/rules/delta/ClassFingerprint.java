@@ -0,0 +1,79 @@
+package net.sourceforge.pmd.examples.java.rules.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Semantic fingerprint of a parsed class or of one of its members: a hash over the JSON of the output file
+ * without the source positions and the file path. Formatting changes, moved code and moved files therefore
+ * keep the fingerprint, every change a detector can see changes it. The order of map entries does not matter.
+ */
+public class ClassFingerprint {
+
+    private static final String[] IGNORED_FIELDS = {"position", "file_path"};
+
+    private ClassFingerprint(){
+
+    }
+
+    public static String of(JsonNode node){
+        StringBuilder canonicalJson = new StringBuilder();
+        appendCanonical(node, canonicalJson);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonicalJson.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) { // 64 bit are plenty to tell the versions of a class apart
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void appendCanonical(JsonNode node, StringBuilder out){
+        if (node.isObject()) {
+            List<String> fieldNames = new ArrayList<String>();
+            Iterator<String> names = node.fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!isIgnored(name)) {
+                    fieldNames.add(name);
+                }
+            }
+            Collections.sort(fieldNames);
+            out.append('{');
+            for (String fieldName : fieldNames) {
+                out.append('"').append(fieldName).append("\":");
+                appendCanonical(node.get(fieldName), out);
+                out.append(',');
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            out.append('[');
+            for (JsonNode element : node) {
+                appendCanonical(element, out);
+                out.append(',');
+            }
+            out.append(']');
+        } else {
+            out.append(node.toString());
+        }
+    }
+
+    private static boolean isIgnored(String fieldName){
+        for (String ignoredField : IGNORED_FIELDS) {
+            if (ignoredField.equals(fieldName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
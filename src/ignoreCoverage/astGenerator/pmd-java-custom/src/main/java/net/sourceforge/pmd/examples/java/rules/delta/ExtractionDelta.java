@@ -0,0 +1,37 @@
+package net.sourceforge.pmd.examples.java.rules.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class level changes of an extraction compared to the extraction of a previous commit. Detection only has
+ * to re-check the pairs which involve an added or changed class.
+ */
+public class ExtractionDelta {
+
+    public String previousDestination;
+    public Map<String, String> addedClasses = new TreeMap<String, String>(); // class key -> fingerprint
+    public List<String> removedClasses = new ArrayList<String>();
+    public List<ChangedClass> changedClasses = new ArrayList<ChangedClass>();
+    public int unchangedClasses;
+
+    public ExtractionDelta(){
+
+    }
+
+    public static class ChangedClass {
+        public String key;
+        public String fingerprint;
+        public String previousFingerprint;
+        public boolean declarationChanged; // modifiers, supertypes or another property of the class itself
+        public List<String> addedMembers = new ArrayList<String>(); // keys of fields, methods, constructors and inner classes
+        public List<String> removedMembers = new ArrayList<String>();
+        public List<String> changedMembers = new ArrayList<String>(); // same key, but e.g. another type or modifier
+
+        public ChangedClass(){
+
+        }
+    }
+}
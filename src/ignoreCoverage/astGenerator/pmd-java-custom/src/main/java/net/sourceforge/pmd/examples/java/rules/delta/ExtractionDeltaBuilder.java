@@ -0,0 +1,180 @@
+package net.sourceforge.pmd.examples.java.rules.delta;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the parsed AST files of DESTINATION with the ones of a previous commit and writes the
+ * {@link ExtractionDelta} into ".extraction/delta.json". The fingerprints of all classes are written into
+ * ".extraction/fingerprints.json", so the delta of the next commit does not have to hash this extraction again.
+ */
+public class ExtractionDeltaBuilder {
+
+    public static final String DELTA_FILE_NAME = "delta.json";
+    public static final String FINGERPRINTS_FILE_NAME = "fingerprints.json";
+
+    private static final String[] MEMBER_MAPS = {"fields", "methods", "constructors"};
+    private static final String[] INNER_CLASS_MAPS = {"innerDefinedClasses", "innerDefinedInterfaces"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ExtractionDelta compute(File destination, File previousDestination) throws IOException {
+        Map<String, File> currentFiles = listClassFiles(destination);
+        Map<String, File> previousFiles = listClassFiles(previousDestination);
+        Map<String, String> currentFingerprints = this.computeFingerprints(currentFiles);
+        Map<String, String> previousFingerprints = this.readFingerprints(previousDestination, previousFiles);
+
+        ExtractionDelta delta = new ExtractionDelta();
+        delta.previousDestination = previousDestination.getPath();
+        for (Map.Entry<String, String> current : currentFingerprints.entrySet()) {
+            String classKey = current.getKey();
+            String previousFingerprint = previousFingerprints.get(classKey);
+            if (previousFingerprint == null) {
+                delta.addedClasses.put(classKey, current.getValue());
+            } else if (previousFingerprint.equals(current.getValue())) {
+                delta.unchangedClasses++;
+            } else {
+                delta.changedClasses.add(this.compareClass(classKey, currentFiles.get(classKey), previousFiles.get(classKey), current.getValue(), previousFingerprint));
+            }
+        }
+        for (String classKey : previousFingerprints.keySet()) {
+            if (!currentFingerprints.containsKey(classKey)) {
+                delta.removedClasses.add(classKey);
+            }
+        }
+
+        File metaFolder = new File(destination, OutputFolders.META_FOLDER_NAME);
+        metaFolder.mkdirs();
+        ObjectMapper writer = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        writer.writeValue(new File(metaFolder, DELTA_FILE_NAME), delta);
+        this.mapper.writeValue(new File(metaFolder, FINGERPRINTS_FILE_NAME), currentFingerprints);
+        return delta;
+    }
+
+    private ExtractionDelta.ChangedClass compareClass(String classKey, File currentFile, File previousFile, String fingerprint, String previousFingerprint) throws IOException {
+        JsonNode currentClass = this.mapper.readTree(currentFile);
+        JsonNode previousClass = this.mapper.readTree(previousFile);
+
+        ExtractionDelta.ChangedClass changedClass = new ExtractionDelta.ChangedClass();
+        changedClass.key = classKey;
+        changedClass.fingerprint = fingerprint;
+        changedClass.previousFingerprint = previousFingerprint;
+        changedClass.declarationChanged = !getDeclarationFingerprint(currentClass).equals(getDeclarationFingerprint(previousClass));
+
+        Map<String, String> currentMembers = new TreeMap<String, String>();
+        collectMembers(currentClass, currentMembers);
+        Map<String, String> previousMembers = new TreeMap<String, String>();
+        collectMembers(previousClass, previousMembers);
+        for (Map.Entry<String, String> member : currentMembers.entrySet()) {
+            String previousMember = previousMembers.get(member.getKey());
+            if (previousMember == null) {
+                changedClass.addedMembers.add(member.getKey());
+            } else if (!previousMember.equals(member.getValue())) {
+                changedClass.changedMembers.add(member.getKey());
+            }
+        }
+        for (String memberKey : previousMembers.keySet()) {
+            if (!currentMembers.containsKey(memberKey)) {
+                changedClass.removedMembers.add(memberKey);
+            }
+        }
+        return changedClass;
+    }
+
+    /**
+     * Collects the fingerprints of the fields, methods and constructors of the class and of its inner classes.
+     * Inner classes are members themselves, with the fingerprint of their declaration.
+     */
+    private static void collectMembers(JsonNode classNode, Map<String, String> members){
+        for (String memberMap : MEMBER_MAPS) {
+            Iterator<Map.Entry<String, JsonNode>> entries = classNode.path(memberMap).fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> member = entries.next();
+                members.put(member.getKey(), ClassFingerprint.of(member.getValue()));
+            }
+        }
+        for (String innerClassMap : INNER_CLASS_MAPS) {
+            Iterator<Map.Entry<String, JsonNode>> entries = classNode.path(innerClassMap).fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> innerClass = entries.next();
+                members.put(innerClass.getKey(), getDeclarationFingerprint(innerClass.getValue()));
+                collectMembers(innerClass.getValue(), members);
+            }
+        }
+    }
+
+    private static String getDeclarationFingerprint(JsonNode classNode){
+        ObjectNode declaration = ((ObjectNode) classNode).deepCopy();
+        declaration.remove(Arrays.asList(MEMBER_MAPS));
+        declaration.remove(Arrays.asList(INNER_CLASS_MAPS));
+        return ClassFingerprint.of(declaration);
+    }
+
+    private Map<String, String> computeFingerprints(Map<String, File> classFiles) throws IOException {
+        Map<String, String> fingerprints = new TreeMap<String, String>();
+        for (Map.Entry<String, File> classFile : classFiles.entrySet()) {
+            fingerprints.put(classFile.getKey(), ClassFingerprint.of(this.mapper.readTree(classFile.getValue())));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Uses the fingerprints the previous delta wrote, as long as they belong to the same class files: the same
+     * class keys and no class file written after them, e.g. by another extraction into the same destination.
+     */
+    private Map<String, String> readFingerprints(File destination, Map<String, File> classFiles) throws IOException {
+        File fingerprintsFile = new File(new File(destination, OutputFolders.META_FOLDER_NAME), FINGERPRINTS_FILE_NAME);
+        if (fingerprintsFile.isFile() && isNewerThanAll(fingerprintsFile, classFiles.values())) {
+            Map<String, String> fingerprints = this.mapper.readValue(fingerprintsFile, new TypeReference<TreeMap<String, String>>() { });
+            if (fingerprints.keySet().equals(classFiles.keySet())) {
+                return fingerprints;
+            }
+        }
+        return this.computeFingerprints(classFiles);
+    }
+
+    /**
+     * A file written in the same millisecond as the fingerprints counts as newer.
+     */
+    private static boolean isNewerThanAll(File fingerprintsFile, Collection<File> classFiles){
+        long fingerprintsModified = fingerprintsFile.lastModified();
+        for (File classFile : classFiles) {
+            if (classFile.lastModified() >= fingerprintsModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return class key -> "[classKey].json" file, like the ParserHelper of the analysis reads them
+     */
+    private static Map<String, File> listClassFiles(File destination) throws IOException {
+        if (!destination.isDirectory()) {
+            throw new IOException("Not a folder with parsed AST files: " + destination.getAbsolutePath());
+        }
+        Map<String, File> classFiles = new TreeMap<String, File>();
+        File[] files = destination.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (file.isFile() && fileName.endsWith(".json")) {
+                    classFiles.put(fileName.substring(0, fileName.length() - ".json".length()), file);
+                }
+            }
+        }
+        return classFiles;
+    }
+}
@@ -0,0 +1,89 @@
+package net.sourceforge.pmd.examples.java.rules.estimate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ".extraction/estimate.json": the predicted cost of extracting SOURCE, written by {@link ExtractionCostEstimator}
+ * before the run. A scheduler sizes its workers with it, e.g. the number of threads from cpuMillis and longestFileMillis.
+ * peakHeapBytes is about the least heap the run fits in, the garbage collector needs some headroom above it.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CostEstimate {
+
+    public static final String FILE_NAME = "estimate.json";
+
+    /**
+     * A predicted value and the bounds of its 95% confidence interval, never below 0.
+     */
+    public static class Interval {
+        public long estimate;
+        public long lower;
+        public long upper;
+
+        public Interval(){
+
+        }
+
+        static Interval of(double estimate, double lower, double upper){
+            Interval interval = new Interval();
+            interval.estimate = Math.max(0, Math.round(estimate));
+            interval.lower = Math.max(0, Math.round(lower));
+            interval.upper = Math.max(0, Math.round(upper));
+            return interval;
+        }
+    }
+
+    /**
+     * Files of a size range, the sample of a stratum is drawn at random from its files.
+     */
+    public static class Stratum {
+        public long minBytes;
+        public long maxBytes;
+        public int files;
+        public long bytes;
+        public int sampledFiles;
+        public double nanosPerByte; // extraction time per byte of the sampled files
+
+        public Stratum(){
+
+        }
+    }
+
+    public int sourceFiles;
+    public long sourceBytes;
+    public int sampledFiles;
+    public long sampledBytes;
+    public String largestFile; // relative to SOURCE, always sampled, its extraction is the longest a worker does in one go
+    public long largestFileBytes;
+    public int threads; // files extracted at the same time: options.threads, at most the available processors
+    public long setupMillis; // PMD starts and the JIT warms up: what the first extraction of the sample took longer
+    public Interval cpuMillis; // extraction of all files one after another, without the setup
+    public Interval longestFileMillis;
+    public Interval wallMillis; // setupMillis + the longer of cpuMillis / threads and longestFileMillis
+    public Interval allocatedBytes; // by the extracting threads, garbage included, null if the JVM cannot measure it
+    public long baselineHeapBytes; // live heap of PMD and the run-level state while the files are extracted
+    public Interval peakHeapBytes; // baselineHeapBytes + the allocations of the largest files extracted at the same time
+    public Interval outputFiles; // [classKey].json files, one per top level class
+    public Interval outputBytes; // of the [classKey].json files (and the reporting details of the detection projection)
+    public List<Stratum> strata = new ArrayList<Stratum>();
+    public long estimateMillis; // time the estimate took
+
+    public CostEstimate(){
+
+    }
+
+    public void write(ExtractionOptions options) throws IOException {
+        File estimateFile = OutputFolders.getMetaFile(options, FILE_NAME);
+        estimateFile.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(estimateFile, this);
+    }
+}
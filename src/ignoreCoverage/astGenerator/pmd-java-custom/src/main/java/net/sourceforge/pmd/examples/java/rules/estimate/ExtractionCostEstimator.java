@@ -0,0 +1,417 @@
+package net.sourceforge.pmd.examples.java.rules.estimate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ClassOrInterfaceExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.CompletedFile;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputProjection;
+import net.sourceforge.pmd.examples.java.rules.extraction.SkippedFile;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.projection.DetectionProjection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Predicts the wall time, the peak heap and the output of the extraction of SOURCE from a sample of its files,
+ * without writing any output ({@code --estimate}):
+ * <ul>
+ * <li>the java files are ordered by size. The largest file is always sampled, the others are split into
+ * {@value #STRATA} strata with the same number of files and every stratum gets its share of options.estimateSampleFiles,
+ * at least 2 files, drawn at random with a fixed seed. The same tree always gets the same sample.</li>
+ * <li>the sample is extracted like in a run, but on one thread and into a consumer which only serializes the classes
+ * to count their bytes. The time and allocations of a file count from the start of its parse.</li>
+ * <li>every total is a ratio estimate per byte in each stratum. Its 95% confidence interval comes from the
+ * residuals of the sampled files (normal approximation).</li>
+ * </ul>
+ * The sample is extracted twice. The second extraction is measured, after the first one let the JIT compile the hot
+ * code, as in most of a run. What the first extraction took longer is the setup of a run: PMD starts and the JIT
+ * warms up. The threads of a run share the memory bandwidth and the garbage collector, so with many threads the wall time
+ * tends to be above the estimate. The peak heap is the live heap after the first file, with PMD started, plus the
+ * allocations of the largest files for the worst case that every thread extracts one of them at the same time.
+ */
+public class ExtractionCostEstimator {
+
+    static final int STRATA = 5;
+    private static final long SEED = 46L;
+    private static final double Z_95 = 1.96;
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final ExtractionOptions options;
+
+    /**
+     * A java file of SOURCE and, once it is extracted, what it cost.
+     */
+    static class SourceFile {
+        final Path path;
+        final String relativePath;
+        final long bytes;
+        boolean measured;
+        long nanos;
+        long allocatedBytes; // -1 if the JVM cannot measure it
+        long outputFiles;
+        long outputBytes;
+
+        SourceFile(Path path, String relativePath, long bytes){
+            this.path = path;
+            this.relativePath = relativePath;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Files of a size range and the sample drawn from them.
+     */
+    static class SampleStratum {
+        final List<SourceFile> files = new ArrayList<SourceFile>();
+        final List<SourceFile> sample = new ArrayList<SourceFile>();
+    }
+
+    public ExtractionCostEstimator(ExtractionOptions options){
+        this.options = options;
+    }
+
+    public CostEstimate estimate() throws IOException {
+        long startNanos = System.nanoTime();
+        List<SourceFile> files = listFiles(Paths.get(this.options.source), this.options.source);
+        List<SampleStratum> strata = stratify(files, this.options.estimateSampleFiles);
+        List<SourceFile> sample = new ArrayList<SourceFile>();
+        for (SampleStratum stratum : strata) {
+            sample.addAll(stratum.sample);
+        }
+        sample.sort(Comparator.comparing(file -> file.relativePath));
+
+        ExtractionOptions sampleOptions = this.options.copy();
+        sampleOptions.threads = 1; // the time and the allocations of a file are those of the thread extracting it
+        Measurement measurement = new Measurement(sampleOptions, sample);
+        long coldNanos = measurement.extract(sample);
+        for (SourceFile file : sample) {
+            file.measured = false;
+        }
+        measurement.extract(sample);
+        long warmFileNanos = 0;
+        for (SourceFile file : sample) {
+            warmFileNanos += file.nanos;
+        }
+
+        CostEstimate estimate = this.toEstimate(files, strata, measurement, Math.max(0, coldNanos - warmFileNanos));
+        estimate.estimateMillis = Math.round((System.nanoTime() - startNanos) / NANOS_PER_MILLI);
+        return estimate;
+    }
+
+    private CostEstimate toEstimate(List<SourceFile> files, List<SampleStratum> strata, Measurement measurement, long setupNanos){
+        CostEstimate estimate = new CostEstimate();
+        estimate.sourceFiles = files.size();
+        for (SourceFile file : files) {
+            estimate.sourceBytes += file.bytes;
+        }
+        Map<SourceFile, SampleStratum> strataOfFiles = new HashMap<SourceFile, SampleStratum>();
+        for (SampleStratum stratum : strata) {
+            for (SourceFile file : stratum.files) {
+                strataOfFiles.put(file, stratum);
+            }
+            for (SourceFile file : stratum.sample) {
+                estimate.sampledFiles++;
+                estimate.sampledBytes += file.bytes;
+            }
+            CostEstimate.Stratum stratumEstimate = new CostEstimate.Stratum();
+            stratumEstimate.minBytes = stratum.files.get(0).bytes;
+            stratumEstimate.maxBytes = stratum.files.get(stratum.files.size() - 1).bytes;
+            stratumEstimate.files = stratum.files.size();
+            stratumEstimate.bytes = sumBytes(stratum.files);
+            stratumEstimate.sampledFiles = stratum.sample.size();
+            stratumEstimate.nanosPerByte = new RatioEstimate(stratum, file -> file.nanos).ratio;
+            estimate.strata.add(stratumEstimate);
+        }
+        estimate.threads = Math.max(1, Math.min(this.options.threads, Runtime.getRuntime().availableProcessors()));
+        if (!files.isEmpty()) {
+            SourceFile largestFile = files.get(files.size() - 1);
+            estimate.largestFile = largestFile.relativePath;
+            estimate.largestFileBytes = largestFile.bytes;
+        }
+
+        double[] cpuNanos = estimateTotal(strata, file -> file.nanos);
+        estimate.cpuMillis = toMillis(cpuNanos);
+        estimate.outputFiles = toInterval(estimateTotal(strata, file -> file.outputFiles));
+        estimate.outputBytes = toInterval(estimateTotal(strata, file -> file.outputBytes));
+        // the longest file is one of the largest files of a stratum
+        double[] longestFile = {0, 0, 0};
+        for (SampleStratum stratum : strata) {
+            double[] largestFileOfStratum = predict(strataOfFiles, stratum.files.get(stratum.files.size() - 1), file -> file.nanos);
+            if (largestFileOfStratum[0] > longestFile[0]) {
+                longestFile = largestFileOfStratum;
+            }
+        }
+        estimate.longestFileMillis = toMillis(longestFile);
+        estimate.setupMillis = Math.round(setupNanos / NANOS_PER_MILLI);
+        double[] wallNanos = new double[3];
+        for (int i = 0; i < wallNanos.length; i++) {
+            wallNanos[i] = setupNanos + Math.max(cpuNanos[i] / estimate.threads, longestFile[i]);
+        }
+        estimate.wallMillis = toMillis(wallNanos);
+
+        if (measurement.measuresAllocations()) {
+            estimate.allocatedBytes = toInterval(estimateTotal(strata, file -> file.allocatedBytes));
+            estimate.baselineHeapBytes = measurement.baselineHeapBytes;
+            // in the worst case every thread extracts one of the largest files at the same time
+            double[] peakHeap = {estimate.baselineHeapBytes, estimate.baselineHeapBytes, estimate.baselineHeapBytes};
+            for (int i = files.size() - 1; i >= 0 && i >= files.size() - estimate.threads; i--) {
+                double[] allocation = predict(strataOfFiles, files.get(i), file -> file.allocatedBytes);
+                for (int j = 0; j < peakHeap.length; j++) {
+                    peakHeap[j] += allocation[j];
+                }
+            }
+            estimate.peakHeapBytes = toInterval(peakHeap);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the java files of the source tree, ordered by size and relative path
+     */
+    static List<SourceFile> listFiles(Path sourceRoot, String source) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(sourceRoot)) {
+            paths = walk.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).collect(Collectors.toList());
+        }
+        List<SourceFile> files = new ArrayList<SourceFile>();
+        for (Path path : paths) {
+            files.add(new SourceFile(path, ClassOrInterfaceExtractor.getRelativeFilePath(path.toString(), source), Files.size(path)));
+        }
+        files.sort(Comparator.comparingLong((SourceFile file) -> file.bytes).thenComparing(file -> file.relativePath));
+        return files;
+    }
+
+    /**
+     * @param files ordered by size
+     * @return the strata from the smallest to the largest files, the last one only has the largest file
+     */
+    static List<SampleStratum> stratify(List<SourceFile> files, int sampleFiles){
+        List<SampleStratum> strata = new ArrayList<SampleStratum>();
+        if (files.isEmpty()) {
+            return strata;
+        }
+        Random random = new Random(SEED);
+        int otherFiles = files.size() - 1;
+        int otherSampleFiles = Math.max(0, sampleFiles - 1);
+        for (int i = 0; i < STRATA; i++) {
+            int from = (int) ((long) otherFiles * i / STRATA);
+            int to = (int) ((long) otherFiles * (i + 1) / STRATA);
+            if (from == to) {
+                continue;
+            }
+            SampleStratum stratum = new SampleStratum();
+            stratum.files.addAll(files.subList(from, to));
+            int stratumSampleFiles = (int) Math.round((double) otherSampleFiles * stratum.files.size() / otherFiles);
+            stratumSampleFiles = Math.min(stratum.files.size(), Math.max(2, stratumSampleFiles));
+            List<SourceFile> shuffledFiles = new ArrayList<SourceFile>(stratum.files);
+            Collections.shuffle(shuffledFiles, random);
+            stratum.sample.addAll(shuffledFiles.subList(0, stratumSampleFiles));
+            strata.add(stratum);
+        }
+        SampleStratum largestFile = new SampleStratum();
+        largestFile.files.add(files.get(otherFiles));
+        largestFile.sample.add(files.get(otherFiles));
+        strata.add(largestFile);
+        return strata;
+    }
+
+    /**
+     * @return the estimate, the lower and the upper bound of the total of the value over all files
+     */
+    static double[] estimateTotal(List<SampleStratum> strata, ToLongFunction<SourceFile> value){
+        double total = 0;
+        double variance = 0;
+        for (SampleStratum stratum : strata) {
+            RatioEstimate ratioEstimate = new RatioEstimate(stratum, value);
+            total += ratioEstimate.total;
+            variance += ratioEstimate.totalVariance;
+        }
+        double halfWidth = Z_95 * Math.sqrt(variance);
+        return new double[]{total, total - halfWidth, total + halfWidth};
+    }
+
+    /**
+     * @return the measured value of a sampled file, else the estimate and the bounds from the ratio of its stratum
+     */
+    private static double[] predict(Map<SourceFile, SampleStratum> strataOfFiles, SourceFile file, ToLongFunction<SourceFile> value){
+        if (file.measured) {
+            double measuredValue = value.applyAsLong(file);
+            return new double[]{measuredValue, measuredValue, measuredValue};
+        }
+        RatioEstimate ratioEstimate = new RatioEstimate(strataOfFiles.get(file), value);
+        double size = ratioEstimate.perFile ? 1 : file.bytes;
+        double halfWidth = Z_95 * ratioEstimate.ratioStandardError * size;
+        return new double[]{ratioEstimate.ratio * size, ratioEstimate.ratio * size - halfWidth, ratioEstimate.ratio * size + halfWidth};
+    }
+
+    /**
+     * Separate ratio estimator of one stratum: value per byte of the measured sample times the bytes of the stratum.
+     * A sample of empty files estimates the value per file instead.
+     */
+    static class RatioEstimate {
+        final boolean perFile;
+        final double ratio;
+        final double ratioStandardError;
+        final double total;
+        final double totalVariance;
+
+        RatioEstimate(SampleStratum stratum, ToLongFunction<SourceFile> value){
+            List<SourceFile> measuredFiles = stratum.sample.stream().filter(file -> file.measured).collect(Collectors.toList());
+            int n = measuredFiles.size();
+            long sampleBytes = sumBytes(measuredFiles);
+            this.perFile = sampleBytes == 0;
+            double sampleSize = this.perFile ? n : sampleBytes;
+            double sampleValue = 0;
+            for (SourceFile file : measuredFiles) {
+                sampleValue += value.applyAsLong(file);
+            }
+            this.ratio = sampleSize > 0 ? sampleValue / sampleSize : 0;
+            double stratumSize = this.perFile ? stratum.files.size() : sumBytes(stratum.files);
+            this.total = this.ratio * stratumSize;
+            if (n < 2) {
+                this.ratioStandardError = 0;
+                this.totalVariance = 0; // a stratum of one file is the file itself
+                return;
+            }
+            double squaredResiduals = 0;
+            for (SourceFile file : measuredFiles) {
+                double residual = value.applyAsLong(file) - this.ratio * (this.perFile ? 1 : file.bytes);
+                squaredResiduals += residual * residual;
+            }
+            int stratumFiles = stratum.files.size();
+            double finitePopulationCorrection = 1.0 - (double) n / stratumFiles;
+            double residualVariance = squaredResiduals / (n - 1);
+            this.totalVariance = (double) stratumFiles * stratumFiles * finitePopulationCorrection * residualVariance / n;
+            double meanSize = sampleSize / n;
+            this.ratioStandardError = Math.sqrt(finitePopulationCorrection * residualVariance / n) / meanSize;
+        }
+    }
+
+    private static long sumBytes(List<SourceFile> files){
+        long bytes = 0;
+        for (SourceFile file : files) {
+            bytes += file.bytes;
+        }
+        return bytes;
+    }
+
+    private static CostEstimate.Interval toInterval(double[] values){
+        return CostEstimate.Interval.of(values[0], values[1], values[2]);
+    }
+
+    private static CostEstimate.Interval toMillis(double[] nanos){
+        return CostEstimate.Interval.of(nanos[0] / NANOS_PER_MILLI, nanos[1] / NANOS_PER_MILLI, nanos[2] / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Extracts sampled files and records their cost. The rule runs on a single PMD thread, which calls the consumer
+     * for the classes of a file and then completes the file, so the counters of the current file need no lock.
+     */
+    private static class Measurement implements Consumer<ClassOrInterfaceTypeContext> {
+
+        private final ExtractionOptions options;
+        private final Map<String, SourceFile> sampleByPath = new HashMap<String, SourceFile>();
+        private final DetectionProjection projection; // null: the classes are written as they are
+        private final ObjectMapper detailsMapper = new ObjectMapper();
+        private long fileOutputFiles;
+        private long fileOutputBytes;
+        long baselineHeapBytes = -1; // measured once a file is done, while PMD still holds its state
+
+        Measurement(ExtractionOptions options, List<SourceFile> sample){
+            this.options = options;
+            for (SourceFile file : sample) {
+                this.sampleByPath.put(file.relativePath, file);
+            }
+            this.projection = options.projection == OutputProjection.DETECTION ? new DetectionProjection(options) : null;
+        }
+
+        /**
+         * @return the nanoseconds of the whole extraction, including the setup of PMD
+         */
+        long extract(List<SourceFile> files){
+            List<Path> paths = new ArrayList<Path>();
+            for (SourceFile file : files) {
+                paths.add(file.path);
+            }
+            DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(this.options);
+            extractor.setCompletedFileListener(this::completeFile);
+            extractor.setSkippedFileListener(this::skipFile);
+            long startNanos = System.nanoTime();
+            extractor.extract(paths, this);
+            return System.nanoTime() - startNanos;
+        }
+
+        boolean measuresAllocations(){
+            for (SourceFile file : this.sampleByPath.values()) {
+                if (file.measured && file.allocatedBytes < 0) {
+                    return false;
+                }
+            }
+            return this.baselineHeapBytes >= 0;
+        }
+
+        @Override
+        public void accept(ClassOrInterfaceTypeContext classContext) {
+            if (this.projection != null) {
+                try {
+                    this.fileOutputBytes += this.detailsMapper.writeValueAsBytes(this.projection.project(classContext)).length;
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            this.fileOutputFiles++;
+            this.fileOutputBytes += ClassContextFileWriter.convertToJson(classContext).getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        private void completeFile(CompletedFile completedFile){
+            SourceFile file = this.sampleByPath.get(completedFile.file_path);
+            if (file != null) {
+                file.measured = true;
+                file.nanos = completedFile.elapsedNanos;
+                file.allocatedBytes = completedFile.allocatedBytes;
+                file.outputFiles = this.fileOutputFiles;
+                file.outputBytes = this.fileOutputBytes;
+            }
+            this.fileOutputFiles = 0;
+            this.fileOutputBytes = 0;
+            if (this.baselineHeapBytes < 0) {
+                System.gc();
+                this.baselineHeapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            }
+        }
+
+        /**
+         * Files which PMD could not parse are not completed, their cost until the parse error counts.
+         */
+        private void skipFile(SkippedFile skippedFile){
+            SourceFile file = this.sampleByPath.get(skippedFile.file_path);
+            if (file != null && !file.measured) {
+                file.measured = true;
+                file.nanos = skippedFile.elapsedMillis * 1000000L;
+                file.allocatedBytes = skippedFile.allocatedBytes;
+            }
+            this.fileOutputFiles = 0;
+            this.fileOutputBytes = 0;
+        }
+    }
+}
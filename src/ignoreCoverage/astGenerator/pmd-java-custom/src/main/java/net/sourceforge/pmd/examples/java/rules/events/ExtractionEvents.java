@@ -0,0 +1,106 @@
+package net.sourceforge.pmd.examples.java.rules.events;
+
+import java.nio.file.Path;
+
+/**
+ * Custom Java Flight Recorder events of the extraction phases: parse and extraction of a file, extraction of
+ * a class, resolution of a type name and the write of the output. Every event has its duration and sizes.
+ * <p>
+ * The project is compiled for Java 8, which has no jdk.jfr API, so the events live in the package
+ * {@code events.jfr} which is compiled for Java 11 and loaded only if the JVM supports it. Otherwise this
+ * class records nothing. While no recording is running, a begin method returns null and the matching end
+ * method returns at once.
+ */
+public class ExtractionEvents {
+
+    private static final String JFR_IMPLEMENTATION = "net.sourceforge.pmd.examples.java.rules.events.jfr.JfrExtractionEvents";
+    private static final ExtractionEvents INSTANCE = load();
+
+    /**
+     * A started event, ended by the end method of the same phase.
+     */
+    public interface Span {
+    }
+
+    protected ExtractionEvents(){
+
+    }
+
+    public static ExtractionEvents get(){
+        return INSTANCE;
+    }
+
+    private static ExtractionEvents load(){
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (ExtractionEvents) Class.forName(JFR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ExtractionEvents(); // a Java 8 JVM without flight recorder
+        }
+    }
+
+    /**
+     * @return false if the JVM has no flight recorder, then nothing is recorded and no recording can be started
+     */
+    public boolean isRecordingAvailable(){
+        return false;
+    }
+
+    /**
+     * Starts a continuous recording with the "default" profile, which also records the extraction events.
+     * The recording keeps the last 30 minutes and is written to the destination when the JVM exits.
+     *
+     * @throws IllegalStateException if {@link #isRecordingAvailable()} is false
+     */
+    public void startRecording(Path destination){
+        throw new IllegalStateException("Java Flight Recorder is not available in this JVM");
+    }
+
+    /**
+     * Called before PMD parses the file, on the thread which parses it.
+     */
+    public void beginFileParse(String filePath){
+    }
+
+    /**
+     * Ends the parse started on this thread, if any.
+     *
+     * @param parsed false if PMD could not parse the file
+     */
+    public void endFileParse(long characters, boolean parsed){
+    }
+
+    public Span beginFileExtraction(){
+        return null;
+    }
+
+    /**
+     * @param outcome "extracted", "recovered" by the retry mode or "skipped"
+     */
+    public void endFileExtraction(Span span, String filePath, String mode, int classes, String outcome){
+    }
+
+    public Span beginClassExtraction(){
+        return null;
+    }
+
+    /**
+     * @param nestingDepth 0 for a top level class, 1 for a class defined in it, ...
+     */
+    public void endClassExtraction(Span span, String classKey, int fields, int methods, int constructors, int innerClasses, int nestingDepth){
+    }
+
+    public Span beginTypeResolution(){
+        return null;
+    }
+
+    public void endTypeResolution(Span span, String typeName, String mode){
+    }
+
+    public Span beginOutputWrite(){
+        return null;
+    }
+
+    public void endOutputWrite(Span span, String classKey, String transport, long bytes){
+    }
+}
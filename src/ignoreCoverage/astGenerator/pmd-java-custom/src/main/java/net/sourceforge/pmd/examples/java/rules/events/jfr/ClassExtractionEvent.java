@@ -0,0 +1,35 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+
+@Name("dataclumps.ClassExtraction")
+@Label("Class Extraction")
+@Description("Extraction of a class or interface, the duration of an outer class includes its inner classes")
+@Category({"Data Clumps", "Extraction"})
+@StackTrace(false)
+class ClassExtractionEvent extends jdk.jfr.Event implements ExtractionEvents.Span {
+
+    @Label("Class Key")
+    String classKey;
+
+    @Label("Fields")
+    int fields;
+
+    @Label("Methods")
+    int methods;
+
+    @Label("Constructors")
+    int constructors;
+
+    @Label("Inner Classes")
+    int innerClasses;
+
+    @Label("Nesting Depth")
+    @Description("0 for a top level class")
+    int nestingDepth;
+}
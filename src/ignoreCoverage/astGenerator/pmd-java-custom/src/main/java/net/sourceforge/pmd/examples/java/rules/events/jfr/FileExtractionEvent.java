@@ -0,0 +1,30 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+
+@Name("dataclumps.FileExtraction")
+@Label("File Extraction")
+@Description("MyRule extracts the classes of a parsed java file, including a retry")
+@Category({"Data Clumps", "Extraction"})
+@StackTrace(false)
+class FileExtractionEvent extends jdk.jfr.Event implements ExtractionEvents.Span {
+
+    @Label("File Path")
+    String filePath;
+
+    @Label("Extraction Mode")
+    String mode;
+
+    @Label("Classes")
+    @Description("Top level classes of the file")
+    int classes;
+
+    @Label("Outcome")
+    @Description("extracted, recovered by the retry mode or skipped")
+    String outcome;
+}
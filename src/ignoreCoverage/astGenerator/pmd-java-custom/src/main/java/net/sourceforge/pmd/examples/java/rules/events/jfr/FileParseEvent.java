@@ -0,0 +1,25 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("dataclumps.FileParse")
+@Label("File Parse")
+@Description("PMD parses a java file, from the start of the file analysis until the rule visits the compilation unit")
+@Category({"Data Clumps", "Extraction"})
+@StackTrace(false)
+class FileParseEvent extends jdk.jfr.Event {
+
+    @Label("File Path")
+    String filePath;
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Parsed")
+    @Description("false if PMD could not parse the file")
+    boolean parsed;
+}
@@ -0,0 +1,176 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * The flight recorder events, loaded by {@link ExtractionEvents#get()}. This package is compiled for Java 11.
+ */
+public class JfrExtractionEvents extends ExtractionEvents {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private final ThreadLocal<FileParseEvent> fileParseEvents = new ThreadLocal<FileParseEvent>(); // PMD parses a file on one thread
+
+    public JfrExtractionEvents(){
+
+    }
+
+    @Override
+    public boolean isRecordingAvailable(){
+        return true;
+    }
+
+    @Override
+    public void startRecording(Path destination){
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("Data Clumps Extraction");
+            recording.setToDisk(true);
+            recording.setMaxAge(MAX_AGE);
+            recording.setDestination(destination);
+            recording.setDumpOnExit(true);
+            recording.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void beginFileParse(String filePath){
+        FileParseEvent event = new FileParseEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.filePath = filePath;
+        event.begin();
+        this.fileParseEvents.set(event);
+    }
+
+    @Override
+    public void endFileParse(long characters, boolean parsed){
+        FileParseEvent event = this.fileParseEvents.get();
+        if (event == null) {
+            return;
+        }
+        this.fileParseEvents.remove();
+        event.end();
+        if (event.shouldCommit()) {
+            event.characters = characters;
+            event.parsed = parsed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginFileExtraction(){
+        FileExtractionEvent event = new FileExtractionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endFileExtraction(Span span, String filePath, String mode, int classes, String outcome){
+        if (span == null) {
+            return;
+        }
+        FileExtractionEvent event = (FileExtractionEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.filePath = filePath;
+            event.mode = mode;
+            event.classes = classes;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginClassExtraction(){
+        ClassExtractionEvent event = new ClassExtractionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endClassExtraction(Span span, String classKey, int fields, int methods, int constructors, int innerClasses, int nestingDepth){
+        if (span == null) {
+            return;
+        }
+        ClassExtractionEvent event = (ClassExtractionEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.classKey = classKey;
+            event.fields = fields;
+            event.methods = methods;
+            event.constructors = constructors;
+            event.innerClasses = innerClasses;
+            event.nestingDepth = nestingDepth;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginTypeResolution(){
+        TypeResolutionEvent event = new TypeResolutionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endTypeResolution(Span span, String typeName, String mode){
+        if (span == null) {
+            return;
+        }
+        TypeResolutionEvent event = (TypeResolutionEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.typeName = typeName;
+            event.mode = mode;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginOutputWrite(){
+        OutputWriteEvent event = new OutputWriteEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endOutputWrite(Span span, String classKey, String transport, long bytes){
+        if (span == null) {
+            return;
+        }
+        OutputWriteEvent event = (OutputWriteEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.classKey = classKey;
+            event.transport = transport;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
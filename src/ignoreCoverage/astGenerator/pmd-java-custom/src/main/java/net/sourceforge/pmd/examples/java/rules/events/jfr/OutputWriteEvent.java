@@ -0,0 +1,27 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+
+@Name("dataclumps.OutputWrite")
+@Label("Output Write")
+@Description("Serialization and write of an extracted class, including the wait for a slow stream reader")
+@Category({"Data Clumps", "Output"})
+@StackTrace(false)
+class OutputWriteEvent extends jdk.jfr.Event implements ExtractionEvents.Span {
+
+    @Label("Class Key")
+    String classKey;
+
+    @Label("Transport")
+    String transport;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+}
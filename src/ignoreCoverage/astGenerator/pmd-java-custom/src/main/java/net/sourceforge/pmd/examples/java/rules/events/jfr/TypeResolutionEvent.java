@@ -0,0 +1,28 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+
+/**
+ * Type names are resolved for every field, parameter and return type, so only the slow resolutions are
+ * recorded by default. A lower threshold can be set in a custom .jfc file.
+ */
+@Name("dataclumps.TypeResolution")
+@Label("Type Name Resolution")
+@Description("Resolution of the qualified name of a field, parameter or return type")
+@Category({"Data Clumps", "Extraction"})
+@StackTrace(false)
+@Threshold("1 ms")
+class TypeResolutionEvent extends jdk.jfr.Event implements ExtractionEvents.Span {
+
+    @Label("Type Name")
+    String typeName;
+
+    @Label("Extraction Mode")
+    String mode;
+}
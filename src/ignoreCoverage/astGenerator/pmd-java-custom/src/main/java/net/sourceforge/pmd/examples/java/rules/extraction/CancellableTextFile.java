@@ -0,0 +1,63 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.document.TextFileContent;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A java file which PMD can no longer read once the extraction is cancelled, so the files PMD has not started yet
+ * fail right away instead of being parsed. PMD has no other way to stop an analysis: it processes every file and
+ * only reports the exceptions of a file.
+ */
+class CancellableTextFile implements TextFile {
+
+    private final TextFile file;
+    private final BooleanSupplier cancelled;
+
+    CancellableTextFile(TextFile file, BooleanSupplier cancelled){
+        this.file = file;
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public LanguageVersion getLanguageVersion(){
+        return this.file.getLanguageVersion();
+    }
+
+    @Override
+    public FileId getFileId(){
+        return this.file.getFileId();
+    }
+
+    @Override
+    public TextFileContent readContents() throws IOException {
+        if (this.cancelled.getAsBoolean()) {
+            throw new IOException("The extraction was cancelled");
+        }
+        return this.file.readContents();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof CancellableTextFile && this.file.equals(((CancellableTextFile) other).file);
+    }
+
+    @Override
+    public int hashCode(){
+        return this.file.hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return this.file.toString();
+    }
+}
@@ -0,0 +1,931 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.*;
+import net.sourceforge.pmd.lang.ast.AstInfo;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.java.ast.*;
+import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
+import net.sourceforge.pmd.lang.java.types.JArrayType;
+import net.sourceforge.pmd.lang.java.types.JClassType;
+import net.sourceforge.pmd.lang.java.types.JIntersectionType;
+import net.sourceforge.pmd.lang.java.types.JTypeMirror;
+import net.sourceforge.pmd.lang.java.types.JTypeVar;
+import net.sourceforge.pmd.lang.java.types.JWildcardType;
+import net.sourceforge.pmd.lang.java.types.TypePrettyPrint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts the {@link ClassOrInterfaceTypeContext} of a class or interface declaration.
+ * One instance handles one compilation unit at a time, since the package name and the file path
+ * are remembered for the type name qualification.
+ * <p>
+ * A compilation unit with many type declarations, like a generated parser, is extracted in parallel: every
+ * class or interface becomes a fork-join task with its own forked extractor, and the results are put together
+ * in the order of the declarations, so the output is the same as on one thread. PMD resolves the types of the
+ * AST lazily and without synchronization, therefore the declared types are resolved on the calling thread
+ * before the tasks are forked. The tasks only read them and the method bodies are never resolved.
+ */
+public class ClassOrInterfaceExtractor {
+
+    private static final Pattern UNRESOLVED_TYPE = Pattern.compile("\\*([\\w$]+(?:\\.[\\w$]+)*)"); // *Name, *a.b.Name or *Name.Member
+
+    private final ExtractionOptions options;
+    private String filePath = "";
+    private String packageName = "";
+    private ExtractionMode mode;
+    private FileBudget budget; // null: no budget
+    private StructuralTypeQualifier structuralTypeQualifier; // of the current compilation unit in the STRUCTURAL mode
+    private PackageMemberIndex packageMemberIndex; // null: on-demand imports are ignored
+    private List<String> onDemandImports = new ArrayList<String>(); // of the current compilation unit, only with a package member index
+    private Set<String> singleTypeImports = new HashSet<String>(); // simple names imported by name, only with a package member index
+    private final TypeHierarchyResolver typeHierarchyResolver = new TypeHierarchyResolver(this::getQualifiedNameUnsafe);
+    private List<TypeHierarchyContext> typeHierarchies; // null: no type hierarchy index
+    private TypeHierarchyContext typeHierarchy; // of the class which is currently extracted
+    private int nestingDepth; // of the class which is currently extracted, 0 for a top level class
+    private boolean parallel; // the type declarations of the current compilation unit are extracted as fork-join tasks
+    private final ExtractionEvents events = ExtractionEvents.get();
+
+    public ClassOrInterfaceExtractor(ExtractionOptions options){
+        this.options = options;
+        this.mode = options.mode;
+    }
+
+    /**
+     * Extractor of a fork-join task: shares the compilation unit state of its parent, but has its own type
+     * hierarchy resolver, type hierarchies and nesting depth.
+     */
+    private ClassOrInterfaceExtractor(ClassOrInterfaceExtractor parent){
+        this.options = parent.options;
+        this.filePath = parent.filePath;
+        this.packageName = parent.packageName;
+        this.mode = parent.mode;
+        this.budget = parent.budget;
+        this.structuralTypeQualifier = parent.structuralTypeQualifier;
+        this.packageMemberIndex = parent.packageMemberIndex;
+        this.onDemandImports = parent.onDemandImports;
+        this.singleTypeImports = parent.singleTypeImports;
+        this.typeHierarchies = parent.typeHierarchies != null ? new ArrayList<TypeHierarchyContext>() : null;
+        this.nestingDepth = parent.nestingDepth;
+        this.parallel = true;
+    }
+
+    public void setMode(ExtractionMode mode){
+        this.mode = mode;
+    }
+
+    public ExtractionMode getMode(){
+        return this.mode;
+    }
+
+    public void setBudget(FileBudget budget){
+        this.budget = budget;
+    }
+
+    /**
+     * @param packageMemberIndex resolves the types which PMD can not resolve through the own package and the
+     * on-demand imports, null: they are assumed to be in the own package
+     */
+    public void setPackageMemberIndex(PackageMemberIndex packageMemberIndex){
+        this.packageMemberIndex = packageMemberIndex;
+    }
+
+    /**
+     * @param typeHierarchies receives the resolved type hierarchy of every extracted class in the FULL mode, null: no type hierarchy index
+     */
+    public void setTypeHierarchies(List<TypeHierarchyContext> typeHierarchies){
+        this.typeHierarchies = typeHierarchies;
+    }
+
+    private void checkBudget(){
+        if (this.budget != null) {
+            this.budget.check();
+        }
+    }
+
+    /**
+     * Decides whether the type declarations of the compilation unit are extracted in parallel and prepares it.
+     * Call it before the first class of the compilation unit is extracted.
+     *
+     * @return true if the compilation unit has at least options.parallelTypeDeclarationsThreshold class and
+     * interface declarations, then its top level declarations are extracted with {@link #extractInParallel(List)}
+     */
+    public boolean startCompilationUnit(ASTCompilationUnit node){
+        int threshold = this.options.parallelTypeDeclarationsThreshold;
+        this.parallel = threshold > 0 && node.descendants(ASTClassOrInterfaceDeclaration.class).crossFindBoundaries().count() >= threshold;
+        if (!this.parallel) {
+            return false;
+        }
+        if (this.mode == ExtractionMode.STRUCTURAL) {
+            this.getStructuralTypeQualifier(node); // shared by all tasks
+        } else if (this.mode == ExtractionMode.FULL) {
+            resolveDeclaredTypes(node);
+        }
+        return true;
+    }
+
+    /**
+     * Resolves every type which the extraction of the declarations asks for, so that the lazily resolved
+     * types of the AST are only read by the tasks.
+     */
+    private static void resolveDeclaredTypes(ASTCompilationUnit node){
+        for (ASTClassOrInterfaceDeclaration declaration : node.descendants(ASTClassOrInterfaceDeclaration.class).crossFindBoundaries()) {
+            declaration.getTypeMirror().getSuperTypeSet();
+        }
+        for (ASTVariableDeclaratorId variable : node.descendants(ASTVariableDeclaratorId.class).crossFindBoundaries()) {
+            if (variable.isField() || variable.isFormalParameter()) {
+                variable.getTypeMirror().unbox().getErasure();
+            }
+        }
+        for (ASTMethodDeclaration method : node.descendants(ASTMethodDeclaration.class).crossFindBoundaries()) {
+            method.getResultTypeNode().getTypeMirror();
+            method.getGenericSignature();
+            method.isOverridden();
+        }
+        for (ASTClassOrInterfaceType supertype : node.descendants(ASTClassOrInterfaceType.class).crossFindBoundaries()) {
+            if (supertype.getFirstParentOfType(ASTExtendsList.class) != null || supertype.getFirstParentOfType(ASTImplementsList.class) != null) {
+                supertype.getTypeMirror();
+            }
+        }
+    }
+
+    /**
+     * Extracts the top level classes and interfaces of a compilation unit prepared by
+     * {@link #startCompilationUnit(ASTCompilationUnit)} as fork-join tasks.
+     *
+     * @return the class contexts in the order of the nodes
+     */
+    public List<ClassOrInterfaceTypeContext> extractInParallel(List<ASTClassOrInterfaceDeclaration> nodes){
+        if (nodes.isEmpty()) {
+            return new ArrayList<ClassOrInterfaceTypeContext>();
+        }
+        this.setFilePathAndPackageName(nodes.get(0)); // the same for every declaration of the compilation unit
+        return this.extractAll(nodes);
+    }
+
+    /**
+     * Forks a task per node and joins them in the order of the nodes, the type hierarchies of the tasks are
+     * appended in the same order.
+     */
+    private List<ClassOrInterfaceTypeContext> extractAll(List<ASTClassOrInterfaceDeclaration> nodes){
+        List<ExtractionTask> tasks = new ArrayList<ExtractionTask>(nodes.size());
+        for (ASTClassOrInterfaceDeclaration node : nodes) {
+            tasks.add(new ExtractionTask(new ClassOrInterfaceExtractor(this), node));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        List<ClassOrInterfaceTypeContext> classContexts = new ArrayList<ClassOrInterfaceTypeContext>(nodes.size());
+        for (ExtractionTask task : tasks) {
+            classContexts.add(task.join());
+            if (this.typeHierarchies != null) {
+                this.typeHierarchies.addAll(task.extractor.typeHierarchies);
+            }
+        }
+        return classContexts;
+    }
+
+    private static class ExtractionTask extends RecursiveTask<ClassOrInterfaceTypeContext> {
+        private final ClassOrInterfaceExtractor extractor;
+        private final ASTClassOrInterfaceDeclaration node;
+
+        ExtractionTask(ClassOrInterfaceExtractor extractor, ASTClassOrInterfaceDeclaration node){
+            this.extractor = extractor;
+            this.node = node;
+        }
+
+        @Override
+        protected ClassOrInterfaceTypeContext compute(){
+            return this.extractor.visitClassOrInterface(this.node);
+        }
+    }
+
+    /**
+     * Extracts the top level class or interface and all its inner classes and interfaces.
+     */
+    public ClassOrInterfaceTypeContext extract(ASTClassOrInterfaceDeclaration node){
+        this.setFilePathAndPackageName(node); // before visitClassOrInterface
+        return this.visitClassOrInterface(node); // after setFilePathAndPackageName
+    }
+
+    private AstPosition getAstPosition(ASTFieldDeclaration node){
+        AstPosition position = new AstPosition();
+        position.startLine = node.getBeginLine();
+        position.startColumn = node.getBeginColumn();
+        position.endLine = node.getEndLine();
+        position.endColumn = node.getEndColumn();
+        return position;
+    }
+
+        private AstPosition getAstPosition(ASTVariableDeclaratorId node){
+            AstPosition position = new AstPosition();
+            position.startLine = node.getBeginLine();
+            position.startColumn = node.getBeginColumn();
+            position.endLine = node.getEndLine();
+            position.endColumn = node.getEndColumn();
+            return position;
+        }
+
+    private void extractFields(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+        List<ASTFieldDeclaration> fields = node.descendants(ASTFieldDeclaration.class).toList();
+
+        String memberFieldKeyPre = getClassOrInterfaceKey(node)+"/memberField/";
+
+        // search for rows like: private ArrayList javaArrayList, anotherArrayList[];
+        for (ASTFieldDeclaration field : fields) {
+            this.checkBudget();
+            //String memberFieldKey = "";
+
+            // now get from a row like: private ArrayList javaArrayList, anotherArrayList[];
+            // the individual : javaArrayList and anotherArrayList[]
+            List<ASTVariableDeclaratorId> fieldVariableDeclarators = field.descendants(ASTVariableDeclaratorId.class).toList();
+            for(ASTVariableDeclaratorId fieldVariableDeclarator: fieldVariableDeclarators){
+
+                MemberFieldParameterTypeContext fieldContext = new MemberFieldParameterTypeContext();
+                // Set the properties of the fieldContext based on the field
+                String fieldName = fieldVariableDeclarator.getName();
+
+                fieldContext.name = fieldName;
+
+                // TODO: what is is varargs?
+                QualifiedTypeName fieldType = this.resolveType(fieldVariableDeclarator, field.getTypeNode());
+                fieldContext.type = fieldType.name;
+                fieldContext.hasTypeVariable = fieldType.hasTypeVariable;
+                fieldContext.typePrecision = fieldType.getPrecisionName();
+                this.addSimilarityKeys(fieldContext, fieldVariableDeclarator);
+
+                // Set the position
+                fieldContext.position = this.getAstPosition(fieldVariableDeclarator);
+
+                fieldContext.classOrInterfaceKey = node.getCanonicalName();
+
+                // Extract the modifiers
+                ASTModifierList fieldModifiers = field.getFirstDescendantOfType(ASTModifierList.class);
+                Set<JModifier> modifierSet = fieldModifiers.getEffectiveModifiers();
+                if (modifierSet != null) {
+                    fieldContext.modifiers = modifierSet.stream().map(Enum::name).collect(Collectors.toList());
+                }
+
+                fieldContext.key = memberFieldKeyPre+fieldName;
+
+                // Add the fieldContext to the classContext.fields
+                classContext.fields.put(fieldContext.key, fieldContext);
+            }
+            /**
+            // remove the last comma
+            if(memberFieldKey.length()>0){
+                memberFieldKey = memberFieldKey.substring(0, memberFieldKey.length()-1);
+            }
+            System.out.println("memberFieldKey: "+memberFieldKey);
+            */
+        }
+    }
+
+    private void extractMethods(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+
+        String classOrInterfaceKey = getClassOrInterfaceKey(node);
+
+        // If you want to only get the fields of the top-level class and not any inner classes, you would need to add a check to exclude fields that belong to inner classes. One way to do this could be to check the parent of each field and see if it's the top-level class node.
+        List<ASTMethodDeclaration> methods = node.descendants(ASTMethodDeclaration.class).toList();
+        for (ASTMethodDeclaration method : methods) {
+            this.checkBudget();
+
+            MethodTypeContext methodContext = new MethodTypeContext();
+            // Set the properties of the methodContext based on the method
+            methodContext.name = method.getMethodName();
+            QualifiedTypeName returnType = this.resolveType(method.getResultTypeNode(), method.getResultTypeNode());
+            methodContext.type = returnType.name;
+            methodContext.typePrecision = returnType.getPrecisionName();
+
+            //System.out.println("----------------");
+            //System.out.println("methodContext.name: "+methodContext.name);
+
+            // Set the position
+            AstPosition position = new AstPosition();
+            position.startLine = method.getBeginLine();
+            position.startColumn = method.getBeginColumn();
+            position.endLine = method.getEndLine();
+            position.endColumn = method.getEndColumn();
+            methodContext.position = position;
+
+            methodContext.classOrInterfaceKey = node.getCanonicalName();
+
+            // Extract the modifiers and check for @Override annotation
+            ASTModifierList methodModifiers = method.getFirstDescendantOfType(ASTModifierList.class);
+            Set<JModifier> methodModifierSet = methodModifiers.getEffectiveModifiers();
+            if (methodModifierSet != null) {
+                methodContext.modifiers = methodModifierSet.stream().map(Enum::name).collect(Collectors.toList());
+            }
+
+            methodContext.overrideAnnotation = this.isOverridden(method);
+
+            // Extract the parameters
+            ASTFormalParameters parameters = method.getFormalParameters();
+            for (ASTFormalParameter parameter : parameters) {
+
+                ASTVariableDeclaratorId parameterVariableDeclarator = parameter.getVarId();
+
+                MethodParameterTypeContext parameterContext = new MethodParameterTypeContext();
+                // Set the properties of the parameterContext based on the parameter
+                // now get from a row like: private ArrayList javaArrayList, anotherArrayList[];
+                // the individual : javaArrayList and anotherArrayList[]
+                // Set the properties of the fieldContext based on the field
+                parameterContext.name = parameterVariableDeclarator.getName();
+
+                // TODO: what is is varargs?
+                QualifiedTypeName parameterType = this.resolveType(parameterVariableDeclarator, parameter.getTypeNode());
+                parameterContext.type = parameterType.name;
+                parameterContext.hasTypeVariable = parameterType.hasTypeVariable;
+                parameterContext.typePrecision = parameterType.getPrecisionName();
+                this.addSimilarityKeys(parameterContext, parameterVariableDeclarator);
+
+                //parameterContext.key = parameterContext.type+" "+parameterContext.name;
+                /**
+                if (parameter.isVarargs()) {  // Hypothetical method; check PMD documentation
+                    System.out.println("This is a varargs parameter: " + parameter.getImage());
+                } else if (parameter.isArray()) {  // Hypothetical method; check PMD documentation
+                    System.out.println("This is an array parameter: " + parameter.getImage());
+                } else {
+                    System.out.println("This is a regular parameter: " + parameter.getImage());
+                }
+                */
+
+
+                // Set the position
+                parameterContext.position = this.getAstPosition(parameterVariableDeclarator);
+
+                // Extract the modifiers
+                ASTModifierList fieldModifiers = parameter.getFirstDescendantOfType(ASTModifierList.class);
+                Set<JModifier> modifierSet = fieldModifiers.getEffectiveModifiers();
+                if (modifierSet != null) {
+                    parameterContext.modifiers = modifierSet.stream().map(Enum::name).collect(Collectors.toList());
+                }
+
+                //parameterContext.methodKey = methodContext.key;
+                // We cant set the methodKey directly, since the method key is not yet defined
+
+                // Add the parameterContext to the methodContext.parameters
+                methodContext.parameters.add(parameterContext);
+            }
+
+            // set method key
+            // Java method key is the method signature. The signature is: method name + parameters (type and order)
+            String methodContextParametersKey = classOrInterfaceKey+"/method/"+method.getMethodName()+"(";
+            int amountParameters = methodContext.parameters.size();
+            for(int i=0; i<amountParameters; i++){
+                MethodParameterTypeContext parameterContext = methodContext.parameters.get(i);
+                String parameterTypeAndName = parameterContext.type+" "+parameterContext.name;
+                methodContextParametersKey += parameterTypeAndName;
+                if(i+1<amountParameters){
+                    methodContextParametersKey += ", ";
+                }
+            }
+            methodContextParametersKey += ")";
+
+            for(int i=0; i<amountParameters; i++){
+                MethodParameterTypeContext parameterContext = methodContext.parameters.get(i);
+                parameterContext.key = methodContextParametersKey+"/parameter/"+parameterContext.name;
+            }
+
+
+            methodContext.key = methodContextParametersKey;
+
+
+            for(MethodParameterTypeContext parameterContext: methodContext.parameters){
+                parameterContext.methodKey = methodContext.key;
+            }
+
+
+            if (this.typeHierarchy != null) {
+                this.typeHierarchyResolver.addMethod(this.typeHierarchy, node, method, methodContext.key);
+            }
+
+            // Add the methodContext to the classContext.methods
+            classContext.methods.put(methodContext.key, methodContext);
+        }
+    }
+
+    private void extractConstructors(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+
+        String classOrInterfaceKey = getClassOrInterfaceKey(node);
+
+        List<ASTConstructorDeclaration> constructors = node.descendants(ASTConstructorDeclaration.class).toList();
+        for (ASTConstructorDeclaration constructor : constructors) {
+            this.checkBudget();
+
+            MethodTypeContext constructorContext = new MethodTypeContext();
+            constructorContext.name = "constructor";
+
+            AstPosition position = new AstPosition();
+            position.startLine = constructor.getBeginLine();
+            position.startColumn = constructor.getBeginColumn();
+            position.endLine = constructor.getEndLine();
+            position.endColumn = constructor.getEndColumn();
+            constructorContext.position = position;
+
+            constructorContext.classOrInterfaceKey = node.getCanonicalName();
+
+            ASTModifierList constructorModifiers = constructor.getFirstDescendantOfType(ASTModifierList.class);
+            if (constructorModifiers != null) {
+                Set<JModifier> constructorModifierSet = constructorModifiers.getEffectiveModifiers();
+                if (constructorModifierSet != null) {
+                    constructorContext.modifiers = constructorModifierSet.stream().map(Enum::name).collect(Collectors.toList());
+                }
+            }
+
+            constructorContext.overrideAnnotation = false;
+
+            ASTFormalParameters parameters = constructor.getFormalParameters();
+            for (ASTFormalParameter parameter : parameters) {
+
+                ASTVariableDeclaratorId parameterVariableDeclarator = parameter.getVarId();
+
+                MethodParameterTypeContext parameterContext = new MethodParameterTypeContext();
+                parameterContext.name = parameterVariableDeclarator.getName();
+                QualifiedTypeName parameterType = this.resolveType(parameterVariableDeclarator, parameter.getTypeNode());
+                parameterContext.type = parameterType.name;
+                parameterContext.hasTypeVariable = parameterType.hasTypeVariable;
+                parameterContext.typePrecision = parameterType.getPrecisionName();
+                this.addSimilarityKeys(parameterContext, parameterVariableDeclarator);
+
+                parameterContext.position = this.getAstPosition(parameterVariableDeclarator);
+
+                ASTModifierList parameterModifiers = parameter.getFirstDescendantOfType(ASTModifierList.class);
+                Set<JModifier> modifierSet = parameterModifiers != null ? parameterModifiers.getEffectiveModifiers() : null;
+                if (modifierSet != null) {
+                    parameterContext.modifiers = modifierSet.stream().map(Enum::name).collect(Collectors.toList());
+                }
+
+                constructorContext.parameters.add(parameterContext);
+            }
+
+            String constructorContextParametersKey = classOrInterfaceKey+"/constructor/constructor(";
+            int amountParameters = constructorContext.parameters.size();
+            for(int i=0; i<amountParameters; i++){
+                MethodParameterTypeContext parameterContext = constructorContext.parameters.get(i);
+                String parameterTypeAndName = parameterContext.type+" "+parameterContext.name;
+                constructorContextParametersKey += parameterTypeAndName;
+                if(i+1<amountParameters){
+                    constructorContextParametersKey += ", ";
+                }
+            }
+            constructorContextParametersKey += ")";
+
+            constructorContext.key = constructorContextParametersKey;
+
+            for(MethodParameterTypeContext parameterContext: constructorContext.parameters){
+                parameterContext.key = constructorContext.key+"/parameter/"+parameterContext.name;
+                parameterContext.methodKey = constructorContext.key;
+            }
+
+            classContext.constructors.put(constructorContext.key, constructorContext);
+        }
+    }
+
+    private String getClassOrInterfaceKey(ASTClassOrInterfaceDeclaration node){
+        String classOrInterfaceKey = node.getCanonicalName();
+        if(classOrInterfaceKey==null){
+            classOrInterfaceKey = node.getSimpleName();
+        }
+        return classOrInterfaceKey;
+    }
+
+    private void extractClassInformations(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+
+        // Set the properties of the classContext based on the node
+        classContext.name = node.getSimpleName();
+        classContext.key = getClassOrInterfaceKey(node);
+        classContext.type = node.isInterface() ? "interface" : "class";
+        // Set the position
+        AstPosition class_position = new AstPosition();
+        class_position.startLine = node.getBeginLine();
+        class_position.startColumn = node.getBeginColumn();
+        class_position.endLine = node.getEndLine();
+        class_position.endColumn = node.getEndColumn();
+        classContext.position = class_position;
+
+        classContext.anonymous = node.isAnonymous();
+
+        // Extract the modifiers
+        ASTModifierList classModifiers = node.getFirstDescendantOfType(ASTModifierList.class);
+        Set<JModifier> classModifierSet = classModifiers.getEffectiveModifiers();
+        if (classModifierSet != null) {
+            classContext.modifiers = classModifierSet.stream().map(Enum::name).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param node the node whose type mirror is resolved in the FULL mode
+     * @param typeNode the type as written in the source code, used in the SOURCE_TEXT and STRUCTURAL mode
+     */
+    private QualifiedTypeName resolveType(TypeNode node, ASTType typeNode){
+        ExtractionEvents.Span span = this.events.beginTypeResolution();
+        QualifiedTypeName typeName = this.resolveTypeInMode(node, typeNode);
+        this.events.endTypeResolution(span, typeName.name, this.mode.name());
+        return typeName;
+    }
+
+    private QualifiedTypeName resolveTypeInMode(TypeNode node, ASTType typeNode){
+        if (this.mode == ExtractionMode.SOURCE_TEXT) {
+            return new QualifiedTypeName(getSourceText(typeNode), TypePrecision.UNQUALIFIED, false);
+        }
+        if (this.mode == ExtractionMode.STRUCTURAL) {
+            int extraArrayDepth = 0;
+            if (node instanceof ASTVariableDeclaratorId && ((ASTVariableDeclaratorId) node).getExtraDimensions() != null) {
+                extraArrayDepth = ((ASTVariableDeclaratorId) node).getExtraDimensions().size();
+            }
+            return this.getStructuralTypeQualifier(typeNode).qualify(typeNode, extraArrayDepth);
+        }
+        JTypeMirror typeMirror = node.getTypeMirror();
+        return new QualifiedTypeName(this.getWrittenTypeName(typeMirror, typeNode), null, this.hasTypeVariable(typeMirror));
+    }
+
+    /**
+     * Adds the {@link VariableSimilarityKeys}, if they are enabled. Only the FULL mode knows the resolved type,
+     * the other modes erase and unbox the type name.
+     */
+    private void addSimilarityKeys(ParameterTypeContext variableContext, ASTVariableDeclaratorId node){
+        if (!this.options.variableSimilarityKeys) {
+            return;
+        }
+        variableContext.normalizedName = VariableSimilarityKeys.normalizeName(variableContext.name);
+        variableContext.nameTokens = VariableSimilarityKeys.tokenizeName(variableContext.name);
+        String typeClass;
+        if (this.mode == ExtractionMode.FULL) {
+            typeClass = this.getWrittenTypeName(node.getTypeMirror().unbox().getErasure(), node.getTypeNode());
+        } else {
+            typeClass = VariableSimilarityKeys.getTypeClass(variableContext.type);
+        }
+        variableContext.typeClassId = VariableSimilarityKeys.getTypeClassId(typeClass);
+    }
+
+    private StructuralTypeQualifier getStructuralTypeQualifier(JavaNode node){
+        ASTCompilationUnit compilationUnit = node.getRoot();
+        if (this.structuralTypeQualifier == null || this.structuralTypeQualifier.getCompilationUnit() != compilationUnit) {
+            this.structuralTypeQualifier = new StructuralTypeQualifier(compilationUnit, this.packageMemberIndex);
+        }
+        return this.structuralTypeQualifier;
+    }
+
+    private static String getSourceText(ASTType typeNode){
+        if (typeNode == null) {
+            return null;
+        }
+        return typeNode.getText().toString().replaceAll("\\s+", " ").trim();
+    }
+
+    private void addSupertypePrecision(ClassOrInterfaceTypeContext classContext, QualifiedTypeName typeName){
+        if (typeName.precision == null) {
+            return; // resolved by the type resolution, the FULL mode writes no precision
+        }
+        if (classContext.supertypeTypePrecisions == null) {
+            classContext.supertypeTypePrecisions = new HashMap<String, String>();
+        }
+        classContext.supertypeTypePrecisions.put(typeName.name, typeName.getPrecisionName());
+    }
+
+    private boolean isOverridden(ASTMethodDeclaration method){
+        if (this.mode != ExtractionMode.FULL) {
+            // the overridden method is only known with type resolution, the annotation is the best guess
+            return method.isAnnotationPresent(Override.class);
+        }
+        return method.isOverridden();
+    }
+
+    private boolean hasTypeVariable(JTypeMirror typeMirror){
+        if(typeMirror instanceof JTypeVar){ // something like: T item ==> T
+            return true;
+        }
+
+        if(typeMirror instanceof JClassType){
+            JClassType downCast = (JClassType) typeMirror;
+            List<JTypeMirror> typeMirrors = downCast.getTypeArgs();
+            boolean isGeneric = downCast.isGeneric();
+            if(isGeneric){
+                for(int i = 0; i < typeMirrors.size(); i++){
+                    JTypeMirror innerTypeMirror = typeMirrors.get(i);
+                    if(innerTypeMirror instanceof JTypeVar){ // something like: T item ==> T
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Name of a type which is written in the source code, so its simple names are subject to the own package.
+     */
+    private String getWrittenTypeName(JTypeMirror typeMirror, ASTType typeNode){
+        String qualifiedName = this.getQualifiedNameUnsafe(typeMirror);
+        if (this.packageMemberIndex == null || typeNode == null) {
+            return qualifiedName;
+        }
+        Set<String> simpleNames = new HashSet<String>(); // written without a package and not imported by name
+        for (ASTClassOrInterfaceType classType : typeNode.descendantsOrSelf().filterIs(ASTClassOrInterfaceType.class)) {
+            if (classType.getQualifier() == null && !classType.isFullyQualified() && !this.singleTypeImports.contains(classType.getSimpleName())) {
+                simpleNames.add(classType.getSimpleName());
+            }
+        }
+        Set<String> hiddenTypes = new LinkedHashSet<String>();
+        this.collectHiddenTypes(typeMirror, simpleNames, hiddenTypes);
+        String ownPackage = this.packageName != null && !this.packageName.isEmpty() ? this.packageName + "." : "";
+        for (String hiddenType : hiddenTypes) {
+            String ownType = ownPackage + hiddenType.substring(hiddenType.lastIndexOf('.') + 1);
+            qualifiedName = qualifiedName.replaceAll("(?<![\\w.$])" + Pattern.quote(hiddenType) + "(?![\\w$])", Matcher.quoteReplacement(ownType));
+        }
+        return qualifiedName;
+    }
+
+    /**
+     * PMD does not know the types of the other source files, so it resolves a simple name through java.lang or
+     * an on-demand import even if a type of the own package hides it. Collects the resolved top level types
+     * which are written as one of the simple names and which the index knows in the own package.
+     */
+    private void collectHiddenTypes(JTypeMirror typeMirror, Set<String> simpleNames, Set<String> hiddenTypes){
+        if (typeMirror instanceof JArrayType) {
+            this.collectHiddenTypes(((JArrayType) typeMirror).getComponentType(), simpleNames, hiddenTypes);
+        } else if (typeMirror instanceof JWildcardType) {
+            this.collectHiddenTypes(((JWildcardType) typeMirror).getBound(), simpleNames, hiddenTypes);
+        } else if (typeMirror instanceof JIntersectionType) {
+            for (JTypeMirror component : ((JIntersectionType) typeMirror).getComponents()) {
+                this.collectHiddenTypes(component, simpleNames, hiddenTypes);
+            }
+        } else if (typeMirror instanceof JClassType) {
+            JClassType classType = (JClassType) typeMirror;
+            JClassSymbol symbol = classType.getSymbol();
+            String ownPackage = this.packageName != null ? this.packageName : "";
+            if (!symbol.isUnresolved() && symbol.getEnclosingClass() == null && simpleNames.contains(symbol.getSimpleName())
+                    && !ownPackage.equals(symbol.getPackageName()) && this.packageMemberIndex.contains(ownPackage, symbol.getSimpleName())) {
+                hiddenTypes.add(symbol.getCanonicalName());
+            }
+            for (JTypeMirror typeArgument : classType.getTypeArgs()) {
+                this.collectHiddenTypes(typeArgument, simpleNames, hiddenTypes);
+            }
+        }
+    }
+
+    private String getQualifiedNameUnsafe(JTypeMirror typeMirror){
+        String prettyString = printType(typeMirror);
+        if (this.packageMemberIndex != null) {
+            return this.qualifyThroughIndex(prettyString);
+        }
+        return this.qualifyThroughPackage(prettyString, typeMirror);
+    }
+
+    private static String printType(JTypeMirror typeMirror){
+        TypePrettyPrint.TypePrettyPrinter typePrettyPrinter = new TypePrettyPrint.TypePrettyPrinter();
+        typePrettyPrinter.printAnnotations(false);
+        typePrettyPrinter.printMethodHeader(false);
+        typePrettyPrinter.printMethodResult(false);
+        //typePrettyPrinter.printTypeVarBounds(false);
+        typePrettyPrinter.qualifyAnnotations(false);
+        typePrettyPrinter.qualifyNames(true);
+        typePrettyPrinter.qualifyTvars(false);
+
+
+        return TypePrettyPrint.prettyPrint(typeMirror, typePrettyPrinter);
+    }
+
+    /**
+     * PMD prints a type it can not resolve as *Name, or as *a.b.Name or *Name.Member if it is written with dots.
+     * Every such name gets the package where the package member index finds its top level type: the written
+     * package, the own package or an on-demand import. A member type becomes package.Name$Member. A name which
+     * the index does not know gets the own package like without the index, a dotted one stays as written.
+     */
+    private String qualifyThroughIndex(String prettyString){
+        if (prettyString.indexOf('*') < 0) {
+            return prettyString;
+        }
+        Matcher matcher = UNRESOLVED_TYPE.matcher(prettyString);
+        StringBuffer qualified = new StringBuffer();
+        while (matcher.find()) {
+            String[] segments = matcher.group(1).split("\\.");
+            String replacement = this.qualifySegments(segments);
+            if (replacement == null) {
+                String ownPackage = this.packageName != null && !this.packageName.isEmpty() ? this.packageName + "." : "";
+                replacement = segments.length == 1 ? ownPackage + segments[0] : matcher.group(1);
+            }
+            matcher.appendReplacement(qualified, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(qualified);
+        return qualified.toString();
+    }
+
+    /**
+     * @return package.Name$Member... or null if the index knows no package for the segments
+     */
+    private String qualifySegments(String[] segments){
+        for (int typeSegment = segments.length - 1; typeSegment > 0; typeSegment--) {
+            String writtenPackage = String.join(".", Arrays.asList(segments).subList(0, typeSegment));
+            if (this.packageMemberIndex.contains(writtenPackage, segments[typeSegment])) {
+                return writtenPackage + "." + joinMembers(segments, typeSegment);
+            }
+        }
+        String typePackage = this.packageMemberIndex.findPackage(segments[0], this.packageName, this.onDemandImports);
+        if (typePackage == null) {
+            return null;
+        }
+        return (typePackage.isEmpty() ? "" : typePackage + ".") + joinMembers(segments, 0);
+    }
+
+    private static String joinMembers(String[] segments, int typeSegment){
+        return String.join("$", Arrays.asList(segments).subList(typeSegment, segments.length));
+    }
+
+    private String qualifyThroughPackage(String prettyString, JTypeMirror typeMirror){
+        //System.out.println("prettyString: "+prettyString);
+        // the pretty may not be the fully qualified name as it may have * for classes in the same package
+        // so we need to replace * by the package name
+        String usedPackageName = this.packageName;
+        if(usedPackageName!=null && usedPackageName.length()>0){
+            usedPackageName = usedPackageName+"."; // add the dot since the packageName might be "com.example" and the import should be "com.example.*"
+        }
+
+        String prettyStringWithPackage = prettyString.replace("*", usedPackageName);
+
+        // Wenn prettyString mit * beginnt, versuche den CanonicalName zu holen
+        if (prettyString.startsWith("*")) {
+            // wenn bereits ein package gesetzt ist, dann benutze dieses (erkennbar, wenn es einen "." enthält)
+            if (prettyString.contains(".")) {
+                // Versuche CanonicalName aus JClassType
+                if (typeMirror instanceof JClassType) {
+                    JClassType classType = (JClassType) typeMirror;
+                    String canonicalName = classType.getSymbol().getCanonicalName();
+                    if (canonicalName != null && !canonicalName.isEmpty()) {
+                        return canonicalName;
+                    }
+                }
+                // Fallback: Ersetze * durch das aktuelle Package
+                return prettyString.replace("*", usedPackageName);
+            } else {
+                //System.out.println("prettyStringWithPackage: "+prettyStringWithPackage);
+                return prettyStringWithPackage;
+            }
+        }
+        return prettyStringWithPackage;
+    }
+
+    private void extractExtendsAndImplements(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+
+        // Extract the interfaces this class implements
+        List<ASTImplementsList> implementsLists = node.findDescendantsOfType(ASTImplementsList.class);
+        for (ASTImplementsList implementsList : implementsLists) {
+            List<ASTClassOrInterfaceType> interfaces = implementsList.findDescendantsOfType(ASTClassOrInterfaceType.class);
+            for (ASTClassOrInterfaceType interfaceType : interfaces) {
+                QualifiedTypeName interfaceTypeName = this.resolveType(interfaceType, interfaceType);
+                String fullQualifiedName = interfaceTypeName.name;
+                if(fullQualifiedName != null){
+                    classContext.implements_.add(fullQualifiedName);
+                    this.addSupertypePrecision(classContext, interfaceTypeName);
+                }
+            }
+        }
+
+        // Extract the classes this class extends
+        List<ASTExtendsList> extendsLists = node.findDescendantsOfType(ASTExtendsList.class);
+        for (ASTExtendsList extendsList : extendsLists) {
+            List<ASTClassOrInterfaceType> superclasses = extendsList.findDescendantsOfType(ASTClassOrInterfaceType.class);
+            for (ASTClassOrInterfaceType superclass : superclasses) {
+                QualifiedTypeName superclassTypeName = this.resolveType(superclass, superclass);
+                String fullQualifiedName = superclassTypeName.name;
+                if(fullQualifiedName != null){
+                    classContext.extends_.add(fullQualifiedName);
+                    this.addSupertypePrecision(classContext, superclassTypeName);
+                }
+            }
+        }
+    }
+
+    public ClassOrInterfaceTypeContext visitClassOrInterface(ASTClassOrInterfaceDeclaration node){
+        //System.out.println("ASTClassOrInterfaceDeclaration");
+        this.checkBudget();
+        ExtractionEvents.Span span = this.events.beginClassExtraction();
+
+        // Create a new instance of your ClassOrInterfaceTypeContext class
+        ClassOrInterfaceTypeContext classContext = new ClassOrInterfaceTypeContext();
+        this.extractClassInformations(node, classContext);
+
+        classContext.file_path = this.filePath;
+
+        this.typeHierarchy = null;
+        if (this.typeHierarchies != null && this.mode == ExtractionMode.FULL) {
+            // the type symbols are only resolved in the FULL mode
+            this.typeHierarchy = this.typeHierarchyResolver.resolve(node, classContext.key);
+            this.typeHierarchies.add(this.typeHierarchy);
+        }
+
+        // Extract the fields
+        this.extractFields(node, classContext);
+
+        // Extract the methods
+        this.extractMethods(node, classContext);
+
+        // Extract the constructors
+        this.extractConstructors(node, classContext);
+
+        // Extract the interfaces this class implements
+        // Extract the classes this class extends
+        this.extractExtendsAndImplements(node, classContext);
+
+        // Set the definedInClassOrInterfaceTypeKey
+        ASTClassOrInterfaceDeclaration parentClassOrInterface = node.getFirstParentOfType(ASTClassOrInterfaceDeclaration.class);
+        if (parentClassOrInterface != null) {
+            classContext.definedInClassOrInterfaceTypeKey = getClassOrInterfaceKey(parentClassOrInterface);
+        }
+
+        // recursive call for inner classes
+        this.visitInnerClassesOrInterfaces(node, classContext);
+
+        this.events.endClassExtraction(span, classContext.key, classContext.fields.size(), classContext.methods.size(), classContext.constructors.size(),
+                classContext.innerDefinedClasses.size() + classContext.innerDefinedInterfaces.size(), this.nestingDepth);
+        return classContext;
+    }
+
+    private void visitInnerClassesOrInterfaces(ASTClassOrInterfaceDeclaration node, ClassOrInterfaceTypeContext classContext){
+        List<ASTClassOrInterfaceDeclaration> innerClassesAndInterfaces = node.findDescendantsOfType(ASTClassOrInterfaceDeclaration.class);
+        List<ClassOrInterfaceTypeContext> innerClassOrInterfaceContexts = null;
+        if (this.parallel && innerClassesAndInterfaces.size() > 1) {
+            this.nestingDepth++;
+            try {
+                innerClassOrInterfaceContexts = this.extractAll(innerClassesAndInterfaces);
+            } finally {
+                this.nestingDepth--;
+            }
+        }
+        for (int i = 0; i < innerClassesAndInterfaces.size(); i++) {
+            ASTClassOrInterfaceDeclaration innerClassOrInterface = innerClassesAndInterfaces.get(i);
+            ClassOrInterfaceTypeContext innerClassOrInterfaceContext;
+            if (innerClassOrInterfaceContexts != null) {
+                innerClassOrInterfaceContext = innerClassOrInterfaceContexts.get(i);
+            } else {
+                this.nestingDepth++;
+                try {
+                    innerClassOrInterfaceContext = this.visitClassOrInterface(innerClassOrInterface);
+                } finally {
+                    this.nestingDepth--;
+                }
+            }
+            // Set the properties of the innerClassOrInterfaceContext based on the innerClassOrInterface
+            // Add the innerClassOrInterfaceContext to the appropriate map
+            if (innerClassOrInterface.isInterface()) {
+                classContext.innerDefinedInterfaces.put(innerClassOrInterface.getCanonicalName(), innerClassOrInterfaceContext);
+            } else {
+                classContext.innerDefinedClasses.put(innerClassOrInterface.getCanonicalName(), innerClassOrInterfaceContext);
+            }
+        }
+    }
+
+    public void setFilePathAndPackageName(ASTClassOrInterfaceDeclaration node){
+        //System.out.println(node.getCanonicalName());
+        AstInfo astInfo = node.getAstInfo();
+
+        String packagename = node.getPackageName();
+        this.packageName = packagename;
+        if (this.packageMemberIndex != null) {
+            this.onDemandImports = StructuralTypeQualifier.getOnDemandImports(node.getRoot());
+            this.singleTypeImports = StructuralTypeQualifier.getSingleTypeImports(node.getRoot());
+        }
+
+        TextDocument document = astInfo.getTextDocument();
+
+        FileId fileId = document.getFileId();
+
+        String originalPath = fileId.getOriginalPath();
+
+        this.filePath = getRelativeFilePath(originalPath, this.options.source);
+    }
+
+    public static String getRelativeFilePath(String originalPath, String directoryFolder){
+        if (directoryFolder == null) {
+            // in-memory sources or no source root given: keep the path as it is
+            return originalPath;
+        }
+        if (directoryFolder.endsWith("/")) {
+            directoryFolder = directoryFolder.substring(0, directoryFolder.length() - 1);
+        }
+        if (!originalPath.startsWith(directoryFolder) || originalPath.length() <= directoryFolder.length()) {
+            return originalPath;
+        }
+        return originalPath.substring(directoryFolder.length()+1);
+    }
+
+    public String getPackageName(){
+        return this.packageName;
+    }
+
+    public String getFilePath(){
+        return this.filePath;
+    }
+}
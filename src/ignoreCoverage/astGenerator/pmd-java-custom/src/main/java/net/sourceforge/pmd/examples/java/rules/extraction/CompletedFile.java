@@ -0,0 +1,24 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry of the checkpoint journal: a source file whose classes were all handed to the consumer.
+ */
+public class CompletedFile {
+
+    public String file_path; // relative to options.source, like the file_path of the classes
+    public List<String> classKeys = new ArrayList<String>(); // top level classes, one output file each
+    public boolean skipped; // true: the file was abandoned and is in the skip report
+    @JsonIgnore
+    public long elapsedNanos; // not journaled: from the start of the parse until the classes were with the consumer
+    @JsonIgnore
+    public long allocatedBytes; // not journaled: by the extracting thread in that time, -1 if the JVM cannot measure it
+
+    public CompletedFile(){
+
+    }
+}
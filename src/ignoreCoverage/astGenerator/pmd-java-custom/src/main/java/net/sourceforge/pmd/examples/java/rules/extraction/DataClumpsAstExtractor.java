@@ -0,0 +1,294 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.examples.java.rules.MyRule;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.TypeHierarchyContext;
+import net.sourceforge.pmd.examples.java.rules.statistics.ExtractionStatistics;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.document.FileCollector;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Library entry point to extract the ASTs inside of an own JVM: no process spawn, no environment
+ * variables and no files on disk. The results are the same {@link ClassOrInterfaceTypeContext}s
+ * which {@code make run} writes into DESTINATION.
+ *
+ * <pre>
+ * ExtractionOptions options = new ExtractionOptions();
+ * options.source = "/path/to/project";
+ * new DataClumpsAstExtractor(options).extract(Collections.singletonList(Paths.get(options.source)), classContext -&gt; ...);
+ * </pre>
+ */
+public class DataClumpsAstExtractor {
+
+    private static final int STREAM_BUFFER_SIZE = 256;
+    private static final Object END_OF_STREAM = new Object();
+
+    private final ExtractionOptions options;
+    private Consumer<SkippedFile> skippedFileListener = skippedFile -> { };
+    private Consumer<TypeHierarchyContext> typeHierarchyListener; // null: no type hierarchies are resolved
+    private Consumer<CompletedFile> completedFileListener; // null: the completed files are not reported
+    private ExtractionStatistics statistics; // null: no statistics are collected
+    private PackageMemberIndex packageMemberIndex; // null: built for every run
+
+    public DataClumpsAstExtractor(ExtractionOptions options){
+        this.options = options;
+    }
+
+    /**
+     * Gets informed about the files which are abandoned or could not be extracted. Like the class consumer it
+     * is called from the PMD worker threads.
+     */
+    public void setSkippedFileListener(Consumer<SkippedFile> skippedFileListener){
+        this.skippedFileListener = skippedFileListener;
+    }
+
+    /**
+     * Gets the resolved type hierarchy of every extracted class, including inner classes. Only the FULL mode
+     * resolves type hierarchies. Called from the PMD worker threads, after the classes of the file.
+     */
+    public void setTypeHierarchyListener(Consumer<TypeHierarchyContext> typeHierarchyListener){
+        this.typeHierarchyListener = typeHierarchyListener;
+    }
+
+    /**
+     * Gets informed about every file which is done, after all of its classes were handed to the consumer.
+     * Called from the PMD worker threads. Files which PMD could not parse are not reported.
+     */
+    public void setCompletedFileListener(Consumer<CompletedFile> completedFileListener){
+        this.completedFileListener = completedFileListener;
+    }
+
+    /**
+     * Counts every extracted file and class into the statistics, before the classes are handed to the consumer.
+     * Several extractions may record into the same statistics, also at the same time.
+     */
+    public void setStatistics(ExtractionStatistics statistics){
+        this.statistics = statistics;
+    }
+
+    /**
+     * Resolves the on-demand imports of every run with this index instead of building one per run. A caller
+     * which extracts a project in several runs (the chunks of a batch, the updates of the watch mode) builds it
+     * once with {@link PackageMemberIndex#build} and keeps it up to date. Unused if options.ignoreWildcardImports.
+     */
+    public void setPackageMemberIndex(PackageMemberIndex packageMemberIndex){
+        this.packageMemberIndex = packageMemberIndex;
+    }
+
+    /**
+     * Extracts all java files of the given files or directories.
+     * The consumer is called from the PMD worker threads, it has to be thread safe if options.threads is greater than 1.
+     */
+    public void extract(Collection<Path> paths, Consumer<ClassOrInterfaceTypeContext> consumer){
+        this.run(paths, Collections.<String, String>emptyMap(), consumer, null);
+    }
+
+    /**
+     * Extracts in-memory sources.
+     * @param sources file path (used as file_path, has to end with .java) to the source code of the file
+     */
+    public void extractSources(Map<String, String> sources, Consumer<ClassOrInterfaceTypeContext> consumer){
+        this.run(Collections.<Path>emptyList(), sources, consumer, null);
+    }
+
+    /**
+     * Lazy variant of {@link #extract(Collection, Consumer)}. The extraction starts with the first element
+     * requested and runs ahead of the reader at most a small buffer of classes.
+     * <p>
+     * The stream has to be closed, best with try-with-resources. Closing it cancels the extraction: the files
+     * PMD has not started are not parsed any more and the extraction thread ends. A stream which is neither
+     * read to its end nor closed keeps its extraction thread, the PMD threads and their ASTs waiting forever.
+     */
+    public Stream<ClassOrInterfaceTypeContext> stream(Collection<Path> paths){
+        return this.stream(paths, Collections.<String, String>emptyMap());
+    }
+
+    public Stream<ClassOrInterfaceTypeContext> streamSources(Map<String, String> sources){
+        return this.stream(Collections.<Path>emptyList(), sources);
+    }
+
+    private Stream<ClassOrInterfaceTypeContext> stream(Collection<Path> paths, Map<String, String> sources){
+        QueueSpliterator spliterator = new QueueSpliterator(this, paths, sources);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * @param cancelled null: the extraction can not be cancelled, else true once the remaining files are to be dropped
+     */
+    private void run(Collection<Path> paths, Map<String, String> sources, Consumer<ClassOrInterfaceTypeContext> consumer, BooleanSupplier cancelled){
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setThreads(this.options.threads);
+        configuration.setIgnoreIncrementalAnalysis(true);
+        if (this.options.auxClasspath != null && !this.options.auxClasspath.isEmpty()) {
+            configuration.prependAuxClasspath(this.options.auxClasspath);
+        }
+
+        Consumer<SkippedFile> skippedFileListener = this.skippedFileListener;
+        if (cancelled != null) {
+            // the files failing because of the cancellation are no skipped files
+            skippedFileListener = skippedFile -> {
+                if (!cancelled.getAsBoolean()) {
+                    this.skippedFileListener.accept(skippedFile);
+                }
+            };
+        }
+
+        try (ExtractionSession session = ExtractionSession.open(this.options, consumer, skippedFileListener);
+             PmdAnalysis analysis = PmdAnalysis.create(configuration)) {
+            session.setTypeHierarchyConsumer(this.typeHierarchyListener);
+            session.setCompletedFileConsumer(this.completedFileListener);
+            session.setStatistics(this.statistics);
+            if (!this.options.ignoreWildcardImports) {
+                session.setPackageMemberIndex(this.packageMemberIndex != null ? this.packageMemberIndex : PackageMemberIndex.build(this.options, paths, sources));
+            }
+            if (this.options.isDeclarationsOnly() || cancelled != null) {
+                // collected like always, then handed to PMD with blank method bodies or as cancellable files
+                try (FileCollector files = analysis.files().newCollector(analysis.files().getReporter())) {
+                    addFiles(files, paths, sources);
+                    for (TextFile file : files.getCollectedFiles()) {
+                        TextFile analysedFile = this.options.isDeclarationsOnly() ? new DeclarationsOnlyTextFile(file) : file;
+                        analysis.files().addFile(cancelled != null ? new CancellableTextFile(analysedFile, cancelled) : analysedFile);
+                    }
+                }
+            } else {
+                addFiles(analysis.files(), paths, sources);
+            }
+            analysis.addRuleSet(RuleSet.forSingleRule(createRule(session)));
+            analysis.addListener(new FileBudgetListener(this.options, skippedFileListener));
+            analysis.performAnalysis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addFiles(FileCollector files, Collection<Path> paths, Map<String, String> sources) throws IOException {
+        for (Path path : paths) {
+            files.addFileOrDirectory(path);
+        }
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            files.addSourceFile(FileId.fromPathLikeString(source.getKey()), source.getValue());
+        }
+    }
+
+    private static MyRule createRule(ExtractionSession session){
+        MyRule rule = new MyRule();
+        rule.setName("MyRule");
+        rule.setLanguage(LanguageRegistry.PMD.getLanguageById("java"));
+        rule.setProperty(MyRule.EXTRACTION_SESSION, session.getId());
+        return rule;
+    }
+
+    /**
+     * Runs the extraction on a background thread and hands the classes over through a bounded queue. Once the
+     * stream is closed, the consumer throws a {@link CancellationException}, which PMD reports as an error of the
+     * file, and the remaining files fail before they are parsed.
+     */
+    private static class QueueSpliterator extends Spliterators.AbstractSpliterator<ClassOrInterfaceTypeContext> {
+
+        private final DataClumpsAstExtractor extractor;
+        private final Collection<Path> paths;
+        private final Map<String, String> sources;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(STREAM_BUFFER_SIZE);
+        private volatile boolean closed;
+        private volatile Throwable failure;
+        private Thread producer;
+        private boolean finished;
+
+        QueueSpliterator(DataClumpsAstExtractor extractor, Collection<Path> paths, Map<String, String> sources){
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.extractor = extractor;
+            this.paths = paths;
+            this.sources = sources;
+        }
+
+        private void startProducer(){
+            this.producer = new Thread(() -> {
+                try {
+                    this.extractor.run(this.paths, this.sources, this::offer, () -> this.closed);
+                } catch (Throwable t) {
+                    if (!this.closed) {
+                        this.failure = t;
+                    }
+                } finally {
+                    try {
+                        this.offer(END_OF_STREAM);
+                    } catch (CancellationException e) {
+                        // nobody reads the end any more
+                    }
+                }
+            }, "data-clumps-ast-extraction");
+            this.producer.setDaemon(true);
+            this.producer.start();
+        }
+
+        private void offer(Object item){
+            try {
+                while (!this.closed) {
+                    if (this.queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    // wait until the reader took some classes
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CancellationException("The stream of the AST extraction was closed");
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ClassOrInterfaceTypeContext> action) {
+            if (this.finished) {
+                return false;
+            }
+            if (this.producer == null) {
+                this.startProducer();
+            }
+            Object item;
+            try {
+                item = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the AST extraction", e);
+            }
+            if (item == END_OF_STREAM) {
+                this.finished = true;
+                if (this.failure != null) {
+                    throw new IllegalStateException("AST extraction failed", this.failure);
+                }
+                return false;
+            }
+            action.accept((ClassOrInterfaceTypeContext) item);
+            return true;
+        }
+
+        void close(){
+            this.closed = true;
+            this.queue.clear();
+            if (this.producer != null) {
+                this.producer.interrupt(); // stops PMD waiting for its threads, they are interrupted in turn
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.document.TextFileContent;
+
+import java.io.IOException;
+
+/**
+ * A java file which PMD reads with blank method bodies ({@link MethodBodyBlanker}). The blanking happens when
+ * a PMD worker thread reads the file, so it runs in parallel like the parsing.
+ */
+class DeclarationsOnlyTextFile implements TextFile {
+
+    private final TextFile file;
+
+    DeclarationsOnlyTextFile(TextFile file){
+        this.file = file;
+    }
+
+    @Override
+    public LanguageVersion getLanguageVersion(){
+        return this.file.getLanguageVersion();
+    }
+
+    @Override
+    public FileId getFileId(){
+        return this.file.getFileId();
+    }
+
+    @Override
+    public TextFileContent readContents() throws IOException {
+        TextFileContent content = this.file.readContents();
+        return TextFileContent.fromCharSeq(MethodBodyBlanker.blankBodies(content.getNormalizedText()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof DeclarationsOnlyTextFile && this.file.equals(((DeclarationsOnlyTextFile) other).file);
+    }
+
+    @Override
+    public int hashCode(){
+        return this.file.hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return this.file.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * Thrown at an extraction checkpoint when the current file used up its time or memory budget.
+ */
+public class ExtractionBudgetExceededException extends RuntimeException {
+
+    private final SkippedFile.Reason reason;
+
+    public ExtractionBudgetExceededException(SkippedFile.Reason reason, String message){
+        super(message);
+        this.reason = reason;
+    }
+
+    public SkippedFile.Reason getReason(){
+        return this.reason;
+    }
+}
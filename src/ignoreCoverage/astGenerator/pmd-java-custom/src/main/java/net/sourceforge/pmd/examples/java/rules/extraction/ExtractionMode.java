@@ -0,0 +1,28 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * How the type names of fields, parameters, return types and supertypes are determined.
+ */
+public enum ExtractionMode {
+    /**
+     * Fully qualified names from the PMD type resolution.
+     */
+    FULL,
+    /**
+     * The type names as they are written in the source code. No type resolution at all, therefore much
+     * cheaper, but the names are not qualified and hasTypeVariable is always false.
+     */
+    SOURCE_TEXT,
+    /**
+     * The type names are qualified syntactically through the imports, the package and the types declared in the
+     * compilation unit, without the PMD type resolution. Every type name carries a {@link TypePrecision}.
+     */
+    STRUCTURAL;
+
+    public static ExtractionMode fromString(String value, ExtractionMode defaultMode){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultMode;
+        }
+        return ExtractionMode.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,136 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * Typed options for the AST extraction. The PMD ruleset path ({@code make run}) fills them from the
+ * environment variables, embedding code creates them directly.
+ */
+public class ExtractionOptions {
+
+    public static final String DEFAULT_DESTINATION = "./output";
+
+    public String source; // root folder of the analysed sources, file_path of a class is relative to it
+    public String destination = DEFAULT_DESTINATION; // folder to write the parsed AST files into
+    public boolean ignoreDublicateDefinition = true; // false: throw if a class key is defined in multiple files
+    public boolean ignoreWildcardImports = true;
+    public boolean generateReferencesOfFieldsAndMethods = false;
+    public String auxClasspath; // optional classpath used by PMD for type resolution
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public ExtractionMode mode = ExtractionMode.FULL;
+    public long fileTimeBudgetMillis = 0; // 0: no time budget per file
+    public long fileMemoryBudgetBytes = 0; // 0: no memory budget per file
+    public ExtractionMode retryMode; // mode to retry a file once if it failed or exceeded its budget, null: no retry
+    public boolean writeTypeHierarchyIndex = false; // FULL mode only: write the resolved type hierarchies into .extraction/type-hierarchy.jsonl
+    public OutputTransport outputTransport = OutputTransport.FILES;
+    public String outputPipe; // file or named pipe of the PIPE transport
+    public StreamRecordFormat streamRecordFormat = StreamRecordFormat.NDJSON;
+    public boolean checkpoint = false; // journal the completed files into .extraction/journal.jsonl, the launcher resumes from it
+    public OutputProjection projection = OutputProjection.FULL;
+    // thresholds of the detector, used by the DETECTION projection
+    public int sharedFieldsToFieldsAmountMinimum = 3;
+    public int sharedParametersToParametersAmountMinimum = 3;
+    public int sharedParametersToFieldsAmountMinimum = 3;
+    public boolean analyseFieldsInClassesOrInterfacesInheritedFromSuperClassesOrInterfaces = false;
+    public boolean writeStatisticsSummary = false; // count the extracted classes into .extraction/statistics.json
+    public boolean variableSimilarityKeys = false; // add the normalized name, name tokens and type class id to fields and parameters
+    public int parallelTypeDeclarationsThreshold = 256; // extract the type declarations of a file with at least this many in parallel, 0: never
+    public String auxClassSources; // JARs and class folders whose classes are written as auxclass, separated like a classpath
+    public String auxClassCache; // folder for the auxclass contexts of every read JAR, null: no cache
+    public boolean declarationsOnly = false; // PMD parses the files with blank method bodies, see isDeclarationsOnly()
+    public int estimateSampleFiles = 100; // java files the cost estimate (--estimate) extracts to extrapolate from
+
+    public ExtractionOptions(){
+
+    }
+
+    public static ExtractionOptions fromEnvironment(){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = System.getenv("SOURCE");
+        String destination = System.getenv("DESTINATION");
+        if (destination != null) {
+            options.destination = destination;
+        }
+        options.ignoreDublicateDefinition = parseBoolean(System.getenv("IGNORE_DUBLICATE_DEFINITION"), true);
+        options.ignoreWildcardImports = parseBoolean(System.getenv("IGNORE_WILDCARD_IMPORTS"), true);
+        options.generateReferencesOfFieldsAndMethods = parseBoolean(System.getenv("GENERATE_REFERENCES_OF_FIELDS_AND_METHODS"), false);
+        options.mode = ExtractionMode.fromString(System.getenv("EXTRACTION_MODE"), ExtractionMode.FULL);
+        options.fileTimeBudgetMillis = parseLong(System.getenv("FILE_TIME_BUDGET_MS"), 0);
+        options.fileMemoryBudgetBytes = parseLong(System.getenv("FILE_MEMORY_BUDGET_MB"), 0) * 1024 * 1024;
+        options.retryMode = ExtractionMode.fromString(System.getenv("RETRY_MODE"), null);
+        options.writeTypeHierarchyIndex = parseBoolean(System.getenv("TYPE_HIERARCHY_INDEX"), false);
+        options.outputTransport = OutputTransport.fromString(System.getenv("OUTPUT_TRANSPORT"), OutputTransport.FILES);
+        options.outputPipe = System.getenv("OUTPUT_PIPE");
+        options.streamRecordFormat = StreamRecordFormat.fromString(System.getenv("STREAM_RECORD_FORMAT"), StreamRecordFormat.NDJSON);
+        options.checkpoint = parseBoolean(System.getenv("CHECKPOINT"), false);
+        options.projection = OutputProjection.fromString(System.getenv("OUTPUT_PROJECTION"), OutputProjection.FULL);
+        options.sharedFieldsToFieldsAmountMinimum = (int) parseLong(System.getenv("SHARED_FIELDS_TO_FIELDS_AMOUNT_MINIMUM"), 3);
+        options.sharedParametersToParametersAmountMinimum = (int) parseLong(System.getenv("SHARED_PARAMETERS_TO_PARAMETERS_AMOUNT_MINIMUM"), 3);
+        options.sharedParametersToFieldsAmountMinimum = (int) parseLong(System.getenv("SHARED_PARAMETERS_TO_FIELDS_AMOUNT_MINIMUM"), 3);
+        options.analyseFieldsInClassesOrInterfacesInheritedFromSuperClassesOrInterfaces = parseBoolean(System.getenv("ANALYSE_INHERITED_FIELDS"), false);
+        options.writeStatisticsSummary = parseBoolean(System.getenv("STATISTICS_SUMMARY"), false);
+        options.variableSimilarityKeys = parseBoolean(System.getenv("VARIABLE_SIMILARITY_KEYS"), false);
+        options.parallelTypeDeclarationsThreshold = (int) parseLong(System.getenv("PARALLEL_TYPE_DECLARATIONS_THRESHOLD"), 256);
+        options.auxClassSources = System.getenv("AUX_CLASS_SOURCES");
+        options.auxClassCache = System.getenv("AUX_CLASS_CACHE");
+        options.declarationsOnly = parseBoolean(System.getenv("DECLARATIONS_ONLY"), false);
+        options.estimateSampleFiles = (int) parseLong(System.getenv("ESTIMATE_SAMPLE_FILES"), 100);
+        return options;
+    }
+
+    /**
+     * The declarations-only mode skips the statements of the method bodies, which are most of the AST, so it
+     * turns itself off when the references of the fields and methods are generated from them.
+     */
+    public boolean isDeclarationsOnly(){
+        return this.declarationsOnly && !this.generateReferencesOfFieldsAndMethods;
+    }
+
+    /**
+     * Parses a boolean flag like the makefile passes it. The user may enter TRUE or True as well.
+     */
+    public static boolean parseBoolean(String value, boolean defaultValue){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim().toLowerCase().equals("true");
+    }
+
+    public static long parseLong(String value, long defaultValue){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    public ExtractionOptions copy(){
+        ExtractionOptions copy = new ExtractionOptions();
+        copy.source = this.source;
+        copy.destination = this.destination;
+        copy.ignoreDublicateDefinition = this.ignoreDublicateDefinition;
+        copy.ignoreWildcardImports = this.ignoreWildcardImports;
+        copy.generateReferencesOfFieldsAndMethods = this.generateReferencesOfFieldsAndMethods;
+        copy.auxClasspath = this.auxClasspath;
+        copy.threads = this.threads;
+        copy.mode = this.mode;
+        copy.fileTimeBudgetMillis = this.fileTimeBudgetMillis;
+        copy.fileMemoryBudgetBytes = this.fileMemoryBudgetBytes;
+        copy.retryMode = this.retryMode;
+        copy.writeTypeHierarchyIndex = this.writeTypeHierarchyIndex;
+        copy.outputTransport = this.outputTransport;
+        copy.outputPipe = this.outputPipe;
+        copy.streamRecordFormat = this.streamRecordFormat;
+        copy.checkpoint = this.checkpoint;
+        copy.projection = this.projection;
+        copy.sharedFieldsToFieldsAmountMinimum = this.sharedFieldsToFieldsAmountMinimum;
+        copy.sharedParametersToParametersAmountMinimum = this.sharedParametersToParametersAmountMinimum;
+        copy.sharedParametersToFieldsAmountMinimum = this.sharedParametersToFieldsAmountMinimum;
+        copy.analyseFieldsInClassesOrInterfacesInheritedFromSuperClassesOrInterfaces = this.analyseFieldsInClassesOrInterfacesInheritedFromSuperClassesOrInterfaces;
+        copy.writeStatisticsSummary = this.writeStatisticsSummary;
+        copy.variableSimilarityKeys = this.variableSimilarityKeys;
+        copy.parallelTypeDeclarationsThreshold = this.parallelTypeDeclarationsThreshold;
+        copy.auxClassSources = this.auxClassSources;
+        copy.auxClassCache = this.auxClassCache;
+        copy.declarationsOnly = this.declarationsOnly;
+        copy.estimateSampleFiles = this.estimateSampleFiles;
+        return copy;
+    }
+}
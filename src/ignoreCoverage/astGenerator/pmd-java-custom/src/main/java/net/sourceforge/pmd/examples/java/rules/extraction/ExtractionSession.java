@@ -0,0 +1,105 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.TypeHierarchyContext;
+import net.sourceforge.pmd.examples.java.rules.statistics.ExtractionStatistics;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Connects the rule instances PMD creates (one copy per thread) with the options and the consumer of
+ * an embedded extraction run. PMD only copies property values into the rule copies, therefore the rule
+ * receives the id of the session and looks the session up here.
+ */
+public class ExtractionSession implements AutoCloseable {
+
+    private static final Map<String, ExtractionSession> SESSIONS = new ConcurrentHashMap<String, ExtractionSession>();
+
+    private final String id;
+    private final ExtractionOptions options;
+    private final Consumer<ClassOrInterfaceTypeContext> consumer;
+    private final Consumer<SkippedFile> skippedFileConsumer;
+    private Consumer<TypeHierarchyContext> typeHierarchyConsumer; // null: no type hierarchies are resolved
+    private Consumer<CompletedFile> completedFileConsumer; // null: the completed files are not journaled
+    private ExtractionStatistics statistics; // null: no statistics are collected
+    private PackageMemberIndex packageMemberIndex; // null: on-demand imports are ignored
+
+    private ExtractionSession(ExtractionOptions options, Consumer<ClassOrInterfaceTypeContext> consumer, Consumer<SkippedFile> skippedFileConsumer){
+        this.id = UUID.randomUUID().toString();
+        this.options = options;
+        this.consumer = consumer;
+        this.skippedFileConsumer = skippedFileConsumer;
+    }
+
+    public static ExtractionSession open(ExtractionOptions options, Consumer<ClassOrInterfaceTypeContext> consumer, Consumer<SkippedFile> skippedFileConsumer){
+        ExtractionSession session = new ExtractionSession(options, consumer, skippedFileConsumer);
+        SESSIONS.put(session.id, session);
+        return session;
+    }
+
+    /**
+     * @return the session or null if there is no open session with this id
+     */
+    public static ExtractionSession get(String id){
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        return SESSIONS.get(id);
+    }
+
+    public String getId(){
+        return this.id;
+    }
+
+    public ExtractionOptions getOptions(){
+        return this.options;
+    }
+
+    public Consumer<ClassOrInterfaceTypeContext> getConsumer(){
+        return this.consumer;
+    }
+
+    public Consumer<SkippedFile> getSkippedFileConsumer(){
+        return this.skippedFileConsumer;
+    }
+
+    public Consumer<TypeHierarchyContext> getTypeHierarchyConsumer(){
+        return this.typeHierarchyConsumer;
+    }
+
+    public void setTypeHierarchyConsumer(Consumer<TypeHierarchyContext> typeHierarchyConsumer){
+        this.typeHierarchyConsumer = typeHierarchyConsumer;
+    }
+
+    public Consumer<CompletedFile> getCompletedFileConsumer(){
+        return this.completedFileConsumer;
+    }
+
+    public void setCompletedFileConsumer(Consumer<CompletedFile> completedFileConsumer){
+        this.completedFileConsumer = completedFileConsumer;
+    }
+
+    public ExtractionStatistics getStatistics(){
+        return this.statistics;
+    }
+
+    public void setStatistics(ExtractionStatistics statistics){
+        this.statistics = statistics;
+    }
+
+    public PackageMemberIndex getPackageMemberIndex(){
+        return this.packageMemberIndex;
+    }
+
+    public void setPackageMemberIndex(PackageMemberIndex packageMemberIndex){
+        this.packageMemberIndex = packageMemberIndex;
+    }
+
+    @Override
+    public void close(){
+        SESSIONS.remove(this.id);
+    }
+}
@@ -0,0 +1,108 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Wall-clock and memory budget of the extraction of a single file. The memory is measured as the bytes
+ * allocated by the extracting thread since the start of the file, which includes garbage, so the
+ * budget is an upper bound of what the file can cost.
+ * <p>
+ * PMD cannot interrupt a running parser, therefore the budget is checked at checkpoints: before the
+ * extraction of the file and before every class and member. A file exceeding its budget during the parse
+ * is abandoned right after the parse.
+ * <p>
+ * The budget belongs to the thread which started it. The fork-join tasks of a file which is extracted in
+ * parallel check the time budget of the file and the memory allocated by that thread, their own allocations
+ * are not counted.
+ */
+public class FileBudget {
+
+    private static final ThreadLocal<FileBudget> CURRENT = new ThreadLocal<FileBudget>();
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final String fileId;
+    private final long timeBudgetMillis;
+    private final long memoryBudgetBytes;
+    private final long startNanos;
+    private final long ownerThreadId;
+    private final long startAllocatedBytes;
+
+    public FileBudget(String fileId, long timeBudgetMillis, long memoryBudgetBytes){
+        this.fileId = fileId;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.startNanos = System.nanoTime();
+        this.ownerThreadId = Thread.currentThread().getId();
+        this.startAllocatedBytes = allocatedBytes(this.ownerThreadId);
+    }
+
+    public static FileBudget start(String fileId, ExtractionOptions options){
+        return new FileBudget(fileId, options.fileTimeBudgetMillis, options.fileMemoryBudgetBytes);
+    }
+
+    /**
+     * Remembers the budget for the current thread, so that it can start before PMD parses the file.
+     */
+    public static void setCurrent(FileBudget budget){
+        if (budget == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(budget);
+        }
+    }
+
+    /**
+     * @return the budget started for this file on the current thread or a new budget starting now
+     */
+    public static FileBudget currentOrStart(String fileId, ExtractionOptions options){
+        FileBudget current = CURRENT.get();
+        if (current != null && current.fileId.equals(fileId)) {
+            return current;
+        }
+        return start(fileId, options);
+    }
+
+    public long getElapsedMillis(){
+        return this.getElapsedNanos() / 1000000L;
+    }
+
+    public long getElapsedNanos(){
+        return System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * @return the bytes allocated since the start or -1 if the JVM cannot measure it
+     */
+    public long getAllocatedBytes(){
+        if (this.startAllocatedBytes < 0) {
+            return -1;
+        }
+        return allocatedBytes(this.ownerThreadId) - this.startAllocatedBytes;
+    }
+
+    public void check(){
+        if (this.timeBudgetMillis > 0) {
+            long elapsedMillis = this.getElapsedMillis();
+            if (elapsedMillis > this.timeBudgetMillis) {
+                throw new ExtractionBudgetExceededException(SkippedFile.Reason.TIME_BUDGET, "Time budget of "+this.timeBudgetMillis+" ms exceeded after "+elapsedMillis+" ms");
+            }
+        }
+        if (this.memoryBudgetBytes > 0) {
+            long allocatedBytes = this.getAllocatedBytes();
+            if (allocatedBytes > this.memoryBudgetBytes) {
+                throw new ExtractionBudgetExceededException(SkippedFile.Reason.MEMORY_BUDGET, "Memory budget of "+this.memoryBudgetBytes+" bytes exceeded with "+allocatedBytes+" allocated bytes");
+            }
+        }
+    }
+
+    private static long allocatedBytes(long threadId){
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return threadMXBean.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+}
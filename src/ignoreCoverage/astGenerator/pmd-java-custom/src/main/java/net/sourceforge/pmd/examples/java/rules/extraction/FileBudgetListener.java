@@ -0,0 +1,67 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.lang.ast.ParseException;
+import net.sourceforge.pmd.lang.ast.TokenMgrError;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+
+import java.util.function.Consumer;
+
+/**
+ * Starts the budget of a file before PMD parses it, so the parse time and memory count into the budget,
+ * and records the files PMD could not process (for example because they do not compile) in the skip report.
+ * The listener is called on the same PMD thread which runs the rule on the file.
+ */
+public class FileBudgetListener implements GlobalAnalysisListener {
+
+    private final ExtractionOptions options;
+    private final Consumer<SkippedFile> skippedFileConsumer;
+
+    public FileBudgetListener(ExtractionOptions options, Consumer<SkippedFile> skippedFileConsumer){
+        this.options = options;
+        this.skippedFileConsumer = skippedFileConsumer;
+    }
+
+    @Override
+    public FileAnalysisListener startFileAnalysis(TextFile file) {
+        String originalPath = file.getFileId().getOriginalPath();
+        FileBudget budget = FileBudget.start(originalPath, this.options);
+        FileBudget.setCurrent(budget);
+        ExtractionEvents.get().beginFileParse(originalPath); // ended by MyRule once the file is parsed
+
+        return new FileAnalysisListener() {
+            @Override
+            public void onRuleViolation(RuleViolation violation) {
+                // MyRule reports no violations
+            }
+
+            @Override
+            public void onError(Report.ProcessingError error) {
+                SkippedFile skippedFile = new SkippedFile();
+                skippedFile.file_path = ClassOrInterfaceExtractor.getRelativeFilePath(originalPath, options.source);
+                Throwable cause = error.getError();
+                boolean parseError = cause instanceof ParseException || cause instanceof TokenMgrError;
+                skippedFile.reason = parseError ? SkippedFile.Reason.PARSE_ERROR : SkippedFile.Reason.EXTRACTION_ERROR;
+                skippedFile.message = error.getMsg();
+                skippedFile.elapsedMillis = budget.getElapsedMillis();
+                skippedFile.allocatedBytes = budget.getAllocatedBytes();
+                skippedFileConsumer.accept(skippedFile);
+            }
+
+            @Override
+            public void close() {
+                FileBudget.setCurrent(null);
+                ExtractionEvents.get().endFileParse(0, false); // only still open if the file could not be parsed
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
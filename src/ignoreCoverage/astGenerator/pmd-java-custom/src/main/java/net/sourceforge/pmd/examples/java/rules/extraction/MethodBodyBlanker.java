@@ -0,0 +1,280 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Blanks the bodies of the methods, constructors and initializers of a java file for the declarations-only
+ * extraction: every character of a body except the line breaks becomes a space, so PMD builds and resolves no
+ * statements and expressions, while every declaration keeps its line and column.
+ * <p>
+ * This is no parser, it only scans the tokens which decide what a brace opens. A body which declares a local
+ * class stays as it is, because MyRule extracts local classes too. Braces in field initializers and annotations
+ * are never blanked. A file which can not be scanned, e.g. with unbalanced braces or a unicode escape outside of
+ * a literal, is returned unchanged and PMD reports it like without this mode.
+ */
+class MethodBodyBlanker {
+
+    private enum FrameKind {
+        COMPILATION_UNIT, TYPE_BODY, OTHER
+    }
+
+    private enum TokenKind {
+        WORD, PUNCTUATION, LITERAL, END
+    }
+
+    /**
+     * A brace pair on the stack. Inside of COMPILATION_UNIT and TYPE_BODY the tokens since the last member
+     * are collected into a header, which decides what the next brace opens.
+     */
+    private static class Frame {
+        final FrameKind kind;
+        final boolean endsMember; // false: the braces are part of a member header, e.g. "int[] values = {1, 2};"
+        int parenthesisDepth;
+        boolean assignment; // "=" outside of parentheses: a field initializer follows
+        boolean typeKeyword; // class, interface, enum, @interface or record: a type body follows
+
+        Frame(FrameKind kind, boolean endsMember){
+            this.kind = kind;
+            this.endsMember = endsMember;
+        }
+
+        void resetHeader(){
+            this.parenthesisDepth = 0;
+            this.assignment = false;
+            this.typeKeyword = false;
+        }
+    }
+
+    private final String text;
+    private int position;
+    private TokenKind tokenKind;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean afterDot; // the previous token was ".", e.g. String.class is no declaration
+
+    private MethodBodyBlanker(String text){
+        this.text = text;
+    }
+
+    /**
+     * @return the text with blank bodies, the same text if it has no bodies or can not be scanned
+     */
+    static String blankBodies(CharSequence text){
+        String original = text.toString();
+        char[] blanked = new MethodBodyBlanker(original).blank();
+        return blanked != null ? new String(blanked) : original;
+    }
+
+    /**
+     * @return the blanked characters or null if nothing was blanked or the text can not be scanned
+     */
+    private char[] blank(){
+        char[] chars = null;
+        Deque<Frame> frames = new ArrayDeque<Frame>();
+        Frame frame = new Frame(FrameKind.COMPILATION_UNIT, true);
+        while (this.nextToken()) {
+            if (this.tokenKind == TokenKind.LITERAL) {
+                continue;
+            }
+            if (frame.kind == FrameKind.OTHER) {
+                if (this.isPunctuation('{')) {
+                    frames.push(frame);
+                    frame = new Frame(FrameKind.OTHER, false);
+                } else if (this.isPunctuation('}')) {
+                    frame = frames.pop();
+                }
+                continue;
+            }
+            if (this.tokenKind == TokenKind.WORD) {
+                frame.typeKeyword |= this.isTypeKeyword();
+            } else if (this.isPunctuation('(')) {
+                frame.parenthesisDepth++;
+            } else if (this.isPunctuation(')')) {
+                frame.parenthesisDepth--;
+            } else if (this.isPunctuation('=') && frame.parenthesisDepth == 0) {
+                frame.assignment = true;
+            } else if (this.isPunctuation(';') && frame.parenthesisDepth == 0) {
+                frame.resetHeader();
+            } else if (this.isPunctuation('{')) {
+                if (frame.parenthesisDepth > 0 || frame.assignment) {
+                    frames.push(frame);
+                    frame = new Frame(FrameKind.OTHER, false);
+                } else if (frame.typeKeyword) {
+                    frames.push(frame);
+                    frame = new Frame(FrameKind.TYPE_BODY, true);
+                } else if (frame.kind == FrameKind.TYPE_BODY) {
+                    // method, constructor, compact record constructor, initializer or enum constant body
+                    int bodyStart = this.tokenEnd;
+                    int bodyEnd = this.findClosingBrace();
+                    if (bodyEnd < 0) {
+                        return null;
+                    }
+                    if (bodyEnd > 0) {
+                        if (chars == null) {
+                            chars = this.text.toCharArray();
+                        }
+                        for (int i = bodyStart; i < bodyEnd; i++) {
+                            if (chars[i] != '\n' && chars[i] != '\r') {
+                                chars[i] = ' ';
+                            }
+                        }
+                    }
+                    frame.resetHeader();
+                } else {
+                    frames.push(frame);
+                    frame = new Frame(FrameKind.OTHER, true);
+                }
+            } else if (this.isPunctuation('}')) {
+                if (frames.isEmpty()) {
+                    return null;
+                }
+                boolean endsMember = frame.endsMember;
+                frame = frames.pop();
+                if (endsMember) {
+                    frame.resetHeader();
+                }
+            }
+        }
+        if (this.tokenKind != TokenKind.END || !frames.isEmpty()) {
+            return null; // unbalanced braces or a token which could not be scanned
+        }
+        return chars;
+    }
+
+    /**
+     * Continues after the opening brace of a body up to its closing brace.
+     *
+     * @return the position of the closing brace, 0 if the body declares a local class and stays, -1 if the body does not end
+     */
+    private int findClosingBrace(){
+        int depth = 1;
+        boolean localType = false;
+        while (this.nextToken()) {
+            if (this.tokenKind == TokenKind.WORD) {
+                localType |= this.isTypeKeyword();
+            } else if (this.isPunctuation('{')) {
+                depth++;
+            } else if (this.isPunctuation('}')) {
+                depth--;
+                if (depth == 0) {
+                    return localType ? 0 : this.tokenStart;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isTypeKeyword(){
+        if (this.afterDot) {
+            return false;
+        }
+        if (this.isWord("class") || this.isWord("interface") || this.isWord("enum")) {
+            return true;
+        }
+        if (!this.isWord("record")) {
+            return false;
+        }
+        // record is no keyword: only "record Name(" and "record Name<" declare a record
+        int savedPosition = this.position;
+        int savedStart = this.tokenStart;
+        int savedEnd = this.tokenEnd;
+        boolean record = this.nextToken() && this.tokenKind == TokenKind.WORD
+                && this.nextToken() && (this.isPunctuation('(') || this.isPunctuation('<'));
+        this.position = savedPosition;
+        this.tokenKind = TokenKind.WORD;
+        this.tokenStart = savedStart;
+        this.tokenEnd = savedEnd;
+        this.afterDot = false;
+        return record;
+    }
+
+    private boolean isWord(String word){
+        return this.tokenEnd - this.tokenStart == word.length() && this.text.startsWith(word, this.tokenStart);
+    }
+
+    private boolean isPunctuation(char punctuation){
+        return this.tokenKind == TokenKind.PUNCTUATION && this.text.charAt(this.tokenStart) == punctuation;
+    }
+
+    /**
+     * Skips white space and comments and reads the next word (identifier, keyword or number), literal or
+     * punctuation character.
+     *
+     * @return false at the end of the text or if the text can not be scanned, then tokenKind is END or not
+     */
+    private boolean nextToken(){
+        this.afterDot = this.tokenKind == TokenKind.PUNCTUATION && this.text.charAt(this.tokenStart) == '.';
+        String text = this.text;
+        int length = text.length();
+        while (this.position < length) {
+            char c = text.charAt(this.position);
+            if (Character.isWhitespace(c)) {
+                this.position++;
+            } else if (text.startsWith("//", this.position)) {
+                int lineEnd = text.indexOf('\n', this.position);
+                this.position = lineEnd >= 0 ? lineEnd + 1 : length;
+            } else if (text.startsWith("/*", this.position)) {
+                int commentEnd = text.indexOf("*/", this.position + 2);
+                if (commentEnd < 0) {
+                    return this.fail();
+                }
+                this.position = commentEnd + 2;
+            } else {
+                break;
+            }
+        }
+        if (this.position >= length) {
+            this.tokenKind = TokenKind.END;
+            return false;
+        }
+        this.tokenStart = this.position;
+        char c = text.charAt(this.position);
+        if (Character.isJavaIdentifierPart(c)) {
+            while (this.position < length && Character.isJavaIdentifierPart(text.charAt(this.position))) {
+                this.position++;
+            }
+            this.tokenKind = TokenKind.WORD;
+        } else if (text.startsWith("\"\"\"", this.position)) {
+            if (!this.skipLiteral(this.position + 3, "\"\"\"")) {
+                return this.fail();
+            }
+        } else if (c == '"' || c == '\'') {
+            if (!this.skipLiteral(this.position + 1, String.valueOf(c))) {
+                return this.fail();
+            }
+        } else if (c == '\\') {
+            return this.fail(); // a unicode escape outside of a literal could hide a brace or a quote
+        } else {
+            this.position++;
+            this.tokenKind = TokenKind.PUNCTUATION;
+        }
+        this.tokenEnd = this.position;
+        return true;
+    }
+
+    private boolean skipLiteral(int contentStart, String delimiter){
+        int i = contentStart;
+        while (i < this.text.length()) {
+            char c = this.text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (this.text.startsWith(delimiter, i)) {
+                this.position = i + delimiter.length();
+                this.tokenKind = TokenKind.LITERAL;
+                return true;
+            } else if (c == '\n' && delimiter.length() == 1) {
+                return false;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    private boolean fail(){
+        this.tokenKind = null;
+        this.position = this.text.length();
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * Which parts of the extracted classes are written into the output.
+ */
+public enum OutputProjection {
+    /**
+     * The whole model of every class.
+     */
+    FULL,
+    /**
+     * Only what the detector needs with the thresholds of the options, see
+     * {@link net.sourceforge.pmd.examples.java.rules.projection.DetectionProjection}. The positions and the
+     * modifiers which are only needed for the report are written into a separate file per class.
+     */
+    DETECTION;
+
+    public static OutputProjection fromString(String value, OutputProjection defaultProjection){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultProjection;
+        }
+        return OutputProjection.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,27 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * How the extracted classes are handed over to the analysis. The streams are written by the launcher only
+ * ({@code make stream}), and the Node analysis does not read them yet, it still reads the files after the run.
+ */
+public enum OutputTransport {
+    /**
+     * One "[classKey].json" file per class in DESTINATION, read by the ParserHelper after the run.
+     */
+    FILES,
+    /**
+     * One record per class on stdout, see {@link StreamRecordFormat}. Log lines go to stderr instead.
+     */
+    STDOUT,
+    /**
+     * One record per class into the file or named pipe OUTPUT_PIPE.
+     */
+    PIPE;
+
+    public static OutputTransport fromString(String value, OutputTransport defaultTransport){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultTransport;
+        }
+        return OutputTransport.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,384 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The top level types of every package of a run: from the java files of the source tree and from the class
+ * files of the classpath. PMD does not know the types of the other source files, so it can not tell whether a
+ * type name belongs to the own package or to an on-demand import like {@code import com.example.model.*;}. With
+ * this index both extraction modes decide it with a hash lookup (options.ignoreWildcardImports = false).
+ * <p>
+ * The top level type declarations of a java file are found with a scan of its tokens at brace depth 0, so the
+ * non-public secondary types of a package shadow the on-demand imports like in the JLS. The package of a java
+ * file is read from its package declaration. The index is built once per project and only read while files are
+ * extracted, so all threads share it; {@link #updateSourceFile(Path)} must not run at the same time as an extraction.
+ */
+public class PackageMemberIndex {
+
+    private static final Map<String, PackageMemberIndex> RUN_INDEXES = new HashMap<String, PackageMemberIndex>();
+
+    private final Map<String, Map<String, Integer>> typesByPackage = new HashMap<String, Map<String, Integer>>(); // package -> simple name -> declaring files
+    private final Map<Path, SourceFileTypes> typesBySourceFile = new HashMap<Path, SourceFileTypes>(); // java files of the folders, for updates
+    private int types;
+
+    private static class SourceFileTypes {
+        final String packageName;
+        final List<String> simpleNames;
+
+        SourceFileTypes(String packageName, List<String> simpleNames){
+            this.packageName = packageName;
+            this.simpleNames = simpleNames;
+        }
+    }
+
+    /**
+     * For {@code make run}, where "pmd check" owns the run: the rule copies of all PMD threads share the index
+     * of the source tree.
+     */
+    public static synchronized PackageMemberIndex getRunIndex(ExtractionOptions options){
+        String source = options.source != null ? new File(options.source).getAbsolutePath() : "";
+        PackageMemberIndex index = RUN_INDEXES.get(source);
+        if (index == null) {
+            index = build(options, Collections.<Path>emptyList(), Collections.<String, String>emptyMap());
+            RUN_INDEXES.put(source, index);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the whole options.source, also if only some of its files are extracted (e.g. one shard), the
+     * paths outside of it, the in-memory sources and the classpath (options.auxClasspath and options.auxClassSources).
+     *
+     * @param sources file path to the source code of the file, like {@link DataClumpsAstExtractor#extractSources}
+     */
+    public static PackageMemberIndex build(ExtractionOptions options, Collection<Path> paths, Map<String, String> sources){
+        PackageMemberIndex index = new PackageMemberIndex();
+        Path sourceRoot = options.source != null ? Paths.get(options.source).toAbsolutePath().normalize() : null;
+        try {
+            if (sourceRoot != null && Files.isDirectory(sourceRoot)) {
+                index.addSourceFolder(sourceRoot);
+            }
+            for (Path path : paths) {
+                Path absolutePath = path.toAbsolutePath().normalize();
+                if (sourceRoot != null && Files.isDirectory(sourceRoot) && absolutePath.startsWith(sourceRoot)) {
+                    continue; // already indexed
+                }
+                if (Files.isDirectory(absolutePath)) {
+                    index.addSourceFolder(absolutePath);
+                } else if (Files.isRegularFile(absolutePath)) {
+                    index.addSourceFile(absolutePath);
+                }
+            }
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                index.addSourceFile(Paths.get(source.getKey()).getFileName().toString(), source.getValue());
+            }
+            index.addClasspath(options.auxClasspath);
+            index.addClasspath(options.auxClassSources);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return index;
+    }
+
+    /**
+     * Resolves a simple type name which is neither declared in the compilation unit nor imported by name, in
+     * the order of the JLS: the own package first, then the on-demand imports in the order they are written.
+     *
+     * @param onDemandImports the imported packages without ".*"
+     * @return the package which declares the type or null if the index knows no such package
+     */
+    public String findPackage(String simpleName, String packageName, List<String> onDemandImports){
+        String ownPackage = packageName != null ? packageName : "";
+        if (this.contains(ownPackage, simpleName)) {
+            return ownPackage;
+        }
+        for (String onDemandImport : onDemandImports) {
+            if (this.contains(onDemandImport, simpleName)) {
+                return onDemandImport;
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String packageName, String simpleName){
+        Map<String, Integer> packageTypes = this.typesByPackage.get(packageName);
+        return packageTypes != null && packageTypes.containsKey(simpleName);
+    }
+
+    /**
+     * Re-reads a java file which was changed, added or deleted since the index was built, e.g. in watch mode.
+     */
+    public void updateSourceFile(Path javaFile){
+        Path absolutePath = javaFile.toAbsolutePath().normalize();
+        SourceFileTypes previousTypes = this.typesBySourceFile.remove(absolutePath);
+        if (previousTypes != null) {
+            for (String simpleName : previousTypes.simpleNames) {
+                this.remove(previousTypes.packageName, simpleName);
+            }
+        }
+        if (Files.isRegularFile(absolutePath)) {
+            try {
+                this.addSourceFile(absolutePath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of indexed top level types
+     */
+    public int getTypes(){
+        return this.types;
+    }
+
+    public int getPackages(){
+        return this.typesByPackage.size();
+    }
+
+    private void add(String packageName, String simpleName){
+        Integer declarations = this.typesByPackage.computeIfAbsent(packageName, name -> new HashMap<String, Integer>()).merge(simpleName, 1, Integer::sum);
+        if (declarations == 1) {
+            this.types++;
+        }
+    }
+
+    private void remove(String packageName, String simpleName){
+        Map<String, Integer> packageTypes = this.typesByPackage.get(packageName);
+        if (packageTypes == null || !packageTypes.containsKey(simpleName)) {
+            return;
+        }
+        if (packageTypes.merge(simpleName, -1, Integer::sum) == 0) {
+            packageTypes.remove(simpleName);
+            this.types--;
+            if (packageTypes.isEmpty()) {
+                this.typesByPackage.remove(packageName);
+            }
+        }
+    }
+
+    private void addSourceFolder(Path folder) throws IOException {
+        List<Path> javaFiles;
+        try (Stream<Path> paths = Files.walk(folder)) {
+            javaFiles = paths.filter(path -> path.getFileName().toString().endsWith(".java") && Files.isRegularFile(path)).collect(Collectors.toList());
+        }
+        for (Path javaFile : javaFiles) {
+            this.addSourceFile(javaFile.toAbsolutePath().normalize());
+        }
+    }
+
+    private void addSourceFile(Path javaFile) throws IOException {
+        SourceFileTypes fileTypes = this.addSourceFile(javaFile.getFileName().toString(), readSource(javaFile));
+        if (fileTypes != null) {
+            this.typesBySourceFile.put(javaFile, fileTypes);
+        }
+    }
+
+    /**
+     * @return the indexed types of the file, null if it is no java file with types
+     */
+    private SourceFileTypes addSourceFile(String fileName, String source){
+        if (!fileName.endsWith(".java") || fileName.equals("package-info.java") || fileName.equals("module-info.java")) {
+            return null;
+        }
+        List<String> simpleNames = getTopLevelTypeNames(source);
+        if (simpleNames.isEmpty()) {
+            // nothing found, e.g. in a file which does not compile: a public type is named like its file
+            simpleNames = Collections.singletonList(fileName.substring(0, fileName.length() - ".java".length()));
+        }
+        String packageName = getPackageName(source);
+        for (String simpleName : simpleNames) {
+            this.add(packageName, simpleName);
+        }
+        return new SourceFileTypes(packageName, simpleNames);
+    }
+
+    private static String readSource(Path javaFile) throws IOException {
+        // ISO-8859-1 never fails to decode and keeps the ASCII of the package declaration
+        return new String(Files.readAllBytes(javaFile), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return the name of the package declaration, "" for the default package
+     */
+    static String getPackageName(String source){
+        int position = source.startsWith("\u00EF\u00BB\u00BF") ? 3 : 0; // the UTF-8 byte order mark, read as ISO-8859-1
+        while (position < source.length()) {
+            if (Character.isWhitespace(source.charAt(position)) || source.charAt(position) == '\uFEFF') {
+                position++;
+            } else if (source.startsWith("//", position)) {
+                int lineEnd = source.indexOf('\n', position);
+                position = lineEnd >= 0 ? lineEnd + 1 : source.length();
+            } else if (source.startsWith("/*", position)) {
+                int commentEnd = source.indexOf("*/", position + 2);
+                position = commentEnd >= 0 ? commentEnd + 2 : source.length();
+            } else {
+                break;
+            }
+        }
+        int nameStart = position + "package".length();
+        if (!source.startsWith("package", position) || nameStart >= source.length() || Character.isJavaIdentifierPart(source.charAt(nameStart))) {
+            return "";
+        }
+        int nameEnd = source.indexOf(';', nameStart);
+        if (nameEnd < 0) {
+            return "";
+        }
+        return source.substring(nameStart, nameEnd).replaceAll("\\s+|/\\*.*?\\*/", "");
+    }
+
+    /**
+     * Scans the tokens of a java file outside of the type bodies for the keywords class, interface (also of
+     * {@code @interface}), enum and record, and takes the identifier after them. Comments and literals are
+     * skipped, {@code Name.class} in an annotation is no declaration.
+     *
+     * @return the simple names of the top level types in the order they are declared
+     */
+    static List<String> getTopLevelTypeNames(String source){
+        List<String> simpleNames = new ArrayList<String>();
+        int length = source.length();
+        int position = 0;
+        int depth = 0;
+        char previous = ' '; // last character of the previous token
+        String typeKeyword = null; // the previous token was a type keyword at depth 0
+        while (position < length) {
+            char c = source.charAt(position);
+            if (Character.isWhitespace(c) || c == '\uFEFF') {
+                position++;
+            } else if (source.startsWith("//", position)) {
+                int lineEnd = source.indexOf('\n', position);
+                position = lineEnd >= 0 ? lineEnd + 1 : length;
+            } else if (source.startsWith("/*", position)) {
+                int commentEnd = source.indexOf("*/", position + 2);
+                position = commentEnd >= 0 ? commentEnd + 2 : length;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int wordEnd = position;
+                while (wordEnd < length && Character.isJavaIdentifierPart(source.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                String word = source.substring(position, wordEnd);
+                if (typeKeyword != null) {
+                    // "record" is no keyword, only "record Name(" and "record Name<" declare a record
+                    if (!typeKeyword.equals("record") || isFollowedBy(source, wordEnd, '(', '<')) {
+                        simpleNames.add(word);
+                    }
+                    typeKeyword = null;
+                } else if (depth == 0 && previous != '.' && isTypeKeyword(word)) {
+                    typeKeyword = word;
+                }
+                previous = 'a';
+                position = wordEnd;
+            } else {
+                if (source.startsWith("\"\"\"", position)) {
+                    position = skipLiteral(source, position + 3, "\"\"\"");
+                } else if (c == '"' || c == '\'') {
+                    position = skipLiteral(source, position + 1, String.valueOf(c));
+                } else {
+                    if (c == '{') {
+                        depth++;
+                    } else if (c == '}') {
+                        depth--;
+                    }
+                    position++;
+                }
+                if (c != '@') {
+                    typeKeyword = null;
+                }
+                previous = c;
+            }
+        }
+        return simpleNames;
+    }
+
+    private static boolean isTypeKeyword(String word){
+        return word.equals("class") || word.equals("interface") || word.equals("enum") || word.equals("record");
+    }
+
+    private static boolean isFollowedBy(String source, int position, char first, char second){
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+        return position < source.length() && (source.charAt(position) == first || source.charAt(position) == second);
+    }
+
+    /**
+     * @return the position after the closing delimiter, the end of the source if the literal does not end
+     */
+    private static int skipLiteral(String source, int contentStart, String delimiter){
+        int position = contentStart;
+        while (position < source.length()) {
+            if (source.charAt(position) == '\\') {
+                position += 2;
+            } else if (source.startsWith(delimiter, position)) {
+                return position + delimiter.length();
+            } else {
+                position++;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * @param classpath JARs and class folders separated by {@link File#pathSeparator}, null: none
+     */
+    private void addClasspath(String classpath) throws IOException {
+        if (classpath == null) {
+            return;
+        }
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            Path path = Paths.get(entry.trim());
+            if (Files.isDirectory(path)) {
+                List<Path> classFiles;
+                try (Stream<Path> paths = Files.walk(path)) {
+                    classFiles = paths.filter(file -> file.getFileName().toString().endsWith(".class") && Files.isRegularFile(file)).collect(Collectors.toList());
+                }
+                for (Path classFile : classFiles) {
+                    this.addClassFile(path.relativize(classFile).toString().replace('\\', '/'));
+                }
+            } else if (Files.isRegularFile(path)) {
+                try (ZipFile zipFile = new ZipFile(path.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                            this.addClassFile(name);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param classFile path like com/example/Invoice.class, member and local classes (with a $) are skipped
+     */
+    private void addClassFile(String classFile){
+        String binaryName = classFile.substring(0, classFile.length() - ".class".length());
+        int lastSlash = binaryName.lastIndexOf('/');
+        String simpleName = binaryName.substring(lastSlash + 1);
+        if (simpleName.indexOf('$') >= 0 || simpleName.equals("package-info") || simpleName.equals("module-info")) {
+            return;
+        }
+        this.add(lastSlash >= 0 ? binaryName.substring(0, lastSlash).replace('/', '.') : "", simpleName);
+    }
+}
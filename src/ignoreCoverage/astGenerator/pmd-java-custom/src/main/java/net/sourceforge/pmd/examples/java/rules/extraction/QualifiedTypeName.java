@@ -0,0 +1,21 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * A type name as it is written into the output, together with how it was obtained.
+ */
+public class QualifiedTypeName {
+
+    public final String name;
+    public final TypePrecision precision; // null: resolved by the PMD type resolution
+    public final boolean hasTypeVariable;
+
+    public QualifiedTypeName(String name, TypePrecision precision, boolean hasTypeVariable){
+        this.name = name;
+        this.precision = precision;
+        this.hasTypeVariable = hasTypeVariable;
+    }
+
+    public String getPrecisionName(){
+        return this.precision != null ? this.precision.name() : null;
+    }
+}
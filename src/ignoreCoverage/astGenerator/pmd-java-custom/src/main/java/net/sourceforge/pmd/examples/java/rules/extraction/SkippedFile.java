@@ -0,0 +1,26 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * Entry of the skip report: a file which was abandoned or could not be extracted.
+ */
+public class SkippedFile {
+
+    public enum Reason {
+        TIME_BUDGET, // the file took longer than options.fileTimeBudgetMillis
+        MEMORY_BUDGET, // the file allocated more than options.fileMemoryBudgetBytes
+        PARSE_ERROR, // the file does not compile, e.g. testSrc/javaCompiling/ClassWithCompilerError.java
+        EXTRACTION_ERROR // unexpected exception while extracting the classes
+    }
+
+    public String file_path;
+    public Reason reason;
+    public String message;
+    public long elapsedMillis;
+    public long allocatedBytes; // -1 if the JVM cannot measure the allocations per thread
+    public String retryMode; // mode of the retry or null if the file was not retried
+    public boolean recovered; // true: the retry succeeded and the classes of the file were written in retryMode
+
+    public SkippedFile(){
+
+    }
+}
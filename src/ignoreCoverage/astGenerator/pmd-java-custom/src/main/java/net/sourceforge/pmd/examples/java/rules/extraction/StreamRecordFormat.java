@@ -0,0 +1,23 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * Framing of the class records of the STDOUT and PIPE transport. A record is the JSON of the output file,
+ * without indentation.
+ */
+public enum StreamRecordFormat {
+    /**
+     * One JSON document per line.
+     */
+    NDJSON,
+    /**
+     * A 4 byte big-endian length followed by the UTF-8 encoded JSON.
+     */
+    LENGTH_PREFIXED;
+
+    public static StreamRecordFormat fromString(String value, StreamRecordFormat defaultFormat){
+        if (value == null || value.trim().isEmpty()) {
+            return defaultFormat;
+        }
+        return StreamRecordFormat.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,355 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.lang.java.ast.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Qualifies the type names of a compilation unit syntactically (STRUCTURAL mode): through the type
+ * variables and types declared in the compilation unit, the imports and the package. Only types of the
+ * JDK are looked up, as class file resources, instead of running the PMD type resolution.
+ * <p>
+ * The names are printed like the FULL mode prints them: member types with their binary name
+ * (java.util.Map$Entry), type arguments separated by ", " and unknown types assumed to be in the same package.
+ */
+public class StructuralTypeQualifier {
+
+    private static final Map<String, Boolean> JDK_CLASSES = new ConcurrentHashMap<String, Boolean>();
+    private static final ClassLoader PLATFORM_CLASS_LOADER = ClassLoader.getSystemClassLoader().getParent();
+
+    private final ASTCompilationUnit compilationUnit;
+    private final String packageName;
+    private final Map<String, String> singleTypeImports = new HashMap<String, String>(); // simple name -> imported name
+    private final List<String> onDemandImports = new ArrayList<String>(); // imported package or type, without ".*"
+    private final PackageMemberIndex packageMemberIndex; // null: on-demand imports outside of the JDK are ignored
+
+    public StructuralTypeQualifier(ASTCompilationUnit compilationUnit){
+        this(compilationUnit, null);
+    }
+
+    /**
+     * @param packageMemberIndex finds the types of the own package and of on-demand imports outside of the JDK
+     */
+    public StructuralTypeQualifier(ASTCompilationUnit compilationUnit, PackageMemberIndex packageMemberIndex){
+        this.compilationUnit = compilationUnit;
+        this.packageMemberIndex = packageMemberIndex;
+        String packageName = compilationUnit.getPackageName();
+        this.packageName = packageName != null ? packageName : "";
+        for (ASTImportDeclaration importDeclaration : compilationUnit.children(ASTImportDeclaration.class)) {
+            if (importDeclaration.isStatic()) {
+                continue;
+            }
+            if (importDeclaration.isImportOnDemand()) {
+                this.onDemandImports.add(importDeclaration.getImportedName());
+            } else {
+                this.singleTypeImports.put(importDeclaration.getImportedSimpleName(), importDeclaration.getImportedName());
+            }
+        }
+    }
+
+    /**
+     * @return the packages and types of the on-demand imports without ".*", in the order they are written
+     */
+    static List<String> getOnDemandImports(ASTCompilationUnit compilationUnit){
+        List<String> onDemandImports = new ArrayList<String>();
+        for (ASTImportDeclaration importDeclaration : compilationUnit.children(ASTImportDeclaration.class)) {
+            if (!importDeclaration.isStatic() && importDeclaration.isImportOnDemand()) {
+                onDemandImports.add(importDeclaration.getImportedName());
+            }
+        }
+        return onDemandImports;
+    }
+
+    /**
+     * @return the simple names of the types which are imported by name
+     */
+    static Set<String> getSingleTypeImports(ASTCompilationUnit compilationUnit){
+        Set<String> singleTypeImports = new HashSet<String>();
+        for (ASTImportDeclaration importDeclaration : compilationUnit.children(ASTImportDeclaration.class)) {
+            if (!importDeclaration.isStatic() && !importDeclaration.isImportOnDemand()) {
+                singleTypeImports.add(importDeclaration.getImportedSimpleName());
+            }
+        }
+        return singleTypeImports;
+    }
+
+    public ASTCompilationUnit getCompilationUnit(){
+        return this.compilationUnit;
+    }
+
+    /**
+     * @param extraArrayDepth array dimensions written after the variable name, like in "String names[]"
+     */
+    public QualifiedTypeName qualify(ASTType typeNode, int extraArrayDepth){
+        if (typeNode == null) {
+            return new QualifiedTypeName(null, null, false);
+        }
+        StringBuilder name = new StringBuilder();
+        TypePrecision precision = this.append(typeNode, name);
+        for (int i = 0; i < extraArrayDepth; i++) {
+            name.append("[]");
+        }
+        boolean hasTypeVariable = extraArrayDepth == 0 && this.hasTypeVariable(typeNode);
+        return new QualifiedTypeName(name.toString(), precision, hasTypeVariable);
+    }
+
+    /**
+     * Same rule as the FULL mode: the type is a type variable or one of its direct type arguments is one.
+     */
+    private boolean hasTypeVariable(ASTType typeNode){
+        if (!(typeNode instanceof ASTClassOrInterfaceType)) {
+            return false;
+        }
+        ASTClassOrInterfaceType classType = (ASTClassOrInterfaceType) typeNode;
+        if (this.isTypeVariable(classType)) {
+            return true;
+        }
+        ASTTypeArguments typeArguments = classType.getTypeArguments();
+        if (typeArguments != null) {
+            for (ASTType typeArgument : typeArguments) {
+                if (typeArgument instanceof ASTClassOrInterfaceType && this.isTypeVariable((ASTClassOrInterfaceType) typeArgument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private TypePrecision append(ASTType typeNode, StringBuilder out){
+        if (typeNode instanceof ASTPrimitiveType) {
+            out.append(((ASTPrimitiveType) typeNode).getKind().getSimpleName());
+            return TypePrecision.EXACT;
+        }
+        if (typeNode instanceof ASTVoidType) {
+            out.append("void");
+            return TypePrecision.EXACT;
+        }
+        if (typeNode instanceof ASTArrayType) {
+            ASTArrayType arrayType = (ASTArrayType) typeNode;
+            TypePrecision precision = this.append(arrayType.getElementType(), out);
+            for (int i = 0; i < arrayType.getArrayDepth(); i++) {
+                out.append("[]");
+            }
+            return precision;
+        }
+        if (typeNode instanceof ASTWildcardType) {
+            ASTWildcardType wildcardType = (ASTWildcardType) typeNode;
+            out.append("?");
+            ASTReferenceType bound = wildcardType.getTypeBoundNode();
+            if (bound == null) {
+                return TypePrecision.EXACT;
+            }
+            out.append(wildcardType.isUpperBound() ? " extends " : " super ");
+            return this.append(bound, out);
+        }
+        if (typeNode instanceof ASTIntersectionType) {
+            TypePrecision precision = TypePrecision.EXACT;
+            boolean first = true;
+            for (ASTType component : (ASTIntersectionType) typeNode) {
+                if (!first) {
+                    out.append(" & ");
+                }
+                precision = TypePrecision.leastPrecise(precision, this.append(component, out));
+                first = false;
+            }
+            return precision;
+        }
+        if (typeNode instanceof ASTClassOrInterfaceType) {
+            return this.appendClassType((ASTClassOrInterfaceType) typeNode, out);
+        }
+        out.append(typeNode.getText().toString().replaceAll("\\s+", " ").trim());
+        return TypePrecision.UNQUALIFIED;
+    }
+
+    private TypePrecision appendClassType(ASTClassOrInterfaceType classType, StringBuilder out){
+        QualifiedTypeName rawName = this.qualifyRawName(classType);
+        out.append(rawName.name);
+        TypePrecision precision = rawName.precision;
+
+        ASTTypeArguments typeArguments = classType.getTypeArguments();
+        if (typeArguments != null && !typeArguments.isDiamond() && typeArguments.size() > 0) {
+            out.append("<");
+            boolean first = true;
+            for (ASTType typeArgument : typeArguments) {
+                if (!first) {
+                    out.append(", ");
+                }
+                precision = TypePrecision.leastPrecise(precision, this.append(typeArgument, out));
+                first = false;
+            }
+            out.append(">");
+        }
+        return precision;
+    }
+
+    /**
+     * @return the qualified name of the type without its type arguments
+     */
+    private QualifiedTypeName qualifyRawName(ASTClassOrInterfaceType classType){
+        String simpleName = classType.getSimpleName();
+
+        ASTClassOrInterfaceType qualifier = classType.getQualifier();
+        if (qualifier != null) {
+            QualifiedTypeName outer = this.qualifyRawName(qualifier);
+            return this.qualifyMemberType(outer, qualifier, simpleName);
+        }
+
+        if (classType.isFullyQualified()) {
+            // written with its package like java.util.List
+            String writtenName = classType.getText().toString();
+            int typeArgumentsStart = writtenName.indexOf('<');
+            if (typeArgumentsStart >= 0) {
+                writtenName = writtenName.substring(0, typeArgumentsStart);
+            }
+            writtenName = writtenName.replaceAll("\\s+", "");
+            return new QualifiedTypeName(toBinaryName(writtenName), TypePrecision.EXACT, false);
+        }
+
+        if (this.isTypeVariable(classType)) {
+            return new QualifiedTypeName(simpleName, TypePrecision.EXACT, true);
+        }
+
+        ASTAnyTypeDeclaration declaredType = this.findDeclaredType(classType, simpleName);
+        if (declaredType != null) {
+            return new QualifiedTypeName(declaredType.getBinaryName(), TypePrecision.EXACT, false);
+        }
+
+        String importedName = this.singleTypeImports.get(simpleName);
+        if (importedName != null) {
+            return new QualifiedTypeName(toBinaryName(importedName), TypePrecision.EXACT, false);
+        }
+
+        if (this.packageMemberIndex != null && this.packageMemberIndex.contains(this.packageName, simpleName)) {
+            // the own package hides java.lang and the on-demand imports
+            String name = this.packageName.isEmpty() ? simpleName : this.packageName + "." + simpleName;
+            return new QualifiedTypeName(name, TypePrecision.EXACT, false);
+        }
+
+        // without the package member index a type of the own package, which hides java.lang and the on-demand imports, can not be ruled out
+        TypePrecision jdkPrecision = this.packageMemberIndex != null ? TypePrecision.EXACT : TypePrecision.AMBIGUOUS;
+        if (isJdkClass("java.lang." + simpleName)) {
+            return new QualifiedTypeName("java.lang." + simpleName, jdkPrecision, false);
+        }
+
+        boolean onDemandImportOutsideJdk = false;
+        for (String onDemandImport : this.onDemandImports) {
+            String candidate = toBinaryName(onDemandImport + "." + simpleName);
+            if (isJdkClass(candidate)) {
+                return new QualifiedTypeName(candidate, jdkPrecision, false);
+            }
+            if (!onDemandImport.startsWith("java.") && !onDemandImport.startsWith("javax.")) {
+                onDemandImportOutsideJdk = true;
+            }
+        }
+
+        if (this.packageMemberIndex != null) {
+            String typePackage = this.packageMemberIndex.findPackage(simpleName, this.packageName, this.onDemandImports);
+            if (typePackage != null) {
+                return new QualifiedTypeName(typePackage.isEmpty() ? simpleName : typePackage + "." + simpleName, TypePrecision.EXACT, false);
+            }
+        }
+
+        // like the FULL mode: the type is assumed to be in the same package
+        String name = this.packageName.isEmpty() ? simpleName : this.packageName + "." + simpleName;
+        return new QualifiedTypeName(name, onDemandImportOutsideJdk ? TypePrecision.AMBIGUOUS : TypePrecision.PACKAGE_GUESS, false);
+    }
+
+    private QualifiedTypeName qualifyMemberType(QualifiedTypeName outer, ASTClassOrInterfaceType qualifier, String simpleName){
+        String memberName = outer.name + "$" + simpleName;
+        if (isJdkClass(memberName)) {
+            return new QualifiedTypeName(memberName, TypePrecision.EXACT, false);
+        }
+        ASTAnyTypeDeclaration outerDeclaration = this.findDeclaredType(qualifier, qualifier.getSimpleName());
+        if (outerDeclaration != null) {
+            for (ASTAnyTypeDeclaration memberType : outerDeclaration.getDeclarations(ASTAnyTypeDeclaration.class)) {
+                if (simpleName.equals(memberType.getSimpleName())) {
+                    return new QualifiedTypeName(memberType.getBinaryName(), TypePrecision.EXACT, false);
+                }
+            }
+        }
+        return new QualifiedTypeName(memberName, TypePrecision.leastPrecise(outer.precision, TypePrecision.PACKAGE_GUESS), false);
+    }
+
+    private boolean isTypeVariable(ASTClassOrInterfaceType classType){
+        if (classType.getQualifier() != null || classType.isFullyQualified() || classType.getTypeArguments() != null) {
+            return false;
+        }
+        return this.getTypeVariablesInScope(classType).contains(classType.getSimpleName());
+    }
+
+    private Set<String> getTypeVariablesInScope(JavaNode node){
+        Set<String> typeVariables = new HashSet<String>();
+        for (TypeParamOwnerNode owner : node.ancestors(TypeParamOwnerNode.class)) {
+            ASTTypeParameters typeParameters = owner.getTypeParameters();
+            if (typeParameters != null) {
+                for (ASTTypeParameter typeParameter : typeParameters) {
+                    typeVariables.add(typeParameter.getName());
+                }
+            }
+        }
+        return typeVariables;
+    }
+
+    /**
+     * Searches the types visible from the node which are declared in this compilation unit: the enclosing
+     * types, their member types and the top level types.
+     */
+    private ASTAnyTypeDeclaration findDeclaredType(JavaNode node, String simpleName){
+        for (ASTAnyTypeDeclaration enclosingType : node.ancestors(ASTAnyTypeDeclaration.class)) {
+            if (simpleName.equals(enclosingType.getSimpleName())) {
+                return enclosingType;
+            }
+            for (ASTAnyTypeDeclaration memberType : enclosingType.getDeclarations(ASTAnyTypeDeclaration.class)) {
+                if (simpleName.equals(memberType.getSimpleName())) {
+                    return memberType;
+                }
+            }
+        }
+        for (ASTAnyTypeDeclaration topLevelType : this.compilationUnit.getTypeDeclarations()) {
+            if (simpleName.equals(topLevelType.getSimpleName())) {
+                return topLevelType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns a canonical name like java.util.Map.Entry into the binary name java.util.Map$Entry if it is a
+     * member type of the JDK. Other names are returned unchanged.
+     */
+    static String toBinaryName(String canonicalName){
+        if (isJdkClass(canonicalName)) {
+            return canonicalName;
+        }
+        String candidate = canonicalName;
+        int lastDot = candidate.lastIndexOf('.');
+        while (lastDot > 0) {
+            candidate = candidate.substring(0, lastDot) + "$" + candidate.substring(lastDot + 1);
+            if (isJdkClass(candidate)) {
+                return candidate;
+            }
+            lastDot = candidate.lastIndexOf('.', lastDot - 1);
+        }
+        return canonicalName;
+    }
+
+    /**
+     * Asks the platform class loader (the extension class loader before Java 9), so the classes of this tool
+     * and of its dependencies on the application classpath do not count as JDK classes. The answer still
+     * depends on the JVM running the extraction, e.g. java.lang.Record exists from Java 16 on.
+     */
+    static boolean isJdkClass(String binaryName){
+        Boolean known = JDK_CLASSES.get(binaryName);
+        if (known == null) {
+            known = PLATFORM_CLASS_LOADER.getResource(binaryName.replace('.', '/') + ".class") != null;
+            JDK_CLASSES.put(binaryName, known);
+        }
+        return known;
+    }
+}
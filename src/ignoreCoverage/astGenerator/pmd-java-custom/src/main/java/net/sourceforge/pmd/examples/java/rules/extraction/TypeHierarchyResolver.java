@@ -0,0 +1,87 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.TypeHierarchyContext;
+import net.sourceforge.pmd.lang.java.ast.ASTClassOrInterfaceDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTMethodDeclaration;
+import net.sourceforge.pmd.lang.java.types.JClassType;
+import net.sourceforge.pmd.lang.java.types.JMethodSig;
+import net.sourceforge.pmd.lang.java.types.JTypeMirror;
+import net.sourceforge.pmd.lang.java.types.TypeOps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Resolves the type hierarchy of a class while the type symbols of PMD are available (FULL mode only), so
+ * the consumer does not have to walk the hierarchy over all parsed classes.
+ */
+public class TypeHierarchyResolver {
+
+    private final Function<JTypeMirror, String> typeNamePrinter;
+    private JClassType lastClassType; // the supertypes are needed for the class and for each of its methods
+    private List<JClassType> lastSupertypes;
+
+    /**
+     * @param typeNamePrinter prints a type like the extends_ and implements_ names
+     */
+    public TypeHierarchyResolver(Function<JTypeMirror, String> typeNamePrinter){
+        this.typeNamePrinter = typeNamePrinter;
+    }
+
+    public TypeHierarchyContext resolve(ASTClassOrInterfaceDeclaration node, String classKey){
+        TypeHierarchyContext hierarchy = new TypeHierarchyContext();
+        hierarchy.key = classKey;
+
+        JClassType classType = node.getTypeMirror();
+        TreeSet<String> supertypes = new TreeSet<String>();
+        TreeSet<String> unresolvedSupertypes = new TreeSet<String>();
+        for (JClassType supertype : this.getSupertypes(classType)) {
+            String name = this.typeNamePrinter.apply(supertype.getErasure());
+            supertypes.add(name);
+            if (supertype.getSymbol().isUnresolved()) {
+                unresolvedSupertypes.add(name);
+            }
+        }
+        hierarchy.supertypes.addAll(supertypes);
+        hierarchy.unresolvedSupertypes.addAll(unresolvedSupertypes);
+        hierarchy.hierarchyFullyKnown = unresolvedSupertypes.isEmpty();
+        return hierarchy;
+    }
+
+    /**
+     * Adds the supertypes which declare a method the given method overrides.
+     */
+    public void addMethod(TypeHierarchyContext hierarchy, ASTClassOrInterfaceDeclaration node, ASTMethodDeclaration method, String methodKey){
+        JMethodSig signature = method.getGenericSignature();
+        JClassType classType = node.getTypeMirror();
+        TreeSet<String> declaringSupertypes = new TreeSet<String>();
+        for (JClassType supertype : this.getSupertypes(classType)) {
+            boolean declared = supertype.streamDeclaredMethods(candidate -> candidate.getSimpleName().equals(method.getName())
+                            && candidate.getArity() == method.getArity())
+                    .anyMatch(candidate -> TypeOps.overrides(signature, candidate, classType));
+            if (declared) {
+                declaringSupertypes.add(this.typeNamePrinter.apply(supertype.getErasure()));
+            }
+        }
+        if (!declaringSupertypes.isEmpty()) {
+            hierarchy.methodDeclaringSupertypes.put(methodKey, new ArrayList<String>(declaringSupertypes));
+        }
+    }
+
+    private List<JClassType> getSupertypes(JClassType classType){
+        if (classType == this.lastClassType) {
+            return this.lastSupertypes;
+        }
+        List<JClassType> supertypes = new ArrayList<JClassType>();
+        for (JTypeMirror supertype : classType.getSuperTypeSet()) {
+            if (supertype instanceof JClassType && !supertype.getSymbol().equals(classType.getSymbol())) {
+                supertypes.add((JClassType) supertype);
+            }
+        }
+        this.lastClassType = classType;
+        this.lastSupertypes = supertypes;
+        return supertypes;
+    }
+}
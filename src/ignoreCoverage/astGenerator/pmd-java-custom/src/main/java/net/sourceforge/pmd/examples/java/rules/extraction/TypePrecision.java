@@ -0,0 +1,39 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+/**
+ * How precise a type name of the SOURCE_TEXT or STRUCTURAL mode is. The FULL mode writes no precision,
+ * its names come from the type resolution. The values are ordered from the most to the least precise.
+ */
+public enum TypePrecision {
+    /**
+     * Primitive, type variable, written fully qualified, explicitly imported, declared in the same compilation
+     * unit or found in the JDK through java.lang or an on-demand import while the package member index rules
+     * out a type of the own package with the same name.
+     */
+    EXACT,
+    /**
+     * Not found anywhere, assumed to be declared in the same package. The FULL mode makes the same assumption
+     * for types it cannot resolve.
+     */
+    PACKAGE_GUESS,
+    /**
+     * Assumed to be declared in the same package, but an on-demand import of a package outside the JDK may
+     * declare it as well. Or found in the JDK through java.lang or an on-demand import without a package member
+     * index, so a type of the own package with the same name may hide it.
+     */
+    AMBIGUOUS,
+    /**
+     * The name as written in the source code (SOURCE_TEXT mode).
+     */
+    UNQUALIFIED;
+
+    public static TypePrecision leastPrecise(TypePrecision a, TypePrecision b){
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.ordinal() >= b.ordinal() ? a : b;
+    }
+}
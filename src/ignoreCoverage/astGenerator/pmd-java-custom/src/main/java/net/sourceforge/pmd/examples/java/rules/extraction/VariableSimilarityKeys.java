@@ -0,0 +1,132 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keys of a field or parameter which the detector compares instead of the name and type strings:
+ * <ul>
+ *     <li>normalized name: the name like SimilarityHelper sanitizes it, lower case letters only</li>
+ *     <li>name tokens: the lower case words of the name, split at camelCase humps, underscores and digits</li>
+ *     <li>type class: the erased and unboxed type, e.g. int for java.lang.Integer and java.util.List for
+ *     java.util.List&lt;java.lang.String&gt;. Its id is a hash of it, so the same type class has the same id in
+ *     every file and every run. The id has at most 53 bits, a JavaScript number holds it exactly.</li>
+ * </ul>
+ */
+public class VariableSimilarityKeys {
+
+    private static final long TYPE_CLASS_ID_MASK = (1L << 53) - 1;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Map<String, String> UNBOXED_TYPES = new HashMap<String, String>();
+
+    static {
+        String[][] boxedAndPrimitives = {{"Boolean", "boolean"}, {"Byte", "byte"}, {"Character", "char"}, {"Short", "short"},
+                {"Integer", "int"}, {"Long", "long"}, {"Float", "float"}, {"Double", "double"}};
+        for (String[] boxedAndPrimitive : boxedAndPrimitives) {
+            UNBOXED_TYPES.put(boxedAndPrimitive[0], boxedAndPrimitive[1]); // SOURCE_TEXT mode and java.lang types of the STRUCTURAL mode
+            UNBOXED_TYPES.put("java.lang." + boxedAndPrimitive[0], boxedAndPrimitive[1]);
+        }
+    }
+
+    private VariableSimilarityKeys(){
+
+    }
+
+    public static String normalizeName(String name){
+        if (name == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @return e.g. [http, server, port] for HTTPServer_port2
+     */
+    public static List<String> tokenizeName(String name){
+        List<String> tokens = new ArrayList<String>();
+        if (name == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetter(c)) {
+                addToken(tokens, token);
+                continue;
+            }
+            boolean humpStart = Character.isUpperCase(c) && token.length() > 0
+                    && (Character.isLowerCase(name.charAt(i - 1)) // fooBar
+                    || (i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1)))); // HTTPServer
+            if (humpStart) {
+                addToken(tokens, token);
+            }
+            token.append(Character.toLowerCase(c));
+        }
+        addToken(tokens, token);
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder token){
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+            token.setLength(0);
+        }
+    }
+
+    /**
+     * Erases and unboxes a type name as it is written into the output, for the modes without type resolution.
+     * The FULL mode erases and unboxes the resolved type instead.
+     *
+     * @return e.g. java.util.Map[] for java.util.Map&lt;K, java.util.List&lt;V&gt;&gt;[] and int for Integer
+     */
+    public static String getTypeClass(String type){
+        if (type == null) {
+            return null;
+        }
+        StringBuilder erased = new StringBuilder(type.length());
+        int typeArgumentDepth = 0;
+        for (String part : type.replace("...", "[]").split(" ")) {
+            if (part.startsWith("@") && typeArgumentDepth == 0) {
+                continue; // annotation of the SOURCE_TEXT mode
+            }
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (c == '<') {
+                    typeArgumentDepth++;
+                } else if (c == '>') {
+                    typeArgumentDepth--;
+                } else if (typeArgumentDepth == 0) {
+                    erased.append(c);
+                }
+            }
+        }
+        String typeClass = erased.toString();
+        String unboxed = UNBOXED_TYPES.get(typeClass);
+        return unboxed != null ? unboxed : typeClass;
+    }
+
+    /**
+     * @return the FNV-1a hash of the type class, reduced to 53 bits, null for an unknown type
+     */
+    public static Long getTypeClassId(String typeClass){
+        if (typeClass == null || typeClass.isEmpty()) {
+            return null;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < typeClass.length(); i++) {
+            hash ^= typeClass.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash & TYPE_CLASS_ID_MASK;
+    }
+}
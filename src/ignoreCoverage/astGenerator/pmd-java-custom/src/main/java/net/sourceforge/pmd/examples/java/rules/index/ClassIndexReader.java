@@ -0,0 +1,174 @@
+package net.sourceforge.pmd.examples.java.rules.index;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-maps a {@link ClassIndexWriter} file. Opening it only reads the header, a lookup is a binary search
+ * over the entry table and decodes nothing but the keys on its way and the class it returns.
+ * <p>
+ * The whole file is mapped at once, so an index has at most 2 GB. An instance can be shared by threads.
+ */
+public class ClassIndexReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final long entryTableOffset;
+    private final ObjectMapper mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private ClassIndexReader(RandomAccessFile file, MappedByteBuffer buffer, int size, long entryTableOffset){
+        this.file = file;
+        this.buffer = buffer;
+        this.size = size;
+        this.entryTableOffset = entryTableOffset;
+    }
+
+    public static ClassIndexReader open(File indexFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(indexFile + " has more than 2 GB, it can not be mapped at once");
+            }
+            if (length < ClassIndexWriter.HEADER_SIZE) {
+                throw new IOException(indexFile + " is no class index, it is too short");
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != ClassIndexWriter.MAGIC) {
+                throw new IOException(indexFile + " is no class index");
+            }
+            int version = buffer.getInt(4);
+            if (version != ClassIndexWriter.VERSION) {
+                throw new IOException(indexFile + " has the version " + version + " instead of " + ClassIndexWriter.VERSION);
+            }
+            return new ClassIndexReader(file, buffer, buffer.getInt(8), buffer.getLong(16));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @param index 0 to size() - 1, the keys are ordered
+     */
+    public String getKey(int index){
+        int entry = this.getEntryPosition(index);
+        return this.decode(this.getPosition(this.buffer.getLong(entry)), this.buffer.getInt(entry + 8));
+    }
+
+    /**
+     * @return the index of the key or (-(insertion point) - 1) like {@link java.util.Arrays#binarySearch(Object[], Object)}
+     */
+    public int indexOf(String key){
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = this.getKey(middle).compareTo(key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the keys starting with the prefix, e.g. all classes of a package with "com.example."
+     */
+    public List<String> getKeysWithPrefix(String prefix){
+        List<String> keys = new ArrayList<String>();
+        int index = this.indexOf(prefix);
+        for (int i = index >= 0 ? index : -(index + 1); i < this.size; i++) {
+            String key = this.getKey(i);
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the "[classKey].json" of the class without copying it, null if the index does not have the class
+     */
+    public ByteBuffer getRecord(String key){
+        int index = this.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        int entry = this.getEntryPosition(index);
+        int blobOffset = this.getPosition(this.buffer.getLong(entry + 12));
+        int blobLength = this.buffer.getInt(entry + 20);
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(blobOffset);
+        record.limit(blobOffset + blobLength);
+        return record.slice();
+    }
+
+    /**
+     * @return the decoded class or null if the index does not have the class
+     */
+    public ClassOrInterfaceTypeContext read(String key) throws IOException {
+        ByteBuffer record = this.getRecord(key);
+        if (record == null) {
+            return null;
+        }
+        byte[] json = new byte[record.remaining()];
+        record.get(json);
+        return this.mapper.readValue(json, ClassOrInterfaceTypeContext.class);
+    }
+
+    private int getEntryPosition(int index){
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + this.size + " classes");
+        }
+        return this.getPosition(this.entryTableOffset + (long) index * ClassIndexWriter.ENTRY_SIZE);
+    }
+
+    /**
+     * @param offset from the start of the file, an offset beyond the mapping means the file is broken
+     */
+    private int getPosition(long offset){
+        if (offset < 0 || offset > this.buffer.capacity()) {
+            throw new IllegalStateException("The class index is broken, the offset " + offset + " is outside of its " + this.buffer.capacity() + " bytes");
+        }
+        return (int) offset;
+    }
+
+    private String decode(int offset, int length){
+        byte[] bytes = new byte[length];
+        ByteBuffer key = this.buffer.duplicate(); // the absolute bulk get of Java 13 is not there in Java 8
+        key.position(offset);
+        key.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close(); // the mapping stays valid until it is garbage collected
+    }
+}
@@ -0,0 +1,127 @@
+package net.sourceforge.pmd.examples.java.rules.index;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Writes ".extraction/classes.index", a single file with all "[classKey].json" files of a destination, which
+ * {@link ClassIndexReader} memory-maps to look up single classes without reading the others. All numbers are
+ * big-endian, offsets are from the start of the file:
+ * <pre>
+ * header       magic "DCCI", int version, int class count, int reserved (0),
+ *              long entry table offset, long key region offset, long blob region offset
+ * entry table  per class, ordered by key: long key offset, int key length, long blob offset, int blob length
+ * key region   the UTF-8 class keys
+ * blob region  the "[classKey].json" files as written, in the order of the entries
+ * </pre>
+ * The entries have a fixed size, so a reader finds a key with a binary search over the entry table.
+ * The reader maps the file at once, so an index which would exceed 2 GB is refused before it is written.
+ */
+public class ClassIndexWriter {
+
+    public static final String FILE_NAME = "classes.index";
+    static final int MAGIC = 0x44434349; // "DCCI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * 4 + 3 * 8;
+    static final int ENTRY_SIZE = 8 + 4 + 8 + 4;
+
+    private ClassIndexWriter(){
+
+    }
+
+    /**
+     * Indexes the output files in the destination of the options.
+     *
+     * @return the number of indexed classes
+     */
+    public static int write(ExtractionOptions options) throws IOException {
+        File[] files = OutputFolders.getDestinationFolder(options).listFiles((folder, name) -> name.endsWith(".json"));
+        SortedMap<String, Path> records = new TreeMap<String, Path>();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    records.put(file.getName().substring(0, file.getName().length() - ".json".length()), file.toPath());
+                }
+            }
+        }
+        write(OutputFolders.getMetaFile(options, FILE_NAME), records);
+        return records.size();
+    }
+
+    /**
+     * @param records class key -> file with the JSON of the class
+     */
+    public static void write(File indexFile, SortedMap<String, Path> records) throws IOException {
+        List<byte[]> keys = new ArrayList<byte[]>(records.size());
+        List<Long> blobLengths = new ArrayList<Long>(records.size());
+        long keyRegionLength = 0;
+        for (Map.Entry<String, Path> record : records.entrySet()) {
+            byte[] key = record.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            keyRegionLength += key.length;
+            blobLengths.add(Files.size(record.getValue()));
+        }
+        long entryTableOffset = HEADER_SIZE;
+        long keyRegionOffset = entryTableOffset + (long) ENTRY_SIZE * records.size();
+        long blobRegionOffset = keyRegionOffset + keyRegionLength;
+        long indexLength = blobRegionOffset;
+        for (long blobLength : blobLengths) {
+            indexLength += blobLength;
+        }
+        if (indexLength > Integer.MAX_VALUE) {
+            throw new IOException("The class index of " + records.size() + " classes would have " + indexLength
+                    + " bytes, more than the 2 GB which ClassIndexReader can map: " + indexFile);
+        }
+
+        indexFile.getAbsoluteFile().getParentFile().mkdirs();
+        // written under a temporary name and moved, so a reader never maps half a file
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile.toPath()), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            out.writeInt(0);
+            out.writeLong(entryTableOffset);
+            out.writeLong(keyRegionOffset);
+            out.writeLong(blobRegionOffset);
+
+            long keyOffset = keyRegionOffset;
+            long blobOffset = blobRegionOffset;
+            for (int i = 0; i < keys.size(); i++) {
+                long blobLength = blobLengths.get(i);
+                out.writeLong(keyOffset);
+                out.writeInt(keys.get(i).length);
+                out.writeLong(blobOffset);
+                out.writeInt((int) blobLength);
+                keyOffset += keys.get(i).length;
+                blobOffset += blobLength;
+            }
+            for (byte[] key : keys) {
+                out.write(key);
+            }
+            int i = 0;
+            for (Path file : records.values()) {
+                byte[] blob = Files.readAllBytes(file);
+                if (blob.length != blobLengths.get(i++)) {
+                    throw new IOException(file + " changed while it was indexed");
+                }
+                out.write(blob);
+            }
+        }
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
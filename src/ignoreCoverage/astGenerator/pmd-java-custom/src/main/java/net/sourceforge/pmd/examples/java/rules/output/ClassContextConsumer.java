@@ -0,0 +1,19 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Class consumer of an OUTPUT_TRANSPORT. It is closed once the run is done, which releases the stream of
+ * the STDOUT and PIPE transport.
+ */
+public interface ClassContextConsumer extends Consumer<ClassOrInterfaceTypeContext>, Closeable {
+
+    @Override
+    default void close() throws IOException {
+
+    }
+}
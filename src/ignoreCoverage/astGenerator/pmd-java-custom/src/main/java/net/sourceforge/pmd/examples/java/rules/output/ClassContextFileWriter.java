@@ -0,0 +1,116 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Writes every extracted class or interface as "[classKey].json" into the destination folder.
+ * This is the output the Node analysis reads with the ParserHelper.
+ */
+public class ClassContextFileWriter implements ClassContextConsumer {
+
+    private final ExtractionOptions options;
+
+    public ClassContextFileWriter(ExtractionOptions options){
+        this.options = options;
+    }
+
+    public static String convertToJson(Object obj) {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT); // Enable pretty printing
+        try {
+            return mapper.writeValueAsString(obj);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public void accept(ClassOrInterfaceTypeContext classContext) {
+        ExtractionEvents.Span span = ExtractionEvents.get().beginOutputWrite();
+        // Convert the classContext to JSON and add it to the output
+        String outputRow = convertToJson(classContext);
+        //String usableFilePath = filePath.replaceAll("/","_");
+        File outputFolder = OutputFolders.getDestinationFolder(this.options);
+
+        // Create a File object
+        File file = this.getOutputFile(classContext.key);
+
+        // Create output folder if it doesn't exist
+        outputFolder.mkdirs();
+
+        // Write the outputRow to the file
+        boolean fileExists = file.exists();
+        // Problem: In Eclipse there are multiple Classes with the same name and the same package: class ColorDialog
+            // EclipseJDTCore3.1/plugins/org.eclipse.swt/Eclipse SWT/carbon/org/eclipse/swt/widgets/ColorDialog.java
+            // EclipseJDTCore3.1/plugins/org.eclipse.swt/Eclipse SWT/gtk/org/eclipse/swt/widgets/ColorDialog.java
+        // Solution: Use as classContext.key: usableFilePath + classContext.key
+        // Normally the file would never exist, since we delete the output folder before each run
+        if(fileExists){
+            if(this.options.ignoreDublicateDefinition){
+                // delete the file
+                file.delete();
+            } else {
+                this.handleDublicateDefinition(file, classContext);
+            }
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
+            writer.write(outputRow);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        ExtractionEvents.get().endOutputWrite(span, classContext.key, "files", span != null ? file.length() : 0);
+
+        // Print the absolute path of the file
+        System.out.println("AST Generated for: " + file.getAbsolutePath());
+    }
+
+    public File getOutputFile(String classKey){
+        return new File(OutputFolders.getDestinationFolder(this.options), classKey+".json");
+    }
+
+    public void handleDublicateDefinition(File file, ClassOrInterfaceTypeContext classContext){
+        String currentClassDefinedInFile = classContext.file_path;
+        String otherClassDefinedInFilePath = "OTHER FILE COULD NOT BE READ";
+        String jsonString = "";
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                jsonString += line;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+       try{
+            // Read file_path from JSON file
+           ObjectMapper objectMapper = new ObjectMapper();
+           // Parse JSON string into JsonNode
+           JsonNode jsonNode = objectMapper.readTree(jsonString);
+
+           // Extract and print the value of the key "file_path"
+           otherClassDefinedInFilePath = jsonNode.get("file_path").asText();
+       } catch (Exception e){
+           e.printStackTrace();
+       }
+
+        String packageName = classContext.key.contains(".") ? classContext.key.substring(0, classContext.key.lastIndexOf('.')) : "";
+
+        // Stop the program and throw an exception
+        throw new RuntimeException("Class ("+classContext.name+") with same package ("+packageName+") multiple times declared!. Read the parsed AST file:"+file.getAbsolutePath()+". The class was defined in: "+currentClassDefinedInFile+" - and in: "+otherClassDefinedInFilePath);
+    }
+}
@@ -0,0 +1,164 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputProjection;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputTransport;
+import net.sourceforge.pmd.examples.java.rules.extraction.StreamRecordFormat;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams every extracted class as one record to stdout or a named pipe (STDOUT and PIPE transport), so the
+ * analysis can load the classes while the extraction is still running and nothing is written to disk.
+ * <p>
+ * Flow control: a record is written and flushed by the PMD thread which extracted the class. If the reader
+ * falls behind, the pipe is full and the write blocks the extraction, so at most one record per PMD thread
+ * and the stream buffer are held in memory.
+ * <p>
+ * While a writer streams to stdout, System.out is redirected to System.err, so that the log lines like
+ * "AST Skipped for:" do not get between the records. {@link #close()} restores System.out.
+ */
+public class ClassContextStreamWriter implements ClassContextConsumer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String STDOUT_TARGET = "-";
+    private static final Map<String, ClassContextStreamWriter> RUN_WRITERS = new HashMap<String, ClassContextStreamWriter>();
+
+    private final OutputStream out;
+    private final PrintStream stdout; // null if the writer streams into a pipe
+    private final OutputTransport transport;
+    private final StreamRecordFormat format;
+    private final ObjectMapper mapper = new ObjectMapper(); // no indentation, a record has no line breaks
+
+    public ClassContextStreamWriter(ExtractionOptions options){
+        this.transport = options.outputTransport;
+        this.format = options.streamRecordFormat;
+        if (this.transport == OutputTransport.STDOUT) {
+            this.stdout = System.out;
+            System.setOut(System.err);
+            this.out = new BufferedOutputStream(this.stdout, BUFFER_SIZE);
+        } else {
+            if (options.outputPipe == null || options.outputPipe.isEmpty()) {
+                throw new IllegalArgumentException("OUTPUT_PIPE has to be set for the PIPE transport");
+            }
+            this.stdout = null;
+            try {
+                this.out = new BufferedOutputStream(new FileOutputStream(options.outputPipe), BUFFER_SIZE); // a named pipe blocks until the reader opened it
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * For {@code make run}, where "pmd check" owns the run: the rule copies of all PMD threads share the
+     * writer of the stream, which is closed when the JVM exits.
+     */
+    private static synchronized ClassContextStreamWriter getRunWriter(ExtractionOptions options){
+        String target = options.outputTransport == OutputTransport.STDOUT ? STDOUT_TARGET : options.outputPipe;
+        ClassContextStreamWriter writer = RUN_WRITERS.get(target);
+        if (writer == null) {
+            ClassContextStreamWriter runWriter = new ClassContextStreamWriter(options);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    runWriter.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+            RUN_WRITERS.put(target, runWriter);
+            writer = runWriter;
+        }
+        return writer;
+    }
+
+    @Override
+    public void accept(ClassOrInterfaceTypeContext classContext) {
+        ExtractionEvents.Span span = ExtractionEvents.get().beginOutputWrite();
+        byte[] record;
+        try {
+            record = this.mapper.writeValueAsBytes(classContext); // serialized in parallel, outside of the lock
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this.out) {
+            try {
+                if (this.format == StreamRecordFormat.LENGTH_PREFIXED) {
+                    this.out.write(record.length >>> 24);
+                    this.out.write(record.length >>> 16);
+                    this.out.write(record.length >>> 8);
+                    this.out.write(record.length);
+                }
+                this.out.write(record);
+                if (this.format == StreamRecordFormat.NDJSON) {
+                    this.out.write('\n');
+                }
+                this.out.flush(); // the reader can load the class right away
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not stream the class " + classContext.key, e);
+            }
+        }
+        ExtractionEvents.get().endOutputWrite(span, classContext.key, this.transport.name().toLowerCase(), record.length);
+    }
+
+    /**
+     * Flushes the stream and restores System.out, a pipe is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.out) {
+            if (this.stdout == null) {
+                this.out.close();
+            } else {
+                this.out.flush(); // stdout itself stays open
+                System.setOut(this.stdout);
+            }
+        }
+    }
+
+    /**
+     * @return the consumer for the classes of the OUTPUT_TRANSPORT and the OUTPUT_PROJECTION of the options,
+     * to be closed by the caller once its run is done
+     */
+    public static ClassContextConsumer createClassConsumer(ExtractionOptions options){
+        ClassContextConsumer consumer;
+        if (options.outputTransport == OutputTransport.FILES) {
+            consumer = new ClassContextFileWriter(options);
+        } else {
+            consumer = new ClassContextStreamWriter(options);
+        }
+        return withProjection(options, consumer);
+    }
+
+    /**
+     * Like {@link #createClassConsumer(ExtractionOptions)}, but for the rule copies of a "pmd check" run,
+     * which share the stream until the JVM exits.
+     */
+    public static ClassContextConsumer createRunClassConsumer(ExtractionOptions options){
+        ClassContextConsumer consumer;
+        if (options.outputTransport == OutputTransport.FILES) {
+            consumer = new ClassContextFileWriter(options);
+        } else {
+            consumer = getRunWriter(options);
+        }
+        return withProjection(options, consumer);
+    }
+
+    private static ClassContextConsumer withProjection(ExtractionOptions options, ClassContextConsumer consumer){
+        if (options.projection == OutputProjection.DETECTION) {
+            return new ReportingDetailsWriter(options, consumer);
+        }
+        return consumer;
+    }
+}
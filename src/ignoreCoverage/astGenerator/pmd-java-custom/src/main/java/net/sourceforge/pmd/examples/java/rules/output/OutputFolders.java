@@ -0,0 +1,34 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+
+import java.io.File;
+
+/**
+ * Locations of the output files. Besides the "[classKey].json" files, all files of a run are written into
+ * a sub folder of the destination, since the ParserHelper of the analysis skips sub folders.
+ */
+public class OutputFolders {
+
+    public static final String META_FOLDER_NAME = ".extraction";
+
+    private OutputFolders(){
+
+    }
+
+    public static File getDestinationFolder(ExtractionOptions options){
+        String outputFolder = options.destination;
+        if (outputFolder == null) {
+            outputFolder = ExtractionOptions.DEFAULT_DESTINATION;  // Default to current directory if not set
+        }
+        return new File(outputFolder);
+    }
+
+    public static File getMetaFolder(ExtractionOptions options){
+        return new File(getDestinationFolder(options), META_FOLDER_NAME);
+    }
+
+    public static File getMetaFile(ExtractionOptions options, String fileName){
+        return new File(getMetaFolder(options), fileName);
+    }
+}
@@ -0,0 +1,52 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ReportingDetailsContext;
+import net.sourceforge.pmd.examples.java.rules.projection.DetectionProjection;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Output of the DETECTION projection: projects every class, writes the positions and modifiers taken out of it
+ * into ".extraction/reporting-details/[classKey].json" and hands the slim class to the class consumer of the
+ * OUTPUT_TRANSPORT. The details of a class are written before the class, so they exist once the class is there.
+ */
+public class ReportingDetailsWriter implements ClassContextConsumer {
+
+    public static final String FOLDER_NAME = "reporting-details";
+
+    private final DetectionProjection projection;
+    private final ClassContextConsumer classConsumer;
+    private final File detailsFolder;
+    private final ObjectMapper mapper = new ObjectMapper(); // no indentation, the file is read by a program only
+
+    public ReportingDetailsWriter(ExtractionOptions options, ClassContextConsumer classConsumer){
+        this.projection = new DetectionProjection(options);
+        this.classConsumer = classConsumer;
+        this.detailsFolder = OutputFolders.getMetaFile(options, FOLDER_NAME);
+    }
+
+    public File getDetailsFile(String classKey){
+        return new File(this.detailsFolder, classKey + ".json");
+    }
+
+    @Override
+    public void accept(ClassOrInterfaceTypeContext classContext) {
+        ReportingDetailsContext details = this.projection.project(classContext);
+        this.detailsFolder.mkdirs();
+        try {
+            this.mapper.writeValue(this.getDetailsFile(classContext.key), details);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.classConsumer.accept(classContext);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.classConsumer.close();
+    }
+}
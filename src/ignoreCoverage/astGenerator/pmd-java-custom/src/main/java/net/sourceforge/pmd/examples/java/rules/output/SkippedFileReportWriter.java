@@ -0,0 +1,42 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.SkippedFile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Appends every skipped file as one JSON line to ".extraction/skipped-files.jsonl" in the destination.
+ * The line is written immediately, so the report is complete even if the run gets killed afterwards.
+ */
+public class SkippedFileReportWriter implements Consumer<SkippedFile> {
+
+    public static final String FILE_NAME = "skipped-files.jsonl";
+    private static final Object LOCK = new Object(); // the rule copies of all PMD threads append to the same file
+
+    private final File reportFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public SkippedFileReportWriter(ExtractionOptions options){
+        this.reportFile = OutputFolders.getMetaFile(options, FILE_NAME);
+    }
+
+    @Override
+    public void accept(SkippedFile skippedFile) {
+        synchronized (LOCK) {
+            this.reportFile.getParentFile().mkdirs();
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(this.reportFile, true))) {
+                writer.write(this.mapper.writeValueAsString(skippedFile));
+                writer.newLine();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        System.out.println("AST Skipped for: " + skippedFile.file_path + " (" + skippedFile.reason + ")");
+    }
+}
@@ -0,0 +1,59 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.statistics.ExtractionStatistics;
+import net.sourceforge.pmd.examples.java.rules.statistics.StatisticsSummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the {@link StatisticsSummary} of a run to ".extraction/statistics.json" in the destination.
+ */
+public class StatisticsSummaryWriter {
+
+    public static final String FILE_NAME = "statistics.json";
+    private static final Map<String, ExtractionStatistics> RUN_STATISTICS = new HashMap<String, ExtractionStatistics>();
+
+    private StatisticsSummaryWriter(){
+
+    }
+
+    /**
+     * For {@code make run}, where "pmd check" owns the run: the rule copies of all PMD threads share the
+     * statistics of the destination, which are written when the JVM exits.
+     */
+    public static synchronized ExtractionStatistics getRunStatistics(ExtractionOptions options){
+        String destination = OutputFolders.getDestinationFolder(options).getAbsolutePath();
+        ExtractionStatistics statistics = RUN_STATISTICS.get(destination);
+        if (statistics == null) {
+            ExtractionStatistics runStatistics = new ExtractionStatistics();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> write(options, runStatistics)));
+            RUN_STATISTICS.put(destination, runStatistics);
+            statistics = runStatistics;
+        }
+        return statistics;
+    }
+
+    public static void write(ExtractionOptions options, ExtractionStatistics statistics){
+        write(OutputFolders.getMetaFile(options, FILE_NAME), statistics.toSummary(options.source));
+    }
+
+    public static void write(File file, StatisticsSummary summary){
+        File folder = file.getAbsoluteFile().getParentFile();
+        folder.mkdirs();
+        try {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, summary);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static StatisticsSummary read(File file) throws IOException {
+        return new ObjectMapper().readValue(file, StatisticsSummary.class);
+    }
+}
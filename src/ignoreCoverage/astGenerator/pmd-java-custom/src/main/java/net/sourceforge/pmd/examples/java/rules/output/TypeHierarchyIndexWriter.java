@@ -0,0 +1,42 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.TypeHierarchyContext;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Appends the resolved type hierarchy of every class as one compact JSON line to
+ * ".extraction/type-hierarchy.jsonl" in the destination. With it the consumer knows the supertypes and the
+ * overridden methods of a class without loading and walking the classes of the whole hierarchy.
+ */
+public class TypeHierarchyIndexWriter implements Consumer<TypeHierarchyContext> {
+
+    public static final String FILE_NAME = "type-hierarchy.jsonl";
+    private static final Object LOCK = new Object(); // the rule copies of all PMD threads append to the same file
+
+    private final File indexFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public TypeHierarchyIndexWriter(ExtractionOptions options){
+        this.indexFile = OutputFolders.getMetaFile(options, FILE_NAME);
+    }
+
+    @Override
+    public void accept(TypeHierarchyContext typeHierarchy) {
+        synchronized (LOCK) {
+            this.indexFile.getParentFile().mkdirs();
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(this.indexFile, true))) {
+                writer.write(this.mapper.writeValueAsString(typeHierarchy));
+                writer.newLine();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
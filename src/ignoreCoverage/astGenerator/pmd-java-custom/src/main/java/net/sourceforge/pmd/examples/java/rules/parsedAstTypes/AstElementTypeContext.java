@@ -1,11 +1,15 @@
 package net.sourceforge.pmd.examples.java.rules.parsedAstTypes;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class AstElementTypeContext {
     public String name;
     public String key;
     public String type;
     public boolean hasTypeVariable; // Some types are variable, e.g. List<T> but not List<Number>
     public AstPosition position;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String typePrecision; // only set if the type was not resolved by the type resolution, see TypePrecision
 
     public AstElementTypeContext(){
 
@@ -1,5 +1,7 @@
 package net.sourceforge.pmd.examples.java.rules.parsedAstTypes;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +17,8 @@ public class ClassOrInterfaceTypeContext extends AstElementTypeContext {
     public boolean auxclass; // true: wont be analysed. the class is only an aux class in order to support the hierarchy.
     public List<String> implements_ = new ArrayList<String>();
     public List<String> extends_ = new ArrayList<String>(); // Languages that support multiple inheritance include: C++, Common Lisp
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, String> supertypeTypePrecisions; // extends_ and implements_ name -> TypePrecision, only if not resolved by the type resolution
 
     public String definedInClassOrInterfaceTypeKey; // key of the class or interface where this class or interface is defined
 
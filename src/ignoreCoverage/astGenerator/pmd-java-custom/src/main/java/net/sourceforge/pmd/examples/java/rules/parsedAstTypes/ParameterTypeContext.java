@@ -1,11 +1,20 @@
 package net.sourceforge.pmd.examples.java.rules.parsedAstTypes;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.List;
 
 public class ParameterTypeContext extends AstElementTypeContext {
     public List<String> modifiers = new ArrayList<String>();
     public boolean ignore;
+    // only with VARIABLE_SIMILARITY_KEYS, see VariableSimilarityKeys
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String normalizedName;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<String> nameTokens;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long typeClassId;
 
     public ParameterTypeContext(){
 
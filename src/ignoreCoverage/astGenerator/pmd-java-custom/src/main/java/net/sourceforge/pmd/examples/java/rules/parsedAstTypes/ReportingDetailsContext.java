@@ -0,0 +1,24 @@
+package net.sourceforge.pmd.examples.java.rules.parsedAstTypes;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The parts of a class which the DETECTION projection moves out of the "[classKey].json" file, since they are
+ * only needed to report a data clump: ".extraction/reporting-details/[classKey].json". The ParserHelper of the
+ * detector puts them back into the class when it loads the "[classKey].json" file.
+ */
+public class ReportingDetailsContext {
+    public String key; // key of the ClassOrInterfaceTypeContext
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, AstPosition> positions = new TreeMap<String, AstPosition>(); // element key -> position, including the inner classes
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, List<String>> modifiers = new TreeMap<String, List<String>>(); // key of a class, method or parameter -> modifiers, the fields keep theirs
+
+    public ReportingDetailsContext(){
+
+    }
+}
@@ -0,0 +1,26 @@
+package net.sourceforge.pmd.examples.java.rules.parsedAstTypes;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry of the type hierarchy index: the resolved hierarchy of one class or interface (inner classes have
+ * their own entry). Type names are printed like extends_ and implements_, but without type arguments.
+ */
+public class TypeHierarchyContext {
+    public String key; // key of the ClassOrInterfaceTypeContext
+    public List<String> supertypes = new ArrayList<String>(); // transitive closure, without the class itself
+    public boolean hierarchyFullyKnown; // false: a supertype could not be resolved, its supertypes are missing
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<String> unresolvedSupertypes = new ArrayList<String>();
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, List<String>> methodDeclaringSupertypes = new TreeMap<String, List<String>>(); // method key -> supertypes declaring an overridden method, only methods which override
+
+    public TypeHierarchyContext(){
+
+    }
+}
@@ -0,0 +1,112 @@
+package net.sourceforge.pmd.examples.java.rules.projection;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.AstElementTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MemberFieldParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ReportingDetailsContext;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reduces a class to what the detector of the analysis can use with the given thresholds:
+ * <ul>
+ *     <li>Methods with fewer parameters than the lowest parameter threshold are dropped. The detector skips them,
+ *     and they cannot hide an inherited method either: an overridden method has the same signature, so it is
+ *     dropped exactly when the overriding method is dropped. Kept methods are unchanged, overrideAnnotation
+ *     included.</li>
+ *     <li>The fields of a class with fewer fields than the lowest field threshold are dropped, unless the detector
+ *     adds the inherited fields, which are unknown here.</li>
+ *     <li>Constructors are dropped, the detector does not analyse them.</li>
+ *     <li>All classes stay with their supertypes and inner classes, the detector needs them to know the hierarchy.</li>
+ *     <li>Positions and the modifiers of classes, methods and parameters move into the {@link ReportingDetailsContext}.
+ *     Fields keep their modifiers, the detector compares them.</li>
+ * </ul>
+ */
+public class DetectionProjection {
+
+    private final int minimumParameters;
+    private final int minimumFields;
+    private final boolean inheritedFieldsAnalysed;
+
+    public DetectionProjection(ExtractionOptions options){
+        this.minimumParameters = Math.min(options.sharedParametersToParametersAmountMinimum, options.sharedParametersToFieldsAmountMinimum);
+        this.minimumFields = Math.min(options.sharedFieldsToFieldsAmountMinimum, options.sharedParametersToFieldsAmountMinimum);
+        this.inheritedFieldsAnalysed = options.analyseFieldsInClassesOrInterfacesInheritedFromSuperClassesOrInterfaces;
+    }
+
+    /**
+     * Projects the class and its inner classes in place.
+     *
+     * @return the positions and modifiers taken out of the class
+     */
+    public ReportingDetailsContext project(ClassOrInterfaceTypeContext classContext){
+        ReportingDetailsContext details = new ReportingDetailsContext();
+        details.key = classContext.key;
+        this.projectClass(classContext, details);
+        return details;
+    }
+
+    private void projectClass(ClassOrInterfaceTypeContext classContext, ReportingDetailsContext details){
+        movePosition(classContext, details);
+        classContext.modifiers = moveModifiers(classContext.key, classContext.modifiers, details);
+
+        if (!this.inheritedFieldsAnalysed && countAnalysedFields(classContext) < this.minimumFields) {
+            classContext.fields.clear();
+        }
+        for (MemberFieldParameterTypeContext field : classContext.fields.values()) {
+            movePosition(field, details);
+        }
+
+        Iterator<MethodTypeContext> methods = classContext.methods.values().iterator();
+        while (methods.hasNext()) {
+            MethodTypeContext method = methods.next();
+            if (method.parameters.size() < this.minimumParameters) {
+                methods.remove();
+                continue;
+            }
+            movePosition(method, details);
+            method.modifiers = moveModifiers(method.key, method.modifiers, details);
+            for (MethodParameterTypeContext parameter : method.parameters) {
+                movePosition(parameter, details);
+                parameter.modifiers = moveModifiers(parameter.key, parameter.modifiers, details);
+            }
+        }
+        classContext.constructors.clear();
+
+        for (ClassOrInterfaceTypeContext innerClass : classContext.innerDefinedClasses.values()) {
+            this.projectClass(innerClass, details);
+        }
+        for (ClassOrInterfaceTypeContext innerInterface : classContext.innerDefinedInterfaces.values()) {
+            this.projectClass(innerInterface, details);
+        }
+    }
+
+    private static int countAnalysedFields(ClassOrInterfaceTypeContext classContext){
+        int fields = 0;
+        for (MemberFieldParameterTypeContext field : classContext.fields.values()) {
+            if (!field.ignore) {
+                fields++;
+            }
+        }
+        return fields;
+    }
+
+    private static void movePosition(AstElementTypeContext element, ReportingDetailsContext details){
+        if (element.position != null) {
+            details.positions.put(element.key, element.position);
+            element.position = null;
+        }
+    }
+
+    private static List<String> moveModifiers(String key, List<String> modifiers, ReportingDetailsContext details){
+        if (modifiers != null && !modifiers.isEmpty()) {
+            details.modifiers.put(key, modifiers);
+        }
+        return new ArrayList<String>();
+    }
+}
@@ -0,0 +1,43 @@
+package net.sourceforge.pmd.examples.java.rules.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ".extraction/shard.json" of a shard destination, written when the shard is done. The merge checks with it
+ * that all shards of the same partition are there.
+ */
+public class ShardManifest {
+
+    public static final String FILE_NAME = "shard.json";
+
+    public int index; // 1 to count
+    public int count;
+    public int sourceFiles; // java files of the whole source tree, the same in every shard of a partition
+    public int files; // java files of this shard
+    public long bytes;
+
+    public ShardManifest(){
+
+    }
+
+    /**
+     * Marks the destination of the extracted shard as finished.
+     */
+    public static void write(ExtractionOptions options, ShardPartition.Shard shard) throws IOException {
+        ShardManifest manifest = new ShardManifest();
+        manifest.index = shard.index;
+        manifest.count = shard.count;
+        manifest.sourceFiles = shard.sourceFiles;
+        manifest.files = shard.files.size();
+        manifest.bytes = shard.bytes;
+        File manifestFile = OutputFolders.getMetaFile(options, FILE_NAME);
+        manifestFile.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(manifestFile, manifest);
+    }
+}
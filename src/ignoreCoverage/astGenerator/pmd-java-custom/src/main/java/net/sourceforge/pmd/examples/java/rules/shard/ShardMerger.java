@@ -0,0 +1,163 @@
+package net.sourceforge.pmd.examples.java.rules.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import net.sourceforge.pmd.examples.java.rules.output.ReportingDetailsWriter;
+import net.sourceforge.pmd.examples.java.rules.output.SkippedFileReportWriter;
+import net.sourceforge.pmd.examples.java.rules.output.StatisticsSummaryWriter;
+import net.sourceforge.pmd.examples.java.rules.output.TypeHierarchyIndexWriter;
+import net.sourceforge.pmd.examples.java.rules.statistics.StatisticsSummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Combines the destinations of all shards of a partition into options.destination, as if one run had
+ * extracted the whole source tree. A class key written by more than one shard is resolved like a single run
+ * resolves it: with IGNORE_DUBLICATE_DEFINITION the class of the file which comes last in the path order wins,
+ * since a single threaded run writes it last, otherwise the merge fails. The skip report and the type hierarchy
+ * index are concatenated and the statistics summaries are merged.
+ */
+public class ShardMerger {
+
+    private final ExtractionOptions options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private int classes;
+    private int duplicates;
+
+    public ShardMerger(ExtractionOptions options){
+        this.options = options;
+    }
+
+    public void merge(List<File> shardDestinations) throws IOException {
+        List<File> shards = this.sortByIndex(shardDestinations);
+        Map<String, OutputFile> outputs = new TreeMap<String, OutputFile>();
+        for (File shard : shards) {
+            File[] files = shard.listFiles((folder, name) -> name.endsWith(".json"));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                OutputFile output = new OutputFile(shard, file, this.mapper.readTree(file).path("file_path").asText(""));
+                String classKey = file.getName().substring(0, file.getName().length() - ".json".length());
+                OutputFile other = outputs.get(classKey);
+                if (other == null) {
+                    outputs.put(classKey, output);
+                    continue;
+                }
+                if (!this.options.ignoreDublicateDefinition) {
+                    throw new RuntimeException("Class (" + classKey + ") multiple times declared! The class was defined in: "
+                            + output.filePath + " - and in: " + other.filePath);
+                }
+                this.duplicates++;
+                if (output.filePath.compareTo(other.filePath) > 0) {
+                    outputs.put(classKey, output);
+                }
+            }
+        }
+
+        File destination = OutputFolders.getDestinationFolder(this.options);
+        destination.mkdirs();
+        for (Map.Entry<String, OutputFile> entry : outputs.entrySet()) {
+            OutputFile output = entry.getValue();
+            Files.copy(output.file.toPath(), new File(destination, output.file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            File reportingDetails = new File(new File(new File(output.shard, OutputFolders.META_FOLDER_NAME), ReportingDetailsWriter.FOLDER_NAME), output.file.getName());
+            if (reportingDetails.isFile()) {
+                File mergedReportingDetails = OutputFolders.getMetaFile(this.options, ReportingDetailsWriter.FOLDER_NAME + File.separator + output.file.getName());
+                mergedReportingDetails.getParentFile().mkdirs();
+                Files.copy(reportingDetails.toPath(), mergedReportingDetails.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            this.classes++;
+        }
+        this.concatenate(shards, SkippedFileReportWriter.FILE_NAME);
+        this.concatenate(shards, TypeHierarchyIndexWriter.FILE_NAME);
+        this.mergeStatistics(shards);
+    }
+
+    /**
+     * @return the shard destinations ordered by their index, after checking that they are one complete partition
+     */
+    private List<File> sortByIndex(List<File> shardDestinations) throws IOException {
+        Map<Integer, File> shards = new TreeMap<Integer, File>();
+        ShardManifest first = null;
+        for (File shardDestination : shardDestinations) {
+            File manifestFile = new File(new File(shardDestination, OutputFolders.META_FOLDER_NAME), ShardManifest.FILE_NAME);
+            if (!manifestFile.isFile()) {
+                throw new IllegalStateException("Not a finished shard, " + manifestFile + " is missing");
+            }
+            ShardManifest manifest = this.mapper.readValue(manifestFile, ShardManifest.class);
+            if (first == null) {
+                first = manifest;
+            } else if (manifest.count != first.count || manifest.sourceFiles != first.sourceFiles) {
+                throw new IllegalStateException("Shard " + shardDestination + " belongs to another partition: " + manifest.count
+                        + " shards of " + manifest.sourceFiles + " files instead of " + first.count + " shards of " + first.sourceFiles + " files");
+            }
+            if (shards.put(manifest.index, shardDestination) != null) {
+                throw new IllegalStateException("Shard " + manifest.index + "/" + manifest.count + " is given twice");
+            }
+        }
+        if (first == null || shards.size() != first.count) {
+            throw new IllegalStateException("Incomplete partition, found the shards " + shards.keySet()
+                    + (first != null ? " of " + first.count : ""));
+        }
+        return new ArrayList<File>(shards.values());
+    }
+
+    private void concatenate(List<File> shards, String fileName) throws IOException {
+        File mergedFile = OutputFolders.getMetaFile(this.options, fileName);
+        for (File shard : shards) {
+            File file = new File(new File(shard, OutputFolders.META_FOLDER_NAME), fileName);
+            if (file.isFile()) {
+                mergedFile.getParentFile().mkdirs();
+                Files.write(mergedFile.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    private void mergeStatistics(List<File> shards) throws IOException {
+        StatisticsSummary merged = null;
+        for (File shard : shards) {
+            File file = new File(new File(shard, OutputFolders.META_FOLDER_NAME), StatisticsSummaryWriter.FILE_NAME);
+            if (file.isFile()) {
+                StatisticsSummary summary = StatisticsSummaryWriter.read(file);
+                merged = merged == null ? summary : merged.merge(summary);
+            }
+        }
+        if (merged != null) {
+            merged.sources = new ArrayList<String>(new LinkedHashSet<String>(merged.sources)); // every shard has the same source
+            StatisticsSummaryWriter.write(OutputFolders.getMetaFile(this.options, StatisticsSummaryWriter.FILE_NAME), merged);
+        }
+    }
+
+    public int getClasses(){
+        return this.classes;
+    }
+
+    /**
+     * @return class keys written by more than one shard
+     */
+    public int getDuplicates(){
+        return this.duplicates;
+    }
+
+    private static class OutputFile {
+        final File shard;
+        final File file;
+        final String filePath;
+
+        OutputFile(File shard, File file, String filePath){
+            this.shard = shard;
+            this.file = file;
+            this.filePath = filePath;
+        }
+    }
+}
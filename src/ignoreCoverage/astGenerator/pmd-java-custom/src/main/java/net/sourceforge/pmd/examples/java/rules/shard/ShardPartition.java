@@ -0,0 +1,113 @@
+package net.sourceforge.pmd.examples.java.rules.shard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits the java files of a source tree into shards of about the same size in bytes. Every node of a
+ * distributed run computes the partition on its own checkout and gets the same result: the files are ordered
+ * by size and relative path with '/' separators, and each file goes to the shard with the fewest bytes so far
+ * (the lowest shard number on a tie).
+ */
+public class ShardPartition {
+
+    private final Path sourceRoot;
+    private final List<Shard> shards = new ArrayList<Shard>();
+
+    /**
+     * Files of one shard, shard numbers start at 1 like in {@code --shard 1/4}.
+     */
+    public static class Shard {
+        public final int index;
+        public final int count;
+        public int sourceFiles; // java files of the whole source tree
+        public final List<Path> files = new ArrayList<Path>();
+        public long bytes;
+
+        Shard(int index, int count){
+            this.index = index;
+            this.count = count;
+        }
+    }
+
+    private ShardPartition(Path sourceRoot){
+        this.sourceRoot = sourceRoot;
+    }
+
+    public static ShardPartition compute(Path sourceRoot, int shardCount) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("The shard count has to be at least 1: " + shardCount);
+        }
+        ShardPartition partition = new ShardPartition(sourceRoot);
+        for (int i = 1; i <= shardCount; i++) {
+            partition.shards.add(new Shard(i, shardCount));
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceRoot)) {
+            files = paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).collect(Collectors.toList());
+        }
+        List<SizedFile> sizedFiles = new ArrayList<SizedFile>();
+        for (Path file : files) {
+            sizedFiles.add(new SizedFile(file, partition.getRelativePath(file), size(file)));
+        }
+        sizedFiles.sort(Comparator.comparingLong((SizedFile file) -> file.bytes).reversed().thenComparing(file -> file.relativePath));
+        for (SizedFile file : sizedFiles) {
+            Shard smallest = partition.shards.get(0);
+            for (Shard shard : partition.shards) {
+                if (shard.bytes < smallest.bytes) {
+                    smallest = shard;
+                }
+            }
+            smallest.files.add(file.path);
+            smallest.bytes += file.bytes;
+        }
+        for (Shard shard : partition.shards) {
+            shard.sourceFiles = files.size();
+            shard.files.sort(Comparator.comparing(partition::getRelativePath));
+        }
+        return partition;
+    }
+
+    private static long size(Path file){
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getRelativePath(Path file){
+        return this.sourceRoot.relativize(file).toString().replace('\\', '/');
+    }
+
+    public Shard getShard(int index){
+        if (index < 1 || index > this.shards.size()) {
+            throw new IllegalArgumentException("There is no shard " + index + "/" + this.shards.size());
+        }
+        return this.shards.get(index - 1);
+    }
+
+    public List<Shard> getShards(){
+        return Collections.unmodifiableList(this.shards);
+    }
+
+    private static class SizedFile {
+        final Path path;
+        final String relativePath;
+        final long bytes;
+
+        SizedFile(Path path, String relativePath, long bytes){
+            this.path = path;
+            this.relativePath = relativePath;
+            this.bytes = bytes;
+        }
+    }
+}
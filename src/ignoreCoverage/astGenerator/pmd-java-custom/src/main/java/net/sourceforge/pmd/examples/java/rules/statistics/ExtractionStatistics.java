@@ -0,0 +1,137 @@
+package net.sourceforge.pmd.examples.java.rules.statistics;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MemberFieldParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodTypeContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the {@link StatisticsSummary} of a run while the classes are extracted. All PMD threads record into
+ * the same instance without a lock: the counters are {@link LongAdder}s, and a histogram bucket or type is only
+ * created once, later occurrences just increment its adder.
+ */
+public class ExtractionStatistics {
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder skippedFiles = new LongAdder();
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder fields = new LongAdder();
+    private final LongAdder methods = new LongAdder();
+    private final LongAdder constructors = new LongAdder();
+    private final LongAdder parameters = new LongAdder();
+    private final Frequencies<Integer> parametersPerMethod = new Frequencies<Integer>();
+    private final Frequencies<Integer> fieldsPerClass = new Frequencies<Integer>();
+    private final Frequencies<Integer> methodsPerClass = new Frequencies<Integer>();
+    private final Frequencies<Integer> fieldNameLength = new Frequencies<Integer>();
+    private final Frequencies<Integer> parameterNameLength = new Frequencies<Integer>();
+    private final Frequencies<Integer> nestingDepth = new Frequencies<Integer>();
+    private final Frequencies<String> typeFrequencies = new Frequencies<String>();
+
+    public ExtractionStatistics(){
+
+    }
+
+    /**
+     * Records the extracted top level classes of a file, including their inner classes.
+     */
+    public void recordFile(List<ClassOrInterfaceTypeContext> fileClasses){
+        this.files.increment();
+        for (ClassOrInterfaceTypeContext classContext : fileClasses) {
+            this.recordClass(classContext, 0);
+        }
+    }
+
+    public void recordSkippedFile(){
+        this.skippedFiles.increment();
+    }
+
+    private void recordClass(ClassOrInterfaceTypeContext classContext, int depth){
+        this.classes.increment();
+        this.nestingDepth.increment(depth);
+        this.fieldsPerClass.increment(classContext.fields.size());
+        this.methodsPerClass.increment(classContext.methods.size());
+        this.fields.add(classContext.fields.size());
+        for (MemberFieldParameterTypeContext field : classContext.fields.values()) {
+            this.fieldNameLength.increment(length(field.name));
+            this.typeFrequencies.increment(field.type);
+        }
+        this.methods.add(classContext.methods.size());
+        for (MethodTypeContext method : classContext.methods.values()) {
+            this.parametersPerMethod.increment(method.parameters.size());
+            this.parameters.add(method.parameters.size());
+            for (MethodParameterTypeContext parameter : method.parameters) {
+                this.parameterNameLength.increment(length(parameter.name));
+                this.typeFrequencies.increment(parameter.type);
+            }
+        }
+        this.constructors.add(classContext.constructors.size());
+        for (ClassOrInterfaceTypeContext innerClass : classContext.innerDefinedClasses.values()) {
+            this.recordClass(innerClass, depth + 1);
+        }
+        for (ClassOrInterfaceTypeContext innerInterface : classContext.innerDefinedInterfaces.values()) {
+            this.recordClass(innerInterface, depth + 1);
+        }
+    }
+
+    private static int length(String name){
+        return name != null ? name.length() : 0;
+    }
+
+    /**
+     * @param source SOURCE of the run, null if unknown
+     */
+    public StatisticsSummary toSummary(String source){
+        StatisticsSummary summary = new StatisticsSummary();
+        if (source != null) {
+            summary.sources.add(source);
+        }
+        summary.files = this.files.sum();
+        summary.skippedFiles = this.skippedFiles.sum();
+        summary.classes = this.classes.sum();
+        summary.fields = this.fields.sum();
+        summary.methods = this.methods.sum();
+        summary.constructors = this.constructors.sum();
+        summary.parameters = this.parameters.sum();
+        summary.parametersPerMethod = HistogramSummary.of(this.parametersPerMethod.snapshot());
+        summary.fieldsPerClass = HistogramSummary.of(this.fieldsPerClass.snapshot());
+        summary.methodsPerClass = HistogramSummary.of(this.methodsPerClass.snapshot());
+        summary.fieldNameLength = HistogramSummary.of(this.fieldNameLength.snapshot());
+        summary.parameterNameLength = HistogramSummary.of(this.parameterNameLength.snapshot());
+        summary.nestingDepth = HistogramSummary.of(this.nestingDepth.snapshot());
+        summary.typeFrequencies = this.typeFrequencies.snapshot();
+        return summary;
+    }
+
+    private static class Frequencies<K extends Comparable<K>> {
+
+        private final ConcurrentHashMap<K, LongAdder> counts = new ConcurrentHashMap<K, LongAdder>();
+
+        void increment(K key){
+            if (key != null) {
+                this.get(key).increment();
+            }
+        }
+
+        private LongAdder get(K key){
+            LongAdder count = this.counts.get(key);
+            if (count == null) {
+                count = this.counts.computeIfAbsent(key, k -> new LongAdder()); // locks only to create the adder
+            }
+            return count;
+        }
+
+        Map<K, Long> snapshot(){
+            Map<K, Long> snapshot = new TreeMap<K, Long>();
+            for (Map.Entry<K, LongAdder> entry : this.counts.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().sum());
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package net.sourceforge.pmd.examples.java.rules.statistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exact histogram of a value like the number of parameters of a method. The counts are the histogram, all other
+ * values are derived from them, so two histograms merge without loss by adding their counts.
+ */
+public class HistogramSummary {
+    public long count;
+    public long sum;
+    public long min;
+    public long max;
+    public double mean;
+    public long median;
+    public long p90;
+    public long p99;
+    public Map<Integer, Long> counts = new TreeMap<Integer, Long>(); // value -> number of occurrences
+
+    public HistogramSummary(){
+
+    }
+
+    public static HistogramSummary of(Map<Integer, Long> counts){
+        HistogramSummary histogram = new HistogramSummary();
+        histogram.counts.putAll(counts);
+        for (Map.Entry<Integer, Long> entry : histogram.counts.entrySet()) {
+            histogram.count += entry.getValue();
+            histogram.sum += (long) entry.getKey() * entry.getValue();
+        }
+        if (histogram.count == 0) {
+            return histogram;
+        }
+        TreeMap<Integer, Long> sorted = (TreeMap<Integer, Long>) histogram.counts;
+        histogram.min = sorted.firstKey();
+        histogram.max = sorted.lastKey();
+        histogram.mean = (double) histogram.sum / histogram.count;
+        histogram.median = histogram.percentile(0.5);
+        histogram.p90 = histogram.percentile(0.9);
+        histogram.p99 = histogram.percentile(0.99);
+        return histogram;
+    }
+
+    public HistogramSummary merge(HistogramSummary other){
+        Map<Integer, Long> counts = new TreeMap<Integer, Long>(this.counts);
+        for (Map.Entry<Integer, Long> entry : other.counts.entrySet()) {
+            counts.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        return of(counts);
+    }
+
+    /**
+     * @return the smallest value which at least the given fraction of the occurrences does not exceed
+     */
+    private long percentile(double fraction){
+        long rank = (long) Math.ceil(fraction * this.count);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : this.counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        return this.max;
+    }
+}
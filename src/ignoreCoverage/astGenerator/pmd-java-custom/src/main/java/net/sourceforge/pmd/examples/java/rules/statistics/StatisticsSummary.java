@@ -0,0 +1,59 @@
+package net.sourceforge.pmd.examples.java.rules.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of an extraction run, written to ".extraction/statistics.json". Summaries of several runs, e.g. of
+ * all projects of a corpus, merge into the same numbers one run over all of them would have counted.
+ * <p>
+ * Only methods count as methods: the parameters, their name lengths and types are the ones of the methods,
+ * constructors are only counted. Classes include the interfaces and the inner classes.
+ */
+public class StatisticsSummary {
+    public List<String> sources = new ArrayList<String>(); // SOURCE of the merged runs
+    public long files;
+    public long skippedFiles;
+    public long classes;
+    public long fields;
+    public long methods;
+    public long constructors;
+    public long parameters;
+    public HistogramSummary parametersPerMethod = new HistogramSummary();
+    public HistogramSummary fieldsPerClass = new HistogramSummary();
+    public HistogramSummary methodsPerClass = new HistogramSummary();
+    public HistogramSummary fieldNameLength = new HistogramSummary();
+    public HistogramSummary parameterNameLength = new HistogramSummary();
+    public HistogramSummary nestingDepth = new HistogramSummary(); // 0 for a top level class, 1 for a class defined in it, ...
+    public Map<String, Long> typeFrequencies = new TreeMap<String, Long>(); // type of fields and parameters -> occurrences
+
+    public StatisticsSummary(){
+
+    }
+
+    public StatisticsSummary merge(StatisticsSummary other){
+        StatisticsSummary merged = new StatisticsSummary();
+        merged.sources.addAll(this.sources);
+        merged.sources.addAll(other.sources);
+        merged.files = this.files + other.files;
+        merged.skippedFiles = this.skippedFiles + other.skippedFiles;
+        merged.classes = this.classes + other.classes;
+        merged.fields = this.fields + other.fields;
+        merged.methods = this.methods + other.methods;
+        merged.constructors = this.constructors + other.constructors;
+        merged.parameters = this.parameters + other.parameters;
+        merged.parametersPerMethod = this.parametersPerMethod.merge(other.parametersPerMethod);
+        merged.fieldsPerClass = this.fieldsPerClass.merge(other.fieldsPerClass);
+        merged.methodsPerClass = this.methodsPerClass.merge(other.methodsPerClass);
+        merged.fieldNameLength = this.fieldNameLength.merge(other.fieldNameLength);
+        merged.parameterNameLength = this.parameterNameLength.merge(other.parameterNameLength);
+        merged.nestingDepth = this.nestingDepth.merge(other.nestingDepth);
+        merged.typeFrequencies.putAll(this.typeFrequencies);
+        for (Map.Entry<String, Long> entry : other.typeFrequencies.entrySet()) {
+            merged.typeFrequencies.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        return merged;
+    }
+}
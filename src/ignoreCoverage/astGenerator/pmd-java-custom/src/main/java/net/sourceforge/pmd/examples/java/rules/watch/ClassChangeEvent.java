@@ -0,0 +1,33 @@
+package net.sourceforge.pmd.examples.java.rules.watch;
+
+/**
+ * Change of one class key in watch mode. A file change produces one event per affected class key,
+ * unchanged classes of the file produce none.
+ */
+public class ClassChangeEvent {
+
+    public enum Type {
+        ADDED, // the class key has no output file before
+        MODIFIED, // the output file of the class key was rewritten
+        REMOVED // the output file of the class key was deleted
+    }
+
+    public Type type;
+    public String classKey;
+    public String file_path; // file which defines (or defined) the class, relative to SOURCE
+
+    public ClassChangeEvent(){
+
+    }
+
+    public ClassChangeEvent(Type type, String classKey, String file_path){
+        this.type = type;
+        this.classKey = classKey;
+        this.file_path = file_path;
+    }
+
+    @Override
+    public String toString() {
+        return this.type + " " + this.classKey;
+    }
+}
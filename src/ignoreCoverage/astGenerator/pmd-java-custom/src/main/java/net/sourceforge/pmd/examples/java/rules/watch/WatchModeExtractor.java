@@ -0,0 +1,379 @@
+package net.sourceforge.pmd.examples.java.rules.watch;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ClassOrInterfaceExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.PackageMemberIndex;
+import net.sourceforge.pmd.examples.java.rules.extraction.SkippedFile;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import net.sourceforge.pmd.examples.java.rules.output.SkippedFileReportWriter;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watch mode: extracts SOURCE once and afterwards only the java files which are changed, added or deleted.
+ * The extracted classes stay in memory, so an update rewrites only the outputs of classes whose content
+ * changed and reports one {@link ClassChangeEvent} per affected class key.
+ * <p>
+ * A file which does not compile (typical while it is edited) keeps the outputs of its last successful
+ * extraction and is recorded in the skip report.
+ */
+public class WatchModeExtractor implements AutoCloseable {
+
+    private static final long QUIET_PERIOD_MILLIS = 50; // editors save a file in several steps, wait until it is quiet
+
+    private final ExtractionOptions options;
+    private final Path sourceRoot;
+    private final ClassContextFileWriter writer;
+    private final Consumer<SkippedFile> skippedFileConsumer;
+    private Consumer<ClassChangeEvent> changeListener = event -> System.out.println("AST Changed for: " + event);
+
+    private final Map<String, Map<String, ExtractedClass>> classesByFile = new HashMap<String, Map<String, ExtractedClass>>(); // file_path -> class key -> class
+    private final Map<String, String> fileByClassKey = new HashMap<String, String>(); // class key -> file_path of the written output
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+    private PackageMemberIndex packageMemberIndex; // built with the first extraction, null if options.ignoreWildcardImports
+    private WatchService watchService;
+    private volatile boolean closed;
+
+    public WatchModeExtractor(ExtractionOptions options){
+        this.options = options;
+        this.sourceRoot = Paths.get(options.source);
+        this.writer = new ClassContextFileWriter(options);
+        this.skippedFileConsumer = new SkippedFileReportWriter(options);
+    }
+
+    public void setChangeListener(Consumer<ClassChangeEvent> changeListener){
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Extracts SOURCE and then blocks, processing the file changes until {@link #close()} is called.
+     */
+    public void run() throws IOException, InterruptedException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // register before the initial extraction, so no change in between gets lost
+        this.registerRecursively(this.sourceRoot);
+        this.initialExtraction();
+
+        while (!this.closed) {
+            Set<Path> changedFiles = new TreeSet<Path>();
+            try {
+                this.collectChanges(this.watchService.take(), changedFiles);
+                WatchKey key;
+                while ((key = this.watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    this.collectChanges(key, changedFiles);
+                }
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            if (changedFiles.isEmpty()) {
+                continue;
+            }
+            try {
+                this.update(changedFiles);
+            } catch (RuntimeException e) {
+                // e.g. a class defined twice with IGNORE_DUBLICATE_DEFINITION=false, keep watching
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Extracts all java files of SOURCE and writes their outputs.
+     */
+    public void initialExtraction() throws IOException {
+        long start = System.currentTimeMillis();
+        List<Path> files = findJavaFiles(this.sourceRoot);
+        List<ClassChangeEvent> events = this.update(files, false);
+        System.out.println("AST Watch initial extraction: " + files.size() + " files, " + events.size() + " classes in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Re-extracts the given files. Files which no longer exist remove their classes.
+     * @return the change events, which are also passed to the change listener
+     */
+    public List<ClassChangeEvent> update(Collection<Path> changedFiles){
+        long start = System.currentTimeMillis();
+        List<ClassChangeEvent> events = this.update(changedFiles, true);
+        System.out.println("AST Watch update: " + changedFiles.size() + " files, " + events.size() + " class changes in " + (System.currentTimeMillis() - start) + " ms");
+        return events;
+    }
+
+    private List<ClassChangeEvent> update(Collection<Path> changedFiles, boolean notify){
+        List<Path> existingFiles = new ArrayList<Path>();
+        for (Path file : changedFiles) {
+            if (Files.isRegularFile(file)) {
+                existingFiles.add(file);
+            }
+        }
+        this.updatePackageMemberIndex(changedFiles);
+
+        ExtractionResult extracted = this.extract(existingFiles);
+
+        Map<String, List<ClassOrInterfaceTypeContext>> classesByFile = new HashMap<String, List<ClassOrInterfaceTypeContext>>();
+        for (ClassOrInterfaceTypeContext classContext : extracted.classes) {
+            classesByFile.computeIfAbsent(classContext.file_path, file -> new ArrayList<ClassOrInterfaceTypeContext>()).add(classContext);
+        }
+
+        Map<String, ClassChangeEvent> events = new LinkedHashMap<String, ClassChangeEvent>(); // one event per class key
+        for (Path file : changedFiles) {
+            String filePath = this.getFilePath(file);
+            if (Files.isRegularFile(file) && extracted.failedFiles.contains(filePath)) {
+                continue; // keep the classes of the last version which could be extracted
+            }
+            List<ClassOrInterfaceTypeContext> fileClasses = classesByFile.get(filePath);
+            this.replaceClassesOfFile(filePath, fileClasses != null ? fileClasses : Collections.<ClassOrInterfaceTypeContext>emptyList(), events);
+        }
+
+        List<ClassChangeEvent> result = new ArrayList<ClassChangeEvent>(events.values());
+        if (notify) {
+            for (ClassChangeEvent event : result) {
+                this.changeListener.accept(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the index of SOURCE once, afterwards only the changed files are indexed again.
+     */
+    private void updatePackageMemberIndex(Collection<Path> changedFiles){
+        if (this.options.ignoreWildcardImports) {
+            return;
+        }
+        if (this.packageMemberIndex == null) {
+            this.packageMemberIndex = PackageMemberIndex.build(this.options, Collections.<Path>emptyList(), Collections.<String, String>emptyMap());
+            return;
+        }
+        for (Path file : changedFiles) {
+            this.packageMemberIndex.updateSourceFile(file);
+        }
+    }
+
+    private ExtractionResult extract(List<Path> files){
+        ExtractionResult extracted = new ExtractionResult();
+        if (files.isEmpty()) {
+            return extracted;
+        }
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(this.options);
+        extractor.setPackageMemberIndex(this.packageMemberIndex);
+        extractor.setSkippedFileListener(skippedFile -> {
+            if (!skippedFile.recovered) {
+                extracted.failedFiles.add(skippedFile.file_path);
+            }
+            this.skippedFileConsumer.accept(skippedFile);
+        });
+        extractor.extract(files, extracted.classes::add);
+        return extracted;
+    }
+
+    private void replaceClassesOfFile(String filePath, List<ClassOrInterfaceTypeContext> fileClasses, Map<String, ClassChangeEvent> events){
+        Map<String, ExtractedClass> previousClasses = this.classesByFile.remove(filePath);
+        if (previousClasses == null) {
+            previousClasses = Collections.emptyMap();
+        }
+        Map<String, ExtractedClass> currentClasses = new LinkedHashMap<String, ExtractedClass>();
+        for (ClassOrInterfaceTypeContext classContext : fileClasses) {
+            currentClasses.put(classContext.key, new ExtractedClass(classContext));
+        }
+        if (!currentClasses.isEmpty()) {
+            this.classesByFile.put(filePath, currentClasses);
+        }
+
+        for (String classKey : previousClasses.keySet()) {
+            if (!currentClasses.containsKey(classKey)) {
+                this.removeClass(filePath, classKey, events);
+            }
+        }
+        for (ExtractedClass extractedClass : currentClasses.values()) {
+            ExtractedClass previous = previousClasses.get(extractedClass.context.key);
+            boolean unchanged = previous != null && previous.json.equals(extractedClass.json);
+            if (unchanged && filePath.equals(this.fileByClassKey.get(extractedClass.context.key))) {
+                continue;
+            }
+            this.writeClass(filePath, extractedClass, events);
+        }
+    }
+
+    private void writeClass(String filePath, ExtractedClass extractedClass, Map<String, ClassChangeEvent> events){
+        String classKey = extractedClass.context.key;
+        String previousFile = this.fileByClassKey.get(classKey);
+        if (filePath.equals(previousFile)) {
+            // a new version of the same definition, not a duplicate definition
+            this.writer.getOutputFile(classKey).delete();
+        }
+        this.writer.accept(extractedClass.context);
+        this.fileByClassKey.put(classKey, filePath);
+        addEvent(events, new ClassChangeEvent(previousFile == null ? ClassChangeEvent.Type.ADDED : ClassChangeEvent.Type.MODIFIED, classKey, filePath));
+    }
+
+    private void removeClass(String filePath, String classKey, Map<String, ClassChangeEvent> events){
+        if (!filePath.equals(this.fileByClassKey.get(classKey))) {
+            return; // the output belongs to another definition of the same class key
+        }
+        this.fileByClassKey.remove(classKey);
+        File outputFile = this.writer.getOutputFile(classKey);
+        outputFile.delete();
+
+        // another file still defines the class key, its definition takes over the output
+        for (Map.Entry<String, Map<String, ExtractedClass>> otherFile : this.classesByFile.entrySet()) {
+            ExtractedClass otherDefinition = otherFile.getValue().get(classKey);
+            if (otherDefinition != null) {
+                this.writer.accept(otherDefinition.context);
+                this.fileByClassKey.put(classKey, otherFile.getKey());
+                addEvent(events, new ClassChangeEvent(ClassChangeEvent.Type.MODIFIED, classKey, otherFile.getKey()));
+                return;
+            }
+        }
+        System.out.println("AST Removed for: " + outputFile.getAbsolutePath());
+        addEvent(events, new ClassChangeEvent(ClassChangeEvent.Type.REMOVED, classKey, filePath));
+    }
+
+    /**
+     * Merges the events of a class key within one update, e.g. a class moved to another file is modified.
+     */
+    private static void addEvent(Map<String, ClassChangeEvent> events, ClassChangeEvent event){
+        ClassChangeEvent previous = events.get(event.classKey);
+        if (previous == null) {
+            events.put(event.classKey, event);
+        } else if (previous.type == ClassChangeEvent.Type.ADDED && event.type == ClassChangeEvent.Type.REMOVED) {
+            events.remove(event.classKey);
+        } else if (previous.type == ClassChangeEvent.Type.REMOVED && event.type == ClassChangeEvent.Type.ADDED) {
+            events.put(event.classKey, new ClassChangeEvent(ClassChangeEvent.Type.MODIFIED, event.classKey, event.file_path));
+        } else if (previous.type != ClassChangeEvent.Type.ADDED) {
+            events.put(event.classKey, event);
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changedFiles) throws InterruptedException {
+        Path directory = this.watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                // events got lost: compare everything
+                changedFiles.addAll(this.getKnownFiles());
+                changedFiles.addAll(findJavaFilesQuietly(this.sourceRoot));
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (Files.isDirectory(child)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    this.registerRecursivelyQuietly(child);
+                    changedFiles.addAll(findJavaFilesQuietly(child));
+                }
+            } else if (isJavaFile(child)) {
+                changedFiles.add(child);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                // a deleted directory: all known files below it are gone
+                String directoryPrefix = this.getFilePath(child) + "/";
+                for (Path knownFile : this.getKnownFiles()) {
+                    if (this.getFilePath(knownFile).startsWith(directoryPrefix)) {
+                        changedFiles.add(knownFile);
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            this.watchedDirectories.remove(key);
+        }
+    }
+
+    private List<Path> getKnownFiles(){
+        List<Path> knownFiles = new ArrayList<Path>();
+        for (String filePath : this.classesByFile.keySet()) {
+            knownFiles.add(this.sourceRoot.resolve(filePath));
+        }
+        return knownFiles;
+    }
+
+    private String getFilePath(Path file){
+        return ClassOrInterfaceExtractor.getRelativeFilePath(file.toString(), this.options.source);
+    }
+
+    private void registerRecursively(Path directory) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path subDirectory : directories.filter(Files::isDirectory).collect(Collectors.toList())) {
+                WatchKey key = subDirectory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                this.watchedDirectories.put(key, subDirectory);
+            }
+        }
+    }
+
+    private void registerRecursivelyQuietly(Path directory){
+        try {
+            this.registerRecursively(directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static List<Path> findJavaFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(WatchModeExtractor::isJavaFile).filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<Path> findJavaFilesQuietly(Path directory){
+        try {
+            return findJavaFiles(directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    private static boolean isJavaFile(Path file){
+        return file.getFileName() != null && file.getFileName().toString().endsWith(".java");
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        if (this.watchService != null) {
+            this.watchService.close();
+        }
+    }
+
+    private static class ExtractedClass {
+        final ClassOrInterfaceTypeContext context;
+        final String json; // to detect whether a re-extracted class changed at all
+
+        ExtractedClass(ClassOrInterfaceTypeContext context){
+            this.context = context;
+            this.json = ClassContextFileWriter.convertToJson(context);
+        }
+    }
+
+    /**
+     * Results of one extraction run, filled from the PMD worker threads.
+     */
+    private static class ExtractionResult {
+        final Collection<ClassOrInterfaceTypeContext> classes = new ConcurrentLinkedQueue<ClassOrInterfaceTypeContext>();
+        final Set<String> failedFiles = ConcurrentHashMap.newKeySet();
+    }
+}
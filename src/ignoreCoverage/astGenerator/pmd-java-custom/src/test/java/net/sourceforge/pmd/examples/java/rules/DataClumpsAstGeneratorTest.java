@@ -0,0 +1,35 @@
+package net.sourceforge.pmd.examples.java.rules;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.SkippedFileReportWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataClumpsAstGeneratorTest {
+
+    @Test
+    void budgetedRunRecordsFilesWhichDoNotCompile(@TempDir Path destination) throws Exception {
+        // make run takes this path instead of pmd check as soon as a budget or RETRY_MODE is set
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = "../testSrc/javaCompiling";
+        options.destination = destination.toString();
+        options.fileTimeBudgetMillis = 60000;
+
+        DataClumpsAstGenerator.run(options, new String[0]);
+
+        Path skippedFiles = destination.resolve(".extraction").resolve(SkippedFileReportWriter.FILE_NAME);
+        List<String> lines = Files.readAllLines(skippedFiles, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"file_path\":\"ClassWithCompilerError.java\""), lines.get(0));
+        assertTrue(lines.get(0).contains("\"reason\":\"PARSE_ERROR\""), lines.get(0));
+        assertTrue(Files.exists(destination.resolve("com.example.Hero.json")));
+    }
+}
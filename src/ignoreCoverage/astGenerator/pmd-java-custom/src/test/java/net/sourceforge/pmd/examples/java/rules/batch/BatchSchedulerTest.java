@@ -0,0 +1,150 @@
+package net.sourceforge.pmd.examples.java.rules.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.checkpoint.ExtractionJournal;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputProjection;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextConsumer;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextStreamWriter;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import net.sourceforge.pmd.examples.java.rules.output.ReportingDetailsWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void aBatchOfTwoProjectsEqualsTwoSeparateRuns() throws Exception {
+        Path sourceA = this.tempDir.resolve("sourceA");
+        Path sourceB = this.tempDir.resolve("sourceB");
+        for (int i = 0; i < 20; i++) {
+            write(sourceA.resolve("a/Class" + i + ".java"), "package a; import java.util.*; public class Class" + i + " { List<String> names" + i + "; int value; }");
+        }
+        write(sourceB.resolve("b/Only.java"), "package b; public class Only extends Base { String name; void set(String name){ this.name = name; } }");
+        write(sourceB.resolve("b/Base.java"), "package b; public class Base { int id; }");
+
+        ExtractionOptions defaults = new ExtractionOptions();
+        defaults.threads = 2;
+        List<BatchProjectResult> results = new BatchScheduler(defaults).run(Arrays.asList(
+                project("a", sourceA, this.tempDir.resolve("batchA")), project("b", sourceB, this.tempDir.resolve("batchB"))));
+
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(results.get(0).name, results.get(1).name));
+        assertEquals(20, results.get(0).classes);
+        assertTrue(results.get(0).chunks > 1);
+        assertEquals(2, results.get(1).classes);
+        for (String project : Arrays.asList("A", "B")) {
+            ExtractionOptions single = defaults.copy();
+            single.source = this.tempDir.resolve("source" + project).toString();
+            single.destination = this.tempDir.resolve("single" + project).toString();
+            new DataClumpsAstExtractor(single).extract(Collections.singletonList(this.tempDir.resolve("source" + project)), new ClassContextFileWriter(single));
+
+            assertEquals(readOutputs(this.tempDir.resolve("single" + project)), readOutputs(this.tempDir.resolve("batch" + project)));
+            assertTrue(new File(this.tempDir.resolve("batch" + project).toFile(), OutputFolders.META_FOLDER_NAME + "/" + BatchScheduler.REPORT_FILE_NAME).isFile());
+        }
+    }
+
+    @Test
+    void aFailingChunkIsReportedInTheBatchReport() throws Exception {
+        Path source = this.tempDir.resolve("source");
+        write(source.resolve("p/Person.java"), "package p; public class Person { String name; }");
+        Path brokenJar = this.tempDir.resolve("broken.jar");
+        write(brokenJar, "no zip file");
+        Path destination = this.tempDir.resolve("destination");
+
+        BatchProject project = project("broken", source, destination);
+        project.auxClasspath = brokenJar.toString();
+        ExtractionOptions defaults = new ExtractionOptions();
+        defaults.ignoreWildcardImports = false; // the package member index reads the aux classpath
+        BatchProjectResult result = new BatchScheduler(defaults).run(Collections.singletonList(project)).get(0);
+
+        assertEquals(1, result.errors.size());
+        assertTrue(result.errors.get(0).startsWith(source.resolve("p/Person.java") + " (+0 files): "), result.errors.get(0));
+        File reportFile = new File(destination.toFile(), OutputFolders.META_FOLDER_NAME + "/" + BatchScheduler.REPORT_FILE_NAME);
+        assertEquals(result.errors, new ObjectMapper().readValue(reportFile, BatchProjectResult.class).errors);
+    }
+
+    @Test
+    void aProjectResumesFromItsCheckpoint() throws Exception {
+        Path source = this.tempDir.resolve("source");
+        for (int i = 0; i < 3; i++) {
+            write(source.resolve("p/Class" + i + ".java"), "package p; public class Class" + i + " { int value" + i + "; }");
+        }
+        Path destination = this.tempDir.resolve("destination");
+        ExtractionOptions defaults = new ExtractionOptions();
+        defaults.checkpoint = true;
+
+        BatchProjectResult first = new BatchScheduler(defaults).run(Collections.singletonList(project("p", source, destination))).get(0);
+        assertEquals(3, first.files);
+        assertTrue(new File(destination.toFile(), OutputFolders.META_FOLDER_NAME + "/" + ExtractionJournal.FILE_NAME).isFile());
+
+        write(source.resolve("p/Added.java"), "package p; public class Added { int value; }");
+        BatchProjectResult resumed = new BatchScheduler(defaults).run(Collections.singletonList(project("p", source, destination))).get(0);
+        assertEquals(3, resumed.resumedFiles);
+        assertEquals(1, resumed.files);
+        assertEquals(4, readOutputs(destination).size());
+    }
+
+    @Test
+    void theDetectionProjectionAppliesToTheProjects() throws Exception {
+        Path source = this.tempDir.resolve("source");
+        write(source.resolve("p/Address.java"), "package p; public class Address { public void ship(final String street, String city, String zip){} }");
+        write(source.resolve("p/Person.java"), "package p; public class Person { void move(String street, String city, String zip){} }");
+        ExtractionOptions defaults = new ExtractionOptions();
+        defaults.projection = OutputProjection.DETECTION;
+
+        new BatchScheduler(defaults).run(Collections.singletonList(project("p", source, this.tempDir.resolve("batch"))));
+
+        ExtractionOptions single = defaults.copy();
+        single.source = source.toString();
+        single.destination = this.tempDir.resolve("single").toString();
+        try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(single)) {
+            new DataClumpsAstExtractor(single).extract(Collections.singletonList(source), consumer);
+        }
+        assertEquals(readOutputs(this.tempDir.resolve("single")), readOutputs(this.tempDir.resolve("batch")));
+        String detailsFolder = OutputFolders.META_FOLDER_NAME + "/" + ReportingDetailsWriter.FOLDER_NAME;
+        Map<String, String> details = readOutputs(this.tempDir.resolve("batch").resolve(detailsFolder));
+        assertEquals(Arrays.asList("p.Address.json", "p.Person.json"), Arrays.asList(details.keySet().toArray()));
+        assertEquals(readOutputs(this.tempDir.resolve("single").resolve(detailsFolder)), details);
+    }
+
+    private static BatchProject project(String name, Path source, Path destination){
+        BatchProject project = new BatchProject();
+        project.name = name;
+        project.source = source.toString();
+        project.destination = destination.toString();
+        return project;
+    }
+
+    private static Map<String, String> readOutputs(Path destination) throws IOException {
+        Map<String, String> outputs = new TreeMap<String, String>();
+        File[] files = destination.toFile().listFiles((folder, name) -> name.endsWith(".json"));
+        for (File file : files) {
+            outputs.put(file.getName(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        return outputs;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,131 @@
+package net.sourceforge.pmd.examples.java.rules.bytecode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuxClassExtractorTest {
+
+    private static final String SOURCE = "package com.example;\n"
+            + "import java.util.List;\n"
+            + "import java.util.Map;\n"
+            + "public class Invoice<T> implements java.io.Serializable {\n"
+            + "    private final Map<String, List<? extends Number>> amounts = null;\n"
+            + "    protected int[][] grid;\n"
+            + "    T item;\n"
+            + "    Map.Entry<String, T> entry;\n"
+            + "    Line firstLine;\n"
+            + "    public static final long LIMIT = 1;\n"
+            + "    public Invoice(int number, String... lines) {}\n"
+            + "    public T get(int index) { return null; }\n"
+            + "    <K extends Comparable<K>> K max(java.util.Collection<? super K> values, K[] more) { return null; }\n"
+            + "    public class Line { Line(final String text, double amount) {} }\n"
+            + "    static class Total extends Exception { Total(double value) {} }\n"
+            + "    interface Formatter { String format(Invoice<?> invoice); default void reset() {} }\n"
+            + "}\n";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void bytecodeGivesTheSourceExtractionAsAuxclass() throws IOException {
+        Path source = this.tempDir.resolve("source");
+        Path sourceFile = source.resolve("com/example/Invoice.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, SOURCE.getBytes(StandardCharsets.UTF_8));
+        Path jar = this.compileIntoJar(sourceFile);
+
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = source.toString();
+        options.threads = 1;
+        List<ClassOrInterfaceTypeContext> sourceClasses = new ArrayList<ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(source), sourceClasses::add);
+
+        options.auxClassCache = this.tempDir.resolve("cache").toString();
+        AuxClassExtractor extractor = new AuxClassExtractor(options);
+        List<ClassOrInterfaceTypeContext> auxClasses = new ArrayList<ClassOrInterfaceTypeContext>();
+        extractor.extract(jar.toString(), auxClasses::add);
+
+        assertEquals(1, auxClasses.size());
+        ClassOrInterfaceTypeContext auxClass = auxClasses.get(0);
+        assertTrue(auxClass.auxclass);
+        assertEquals(jar.toString().replace('\\', '/') + "!/com/example/Invoice.class", auxClass.file_path);
+        assertEquals(withoutSourceDetails(sourceClasses.get(0)), withoutSourceDetails(auxClass));
+        assertEquals(1, extractor.getReadJars());
+
+        // the same JAR again: from the cache
+        AuxClassExtractor cachedExtractor = new AuxClassExtractor(options);
+        List<ClassOrInterfaceTypeContext> cachedClasses = new ArrayList<ClassOrInterfaceTypeContext>();
+        cachedExtractor.extract(jar.toString(), cachedClasses::add);
+        assertEquals(1, cachedExtractor.getCachedJars());
+        assertEquals(0, cachedExtractor.getReadJars());
+        assertEquals(MAPPER.valueToTree(auxClass), MAPPER.valueToTree(cachedClasses.get(0)));
+    }
+
+    private Path compileIntoJar(Path sourceFile) throws IOException {
+        Path classes = this.tempDir.resolve("classes");
+        Files.createDirectories(classes);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-parameters", "-d", classes.toString(), sourceFile.toString());
+        assertEquals(0, result, "javac failed");
+
+        Path jar = this.tempDir.resolve("invoice.jar");
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(classes)) {
+            classFiles = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        try (OutputStream out = Files.newOutputStream(jar); JarOutputStream jarOut = new JarOutputStream(out)) {
+            for (Path classFile : classFiles) {
+                jarOut.putNextEntry(new JarEntry(classes.relativize(classFile).toString().replace('\\', '/')));
+                jarOut.write(Files.readAllBytes(classFile));
+                jarOut.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * @return the class without what only the source has: positions, @Override and the file
+     */
+    private static JsonNode withoutSourceDetails(ClassOrInterfaceTypeContext classContext){
+        JsonNode tree = MAPPER.valueToTree(classContext);
+        removeSourceDetails(tree);
+        return tree;
+    }
+
+    private static void removeSourceDetails(JsonNode node){
+        if (node instanceof ObjectNode) {
+            ((ObjectNode) node).remove("position");
+            ((ObjectNode) node).remove("overrideAnnotation");
+            ((ObjectNode) node).remove("file_path");
+            ((ObjectNode) node).remove("auxclass");
+        }
+        for (JsonNode child : node) {
+            removeSourceDetails(child);
+        }
+    }
+}
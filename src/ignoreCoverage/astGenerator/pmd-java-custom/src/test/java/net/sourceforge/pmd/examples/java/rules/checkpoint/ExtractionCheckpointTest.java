@@ -0,0 +1,89 @@
+package net.sourceforge.pmd.examples.java.rules.checkpoint;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExtractionCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resumesWithTheFilesWhoseOutputIsNotComplete() throws IOException {
+        Path source = Files.createDirectories(this.tempDir.resolve("source"));
+        write(source.resolve("Person.java"), "public class Person { String name; }");
+        write(source.resolve("Address.java"), "public class Address { String street; }");
+        write(source.resolve("Company.java"), "public class Company { String name; }");
+        ExtractionOptions options = this.createOptions();
+        this.extract(options, Collections.singletonList(source));
+        Path journal = this.tempDir.resolve("destination/.extraction/" + ExtractionJournal.FILE_NAME);
+        assertEquals(3, Files.readAllLines(journal).size());
+
+        // killed while Company.java was written: its journal line is cut off and its output is incomplete
+        List<String> lines = Files.readAllLines(journal);
+        String companyLine = lines.stream().filter(line -> line.contains("Company.java")).findFirst().get();
+        lines.remove(companyLine);
+        lines.add(companyLine.substring(0, 20));
+        Files.write(journal, lines);
+        write(this.tempDir.resolve("destination/Company.json"), "{\"key\":\"Comp");
+
+        ExtractionCheckpoint checkpoint = ExtractionCheckpoint.load(options);
+        List<Path> remainingFiles = checkpoint.getRemainingFiles(source);
+
+        assertEquals(Collections.singletonList(source.resolve("Company.java")), remainingFiles);
+        assertEquals(2, checkpoint.getCompletedFileCount());
+        assertEquals(1, checkpoint.getDroppedEntries());
+        assertEquals(1, checkpoint.getRemovedOutputs());
+        assertEquals(set("Address.json", "Person.json"), this.outputFiles());
+
+        this.extract(options, remainingFiles);
+        assertEquals(set("Address.json", "Company.json", "Person.json"), this.outputFiles());
+        assertEquals(Collections.emptyList(), ExtractionCheckpoint.load(options).getRemainingFiles(source));
+    }
+
+    private void extract(ExtractionOptions options, List<Path> paths){
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setCompletedFileListener(new ExtractionJournal(options));
+        extractor.extract(paths, new ClassContextFileWriter(options));
+    }
+
+    private ExtractionOptions createOptions(){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = this.tempDir.resolve("source").toString();
+        options.destination = this.tempDir.resolve("destination").toString();
+        options.threads = 1;
+        options.checkpoint = true;
+        return options;
+    }
+
+    private Set<String> outputFiles() throws IOException {
+        Set<String> names = new TreeSet<String>();
+        try (java.util.stream.Stream<Path> files = Files.list(this.tempDir.resolve("destination"))) {
+            files.filter(Files::isRegularFile).forEach(file -> names.add(file.getFileName().toString()));
+        }
+        return names;
+    }
+
+    private static Set<String> set(String... values){
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,118 @@
+package net.sourceforge.pmd.examples.java.rules.delta;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractionDeltaBuilderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reportsAddedRemovedAndChangedClassesWithTheirMembers() throws IOException {
+        File previous = this.tempDir.resolve("previous").toFile();
+        write(previous, "p.Kept", classJson("p.Kept", "public", field("p.Kept", "id", "int", 3), method("p.Kept", "run", "void", 5)));
+        write(previous, "p.Changed", classJson("p.Changed", "public", field("p.Changed", "name", "String", 3), field("p.Changed", "removed", "int", 4), method("p.Changed", "run", "void", 5)));
+        write(previous, "p.Removed", classJson("p.Removed", "public"));
+        File current = this.tempDir.resolve("current").toFile();
+        write(current, "p.Kept", classJson("p.Kept", "public", field("p.Kept", "id", "int", 3), method("p.Kept", "run", "void", 5)));
+        write(current, "p.Changed", classJson("p.Changed", "final", field("p.Changed", "name", "java.lang.String", 3), method("p.Changed", "run", "void", 5), field("p.Changed", "added", "long", 6)));
+        write(current, "p.Added", classJson("p.Added", "public"));
+
+        ExtractionDelta delta = new ExtractionDeltaBuilder().compute(current, previous);
+
+        assertEquals(Collections.singleton("p.Added"), delta.addedClasses.keySet());
+        assertEquals(Collections.singletonList("p.Removed"), delta.removedClasses);
+        assertEquals(1, delta.unchangedClasses);
+        assertEquals(1, delta.changedClasses.size());
+        ExtractionDelta.ChangedClass changed = delta.changedClasses.get(0);
+        assertEquals("p.Changed", changed.key);
+        assertNotEquals(changed.previousFingerprint, changed.fingerprint);
+        assertTrue(changed.declarationChanged);
+        assertEquals(Collections.singletonList("p.Changed/memberField/added"), changed.addedMembers);
+        assertEquals(Collections.singletonList("p.Changed/memberField/removed"), changed.removedMembers);
+        assertEquals(Collections.singletonList("p.Changed/memberField/name"), changed.changedMembers);
+        assertTrue(new File(current, OutputFolders.META_FOLDER_NAME + "/" + ExtractionDeltaBuilder.DELTA_FILE_NAME).isFile());
+    }
+
+    @Test
+    void theFingerprintIgnoresPositionsFilePathsAndMemberOrder() throws IOException {
+        String fingerprint = ClassFingerprint.of(MAPPER.readTree(classJson("p.A", "public", field("p.A", "id", "int", 3), field("p.A", "name", "String", 4))));
+        String moved = ClassFingerprint.of(MAPPER.readTree(classJson("p.A", "public", field("p.A", "name", "String", 14), field("p.A", "id", "int", 13))
+                .replace("\"p/A.java\"", "\"moved/A.java\"")));
+        String retyped = ClassFingerprint.of(MAPPER.readTree(classJson("p.A", "public", field("p.A", "id", "long", 3), field("p.A", "name", "String", 4))));
+
+        assertEquals(fingerprint, moved);
+        assertNotEquals(fingerprint, retyped);
+    }
+
+    @Test
+    void theFingerprintsOfADestinationAreRecomputedAfterAnotherExtractionIntoIt() throws IOException {
+        File first = this.tempDir.resolve("first").toFile();
+        write(first, "p.A", classJson("p.A", "public", field("p.A", "id", "int", 3)));
+        File second = this.tempDir.resolve("second").toFile();
+        write(second, "p.A", classJson("p.A", "public", field("p.A", "id", "int", 3)));
+        new ExtractionDeltaBuilder().compute(second, first); // writes the fingerprints of second
+        File fingerprints = new File(second, OutputFolders.META_FOLDER_NAME + "/" + ExtractionDeltaBuilder.FINGERPRINTS_FILE_NAME);
+        assertTrue(fingerprints.isFile());
+
+        // second is extracted again in place, with the same class keys
+        File rewritten = write(second, "p.A", classJson("p.A", "public", field("p.A", "id", "long", 3)));
+        assertTrue(rewritten.setLastModified(fingerprints.lastModified() + 2000));
+        File third = this.tempDir.resolve("third").toFile();
+        write(third, "p.A", classJson("p.A", "public", field("p.A", "id", "long", 3)));
+
+        ExtractionDelta delta = new ExtractionDeltaBuilder().compute(third, second);
+        assertEquals(Collections.emptyList(), delta.changedClasses);
+        assertEquals(1, delta.unchangedClasses);
+        assertFalse(delta.addedClasses.containsKey("p.A"));
+    }
+
+    private static String classJson(String key, String modifier, String... members){
+        StringBuilder fields = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        for (String member : members) {
+            StringBuilder target = member.contains("/memberField/") ? fields : methods;
+            target.append(target.length() > 0 ? "," : "").append(member);
+        }
+        return "{\"key\":\"" + key + "\",\"name\":\"" + key.substring(key.lastIndexOf('.') + 1) + "\",\"modifiers\":[\"" + modifier + "\"],"
+                + "\"file_path\":\"" + key.substring(0, key.lastIndexOf('.')).replace('.', '/') + "/" + key.substring(key.lastIndexOf('.') + 1) + ".java\","
+                + "\"position\":{\"startLine\":1,\"startColumn\":1,\"endLine\":20,\"endColumn\":1},"
+                + "\"fields\":{" + fields + "},\"methods\":{" + methods + "},\"constructors\":{},\"innerDefinedClasses\":{},\"innerDefinedInterfaces\":{}}";
+    }
+
+    private static String field(String classKey, String name, String type, int line){
+        String key = classKey + "/memberField/" + name;
+        return "\"" + key + "\":{\"key\":\"" + key + "\",\"name\":\"" + name + "\",\"type\":\"" + type + "\",\"modifiers\":[\"private\"],"
+                + "\"position\":{\"startLine\":" + line + ",\"startColumn\":5,\"endLine\":" + line + ",\"endColumn\":20}}";
+    }
+
+    private static String method(String classKey, String name, String returnType, int line){
+        String key = classKey + "/method/" + name + "()";
+        return "\"" + key + "\":{\"key\":\"" + key + "\",\"name\":\"" + name + "\",\"returnType\":\"" + returnType + "\",\"parameters\":[],"
+                + "\"position\":{\"startLine\":" + line + ",\"startColumn\":5,\"endLine\":" + (line + 2) + ",\"endColumn\":5}}";
+    }
+
+    private static File write(File destination, String classKey, String json) throws IOException {
+        File file = new File(destination, classKey + ".json");
+        Files.createDirectories(destination.toPath());
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
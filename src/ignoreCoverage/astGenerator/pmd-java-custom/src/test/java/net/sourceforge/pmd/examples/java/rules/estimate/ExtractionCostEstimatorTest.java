@@ -0,0 +1,87 @@
+package net.sourceforge.pmd.examples.java.rules.estimate;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractionCostEstimatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void samplesEveryStratumAndTheLargestFile() throws IOException {
+        Path source = this.tempDir.resolve("source");
+        for (int i = 0; i < 40; i++) {
+            StringBuilder fields = new StringBuilder();
+            for (int j = 0; j <= i; j++) {
+                fields.append(" int value").append(j).append(';');
+            }
+            write(source.resolve("p/Class" + i + ".java"), "package p; public class Class" + i + " {" + fields + " }");
+        }
+        List<ExtractionCostEstimator.SourceFile> files = ExtractionCostEstimator.listFiles(source, source.toString());
+        List<ExtractionCostEstimator.SampleStratum> strata = ExtractionCostEstimator.stratify(files, 11);
+
+        assertEquals(ExtractionCostEstimator.STRATA + 1, strata.size());
+        ExtractionCostEstimator.SampleStratum largestFile = strata.get(strata.size() - 1);
+        assertEquals("p/Class39.java", largestFile.sample.get(0).relativePath);
+        int sampledFiles = 0;
+        for (ExtractionCostEstimator.SampleStratum stratum : strata) {
+            assertTrue(stratum.sample.size() >= 1);
+            sampledFiles += stratum.sample.size();
+        }
+        assertEquals(11, sampledFiles);
+        // the same tree gets the same sample
+        List<ExtractionCostEstimator.SampleStratum> again = ExtractionCostEstimator.stratify(ExtractionCostEstimator.listFiles(source, source.toString()), 11);
+        assertEquals(relativePaths(strata.get(2).sample), relativePaths(again.get(2).sample));
+    }
+
+    @Test
+    void aSampleOfAllFilesIsExact() throws IOException {
+        Path source = this.tempDir.resolve("source");
+        for (int i = 0; i < 6; i++) {
+            write(source.resolve("p/Class" + i + ".java"), "package p; public class Class" + i + " { int value" + i + "; class Inner { } }");
+        }
+        write(source.resolve("p/Broken.java"), "package p; public class Broken {");
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = source.toString();
+        options.destination = this.tempDir.resolve("destination").toString();
+        options.estimateSampleFiles = 100;
+
+        CostEstimate estimate = new ExtractionCostEstimator(options).estimate();
+
+        assertEquals(7, estimate.sourceFiles);
+        assertEquals(7, estimate.sampledFiles);
+        assertEquals(6, estimate.outputFiles.estimate);
+        assertEquals(estimate.outputFiles.estimate, estimate.outputFiles.lower);
+        assertEquals(estimate.outputFiles.estimate, estimate.outputFiles.upper);
+        assertTrue(estimate.outputBytes.estimate > 0);
+        assertTrue(estimate.cpuMillis.lower <= estimate.cpuMillis.upper);
+        assertTrue(estimate.wallMillis.estimate >= estimate.setupMillis);
+        assertFalse(Files.exists(this.tempDir.resolve("destination")));
+    }
+
+    private static List<String> relativePaths(List<ExtractionCostEstimator.SourceFile> files){
+        List<String> relativePaths = new ArrayList<String>();
+        for (ExtractionCostEstimator.SourceFile file : files) {
+            relativePaths.add(file.relativePath);
+        }
+        return relativePaths;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
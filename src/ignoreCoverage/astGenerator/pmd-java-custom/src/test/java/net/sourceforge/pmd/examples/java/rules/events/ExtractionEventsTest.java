@@ -0,0 +1,32 @@
+package net.sourceforge.pmd.examples.java.rules.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExtractionEventsTest {
+
+    @Test
+    void withoutFlightRecorderNothingIsRecorded() {
+        ExtractionEvents events = new ExtractionEvents(); // what a Java 8 JVM gets
+
+        assertFalse(events.isRecordingAvailable());
+        assertThrows(IllegalStateException.class, () -> events.startRecording(Paths.get("recording.jfr")));
+        events.beginFileParse("p/A.java");
+        events.endFileParse(10, true);
+        events.endFileParse(10, true); // no parse started on this thread
+        ExtractionEvents.Span file = events.beginFileExtraction();
+        assertNull(file);
+        events.endFileExtraction(file, "p/A.java", "FULL", 1, "extracted");
+        assertNull(events.beginClassExtraction());
+        events.endClassExtraction(null, "p.A", 1, 2, 0, 0, 0);
+        assertNull(events.beginTypeResolution());
+        events.endTypeResolution(null, "String", "FULL");
+        assertNull(events.beginOutputWrite());
+        events.endOutputWrite(null, "p.A", "FILES", 100);
+    }
+}
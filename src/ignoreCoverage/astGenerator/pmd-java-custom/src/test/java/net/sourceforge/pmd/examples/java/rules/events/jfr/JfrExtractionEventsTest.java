@@ -0,0 +1,59 @@
+package net.sourceforge.pmd.examples.java.rules.events.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.sourceforge.pmd.examples.java.rules.events.ExtractionEvents;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JfrExtractionEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void anExtractionRecordsItsEvents() throws IOException {
+        ExtractionEvents events = ExtractionEvents.get();
+        assertTrue(events instanceof JfrExtractionEvents);
+        assertTrue(events.isRecordingAvailable());
+        assertNull(events.beginFileExtraction(), "no recording is running");
+
+        Path recordingFile = this.tempDir.resolve("extraction.jfr");
+        try (Recording recording = new Recording()) {
+            for (String eventName : new String[]{"dataclumps.FileParse", "dataclumps.FileExtraction", "dataclumps.ClassExtraction"}) {
+                recording.enable(eventName).withoutThreshold();
+            }
+            recording.start();
+            new DataClumpsAstExtractor(new ExtractionOptions()).extractSources(
+                    Collections.singletonMap("p/Person.java", "package p; public class Person { String name; class Address { } }"), classContext -> { });
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<String> recorded = new ArrayList<String>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            String name = event.getEventType().getName();
+            if (name.equals("dataclumps.FileParse") || name.equals("dataclumps.FileExtraction")) {
+                recorded.add(name + " " + event.getString("filePath"));
+            } else if (name.equals("dataclumps.ClassExtraction")) {
+                recorded.add(name + " " + event.getString("classKey"));
+            }
+        }
+        Collections.sort(recorded);
+        assertEquals(List.of("dataclumps.ClassExtraction p.Person", "dataclumps.ClassExtraction p.Person.Address",
+                "dataclumps.FileExtraction p/Person.java", "dataclumps.FileParse p/Person.java"), recorded);
+    }
+}
@@ -0,0 +1,373 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MemberFieldParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ReportingDetailsContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.TypeHierarchyContext;
+import net.sourceforge.pmd.examples.java.rules.projection.DetectionProjection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataClumpsAstExtractorTest {
+
+    private static final Path TEST_SRC = Paths.get("../testSrc/java");
+    private static final Path TEST_SRC_COMPILING = Paths.get("../testSrc/javaCompiling");
+
+    @Test
+    void extractsInMemorySourcesWithoutTouchingTheFilesystem() {
+        ExtractionOptions options = new ExtractionOptions();
+        options.destination = null;
+
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put("com/example/Person.java", "package com.example;\n"
+                + "import java.util.List;\n"
+                + "public class Person {\n"
+                + "    String firstName;\n"
+                + "    List<String> nickNames;\n"
+                + "    public void rename(String firstName, int age) {}\n"
+                + "    static class Address { String street; }\n"
+                + "}\n");
+
+        Map<String, ClassOrInterfaceTypeContext> results = new ConcurrentHashMap<String, ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extractSources(sources, classContext -> results.put(classContext.key, classContext));
+
+        assertEquals(Collections.singleton("com.example.Person"), results.keySet());
+        ClassOrInterfaceTypeContext person = results.get("com.example.Person");
+        assertEquals("com/example/Person.java", person.file_path);
+        assertEquals("java.lang.String", person.fields.get("com.example.Person/memberField/firstName").type);
+        assertEquals("java.util.List<java.lang.String>", person.fields.get("com.example.Person/memberField/nickNames").type);
+        assertTrue(person.methods.containsKey("com.example.Person/method/rename(java.lang.String firstName, int age)"));
+        assertTrue(person.innerDefinedClasses.containsKey("com.example.Person.Address"));
+    }
+
+    @Test
+    void streamsTheClassesOfADirectory() {
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = TEST_SRC.toString();
+
+        List<ClassOrInterfaceTypeContext> classes;
+        try (Stream<ClassOrInterfaceTypeContext> stream = new DataClumpsAstExtractor(options).stream(Collections.singletonList(TEST_SRC))) {
+            classes = stream.collect(Collectors.toList());
+        }
+
+        List<String> keys = classes.stream().map(classContext -> classContext.key).sorted().collect(Collectors.toList());
+        assertEquals(2, keys.size());
+        assertEquals("com.example.Hero", keys.get(0));
+        assertEquals("com.example.Main", keys.get(1));
+        for (ClassOrInterfaceTypeContext classContext : classes) {
+            assertFalse(classContext.file_path.startsWith(".."), classContext.file_path);
+        }
+    }
+
+    @Test
+    void closingAStreamEarlyCancelsTheExtraction(@TempDir Path source) throws Exception {
+        int files = 600; // more classes than the stream buffers
+        for (int i = 0; i < files; i++) {
+            Files.write(source.resolve("Class" + i + ".java"), ("public class Class" + i + " { int value; }").getBytes(StandardCharsets.UTF_8));
+        }
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = source.toString();
+        AtomicInteger completedFiles = new AtomicInteger();
+        List<SkippedFile> skippedFiles = new CopyOnWriteArrayList<SkippedFile>();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setCompletedFileListener(completedFile -> completedFiles.incrementAndGet());
+        extractor.setSkippedFileListener(skippedFiles::add);
+
+        try (Stream<ClassOrInterfaceTypeContext> stream = extractor.stream(Collections.singletonList(source))) {
+            assertTrue(stream.findFirst().isPresent());
+        }
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("data-clumps-ast-extraction")) {
+                thread.join(30000);
+                assertFalse(thread.isAlive(), "the extraction thread still runs after the stream was closed");
+            }
+        }
+        assertTrue(completedFiles.get() < files, completedFiles.get() + " files were extracted");
+        assertTrue(skippedFiles.isEmpty());
+    }
+
+    @Test
+    void recordsFilesWhichDoNotCompileInTheSkipReport() {
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = TEST_SRC_COMPILING.toString();
+
+        List<SkippedFile> skippedFiles = new CopyOnWriteArrayList<SkippedFile>();
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setSkippedFileListener(skippedFiles::add);
+        extractor.extract(Collections.singletonList(TEST_SRC_COMPILING), classes::add);
+
+        assertEquals(2, classes.size());
+        assertEquals(1, skippedFiles.size());
+        assertEquals("ClassWithCompilerError.java", skippedFiles.get(0).file_path);
+        assertEquals(SkippedFile.Reason.PARSE_ERROR, skippedFiles.get(0).reason);
+    }
+
+    @Test
+    void abandonsFilesOverBudgetAndRetriesThemOnce() {
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = TEST_SRC.toString();
+        options.fileMemoryBudgetBytes = 1; // every file is over budget
+        options.retryMode = ExtractionMode.SOURCE_TEXT;
+
+        List<SkippedFile> skippedFiles = new CopyOnWriteArrayList<SkippedFile>();
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setSkippedFileListener(skippedFiles::add);
+        extractor.extract(Collections.singletonList(TEST_SRC), classes::add);
+
+        assertTrue(classes.isEmpty());
+        assertEquals(2, skippedFiles.size());
+        for (SkippedFile skippedFile : skippedFiles) {
+            assertEquals(SkippedFile.Reason.MEMORY_BUDGET, skippedFile.reason);
+            assertEquals("SOURCE_TEXT", skippedFile.retryMode);
+            assertFalse(skippedFile.recovered);
+        }
+    }
+
+    @Test
+    void aFileOverItsBudgetIsRecoveredByTheRetryMode() {
+        // the budget of the first attempt includes the parse of the long method body, the retry starts after it
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            body.append("        total = total + ").append(i).append(";\n");
+        }
+        Map<String, String> sources = Collections.singletonMap("com/example/Long.java", "package com.example;\n"
+                + "public class Long {\n"
+                + "    int total;\n"
+                + "    void sum() {\n" + body + "    }\n"
+                + "}\n");
+        ExtractionOptions options = new ExtractionOptions();
+        options.destination = null;
+        options.fileMemoryBudgetBytes = 8L * 1024 * 1024;
+        options.retryMode = ExtractionMode.SOURCE_TEXT;
+
+        List<SkippedFile> skippedFiles = new CopyOnWriteArrayList<SkippedFile>();
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setSkippedFileListener(skippedFiles::add);
+        extractor.extractSources(sources, classes::add);
+
+        assertEquals(1, skippedFiles.size());
+        SkippedFile skippedFile = skippedFiles.get(0);
+        assertEquals(SkippedFile.Reason.MEMORY_BUDGET, skippedFile.reason, skippedFile.message);
+        assertEquals("SOURCE_TEXT", skippedFile.retryMode);
+        assertTrue(skippedFile.recovered, skippedFile.message);
+        assertEquals(1, classes.size());
+        assertEquals("com.example.Long", classes.get(0).key);
+        assertEquals("int", classes.get(0).fields.get("com.example.Long/memberField/total").type);
+    }
+
+    @Test
+    void sourceTextModeUsesTheTypesAsWritten() {
+        ExtractionOptions options = new ExtractionOptions();
+        options.mode = ExtractionMode.SOURCE_TEXT;
+
+        Map<String, String> sources = Collections.singletonMap("Person.java", "import java.util.List;\n"
+                + "class Person { List<String> nickNames; }\n");
+
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extractSources(sources, classes::add);
+
+        assertEquals(1, classes.size());
+        assertEquals("List<String>", classes.get(0).fields.get("Person/memberField/nickNames").type);
+    }
+
+    @Test
+    void resolvesTheTypeHierarchyOfEveryClass() {
+        ExtractionOptions options = new ExtractionOptions();
+
+        Map<String, String> sources = Collections.singletonMap("com/example/Names.java", "package com.example;\n"
+                + "import java.util.AbstractList;\n"
+                + "public class Names extends AbstractList<String> implements Comparable<Names>, Unknown {\n"
+                + "    public String get(int index) { return null; }\n"
+                + "    public int size() { return 0; }\n"
+                + "    public int compareTo(Names other) { return 0; }\n"
+                + "    public void rename(String name) {}\n"
+                + "    static class Inner {}\n"
+                + "}\n");
+
+        Map<String, TypeHierarchyContext> hierarchies = new ConcurrentHashMap<String, TypeHierarchyContext>();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setTypeHierarchyListener(hierarchy -> hierarchies.put(hierarchy.key, hierarchy));
+        extractor.extractSources(sources, classContext -> { });
+
+        assertEquals(Arrays.asList("com.example.Names", "com.example.Names.Inner"), hierarchies.keySet().stream().sorted().collect(Collectors.toList()));
+        TypeHierarchyContext names = hierarchies.get("com.example.Names");
+        assertTrue(names.supertypes.containsAll(Arrays.asList("java.util.AbstractList", "java.util.List", "java.util.Collection", "java.lang.Comparable", "java.lang.Object")));
+        assertEquals(Collections.singletonList("com.example.Unknown"), names.unresolvedSupertypes);
+        assertFalse(names.hierarchyFullyKnown);
+        assertEquals(Arrays.asList("java.util.AbstractList", "java.util.List"), names.methodDeclaringSupertypes.get("com.example.Names/method/get(int index)"));
+        assertEquals(Collections.singletonList("java.lang.Comparable"), names.methodDeclaringSupertypes.get("com.example.Names/method/compareTo(com.example.Names other)"));
+        assertFalse(names.methodDeclaringSupertypes.containsKey("com.example.Names/method/rename(java.lang.String name)"));
+        assertTrue(hierarchies.get("com.example.Names.Inner").hierarchyFullyKnown);
+    }
+
+    @Test
+    void detectionProjectionKeepsOnlyWhatTheDetectorCanUse() {
+        ExtractionOptions options = new ExtractionOptions();
+
+        Map<String, String> sources = Collections.singletonMap("com/example/Order.java", "package com.example;\n"
+                + "public class Order extends Base {\n"
+                + "    private String street; private String city;\n"
+                + "    public Order(String street, String city, String zip) {}\n"
+                + "    public void ship(final String street, String city, String zip) {}\n"
+                + "    public void cancel(String reason) {}\n"
+                + "    static class Line { int amount; int price; int tax; }\n"
+                + "}\n");
+
+        Map<String, ClassOrInterfaceTypeContext> results = new ConcurrentHashMap<String, ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extractSources(sources, classContext -> results.put(classContext.key, classContext));
+        ClassOrInterfaceTypeContext order = results.get("com.example.Order");
+        ReportingDetailsContext details = new DetectionProjection(options).project(order);
+
+        assertEquals(Collections.singleton("com.example.Order/method/ship(java.lang.String street, java.lang.String city, java.lang.String zip)"), order.methods.keySet());
+        assertTrue(order.fields.isEmpty()); // 2 fields, below the threshold of 3
+        assertTrue(order.constructors.isEmpty());
+        assertEquals(Collections.singletonList("com.example.Base"), order.extends_);
+        ClassOrInterfaceTypeContext line = order.innerDefinedClasses.get("com.example.Order.Line");
+        assertEquals(3, line.fields.size());
+        assertNull(order.position);
+        assertNull(line.fields.get("com.example.Order.Line/memberField/amount").position);
+
+        assertEquals("com.example.Order", details.key);
+        assertTrue(details.positions.containsKey("com.example.Order"));
+        assertTrue(details.positions.containsKey("com.example.Order.Line/memberField/amount"));
+        assertEquals(Collections.singletonList("PUBLIC"), details.modifiers.get("com.example.Order"));
+        assertEquals(Collections.singletonList("FINAL"), details.modifiers.get("com.example.Order/method/ship(java.lang.String street, java.lang.String city, java.lang.String zip)/parameter/street"));
+        assertTrue(order.methods.values().iterator().next().parameters.get(0).modifiers.isEmpty());
+    }
+
+    @Test
+    void similarityKeysIgnoreBoxingAndTypeArguments() {
+        Map<String, String> sources = Collections.singletonMap("com/example/Stock.java", "package com.example;\n"
+                + "import java.util.List;\n"
+                + "public class Stock {\n"
+                + "    Integer itemCount; List<String> HTTPServer_names2;\n"
+                + "    public void add(int itemCount, List names, String item_count) {}\n"
+                + "}\n");
+
+        for (ExtractionMode mode : Arrays.asList(ExtractionMode.FULL, ExtractionMode.STRUCTURAL, ExtractionMode.SOURCE_TEXT)) {
+            ExtractionOptions options = new ExtractionOptions();
+            options.mode = mode;
+            options.variableSimilarityKeys = true;
+            List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+            new DataClumpsAstExtractor(options).extractSources(sources, classes::add);
+
+            ClassOrInterfaceTypeContext stock = classes.get(0);
+            MemberFieldParameterTypeContext itemCount = stock.fields.get("com.example.Stock/memberField/itemCount");
+            MemberFieldParameterTypeContext names = stock.fields.get("com.example.Stock/memberField/HTTPServer_names2");
+            List<MethodParameterTypeContext> parameters = stock.methods.values().iterator().next().parameters;
+
+            assertEquals("itemcount", itemCount.normalizedName);
+            assertEquals(Arrays.asList("item", "count"), itemCount.nameTokens);
+            assertEquals(Arrays.asList("http", "server", "names"), names.nameTokens);
+            assertEquals(Arrays.asList("item", "count"), parameters.get(2).nameTokens);
+            assertEquals(itemCount.typeClassId, parameters.get(0).typeClassId, mode.name()); // Integer and int
+            assertEquals(names.typeClassId, parameters.get(1).typeClassId, mode.name()); // List<String> and List
+            assertNotEquals(itemCount.typeClassId, parameters.get(2).typeClassId, mode.name());
+        }
+    }
+
+    @Test
+    void packageMemberIndexResolvesOnDemandImports() {
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put("com/example/doctor/Doctor.java", "package com.example.doctor;\n"
+                + "import com.example.model.*;\n"
+                + "import java.util.*;\n"
+                + "public class Doctor {\n"
+                + "    Address address; List<Address> addresses; Address.Line line; Schedule schedule; Unknown unknown;\n"
+                + "    Timer timer; Map<String, Process> processes; java.util.Timer jdkTimer;\n"
+                + "}\n");
+        sources.put("com/example/doctor/Schedule.java", "package com.example.doctor;\npublic class Schedule {}\n");
+        // the own package hides java.util.Timer of the on-demand import and java.lang.Process
+        sources.put("com/example/doctor/Timer.java", "package com.example.doctor;\nclass Timer {}\n");
+        sources.put("com/example/doctor/Process.java", "package com.example.doctor;\nclass Process {}\n");
+        sources.put("com/example/model/Address.java", "package com.example.model;\npublic class Address { public static class Line {} }\n");
+
+        for (ExtractionMode mode : Arrays.asList(ExtractionMode.FULL, ExtractionMode.STRUCTURAL)) {
+            for (boolean ignoreWildcardImports : Arrays.asList(true, false)) {
+                ExtractionOptions options = new ExtractionOptions();
+                options.mode = mode;
+                options.ignoreWildcardImports = ignoreWildcardImports;
+                Map<String, ClassOrInterfaceTypeContext> results = new ConcurrentHashMap<String, ClassOrInterfaceTypeContext>();
+                new DataClumpsAstExtractor(options).extractSources(sources, classContext -> results.put(classContext.key, classContext));
+
+                Map<String, MemberFieldParameterTypeContext> fields = results.get("com.example.doctor.Doctor").fields;
+                String modelPackage = ignoreWildcardImports ? "com.example.doctor." : "com.example.model."; // skipped: assumed in the own package
+                String description = mode + " ignoreWildcardImports=" + ignoreWildcardImports;
+                assertEquals(modelPackage + "Address", fields.get("com.example.doctor.Doctor/memberField/address").type, description);
+                assertEquals("java.util.List<" + modelPackage + "Address>", fields.get("com.example.doctor.Doctor/memberField/addresses").type, description);
+                assertEquals("com.example.doctor.Schedule", fields.get("com.example.doctor.Doctor/memberField/schedule").type, description);
+                assertEquals("com.example.doctor.Unknown", fields.get("com.example.doctor.Doctor/memberField/unknown").type, description);
+                assertEquals("java.util.Timer", fields.get("com.example.doctor.Doctor/memberField/jdkTimer").type, description);
+                if (!ignoreWildcardImports) {
+                    assertEquals("com.example.doctor.Timer", fields.get("com.example.doctor.Doctor/memberField/timer").type, description);
+                    assertEquals("java.util.Map<java.lang.String, com.example.doctor.Process>", fields.get("com.example.doctor.Doctor/memberField/processes").type, description);
+                }
+                if (mode == ExtractionMode.FULL && !ignoreWildcardImports) {
+                    assertEquals("com.example.model.Address$Line", fields.get("com.example.doctor.Doctor/memberField/line").type);
+                }
+                if (mode == ExtractionMode.STRUCTURAL) {
+                    String precision = ignoreWildcardImports ? "AMBIGUOUS" : "EXACT";
+                    assertEquals(precision, fields.get("com.example.doctor.Doctor/memberField/address").typePrecision, description);
+                    assertEquals("AMBIGUOUS", fields.get("com.example.doctor.Doctor/memberField/unknown").typePrecision, description);
+                    assertEquals(precision, fields.get("com.example.doctor.Doctor/memberField/timer").typePrecision, description);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ownPackageSecondaryTypesShadowOnDemandImports() {
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put("com/example/doctor/Doctor.java", "package com.example.doctor;\n"
+                + "import com.example.model.*;\n"
+                + "public class Doctor {\n"
+                + "    Address address;\n"
+                + "}\n");
+        sources.put("com/example/doctor/Helpers.java", "package com.example.doctor;\n"
+                + "@SuppressWarnings(value = \"class Unused {\" + Object.class)\n"
+                + "public class Helpers { class Inner {} }\n"
+                + "/* class Commented {} */\n"
+                + "class Address {}\n"
+                + "record Point(int x, int y) {}\n");
+        sources.put("com/example/model/Address.java", "package com.example.model;\npublic class Address {}\n");
+        assertEquals(Arrays.asList("Helpers", "Address", "Point"), PackageMemberIndex.getTopLevelTypeNames(sources.get("com/example/doctor/Helpers.java")));
+
+        for (ExtractionMode mode : Arrays.asList(ExtractionMode.FULL, ExtractionMode.STRUCTURAL)) {
+            ExtractionOptions options = new ExtractionOptions();
+            options.mode = mode;
+            options.ignoreWildcardImports = false;
+            Map<String, ClassOrInterfaceTypeContext> results = new ConcurrentHashMap<String, ClassOrInterfaceTypeContext>();
+            new DataClumpsAstExtractor(options).extractSources(sources, classContext -> results.put(classContext.key, classContext));
+
+            MemberFieldParameterTypeContext address = results.get("com.example.doctor.Doctor").fields.get("com.example.doctor.Doctor/memberField/address");
+            assertEquals("com.example.doctor.Address", address.type, mode.toString());
+        }
+    }
+}
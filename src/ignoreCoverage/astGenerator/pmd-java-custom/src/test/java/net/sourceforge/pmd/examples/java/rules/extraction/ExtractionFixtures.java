@@ -0,0 +1,46 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The java sources the extraction tests run on: the source folders of the data clump test cases and testSrc.
+ */
+final class ExtractionFixtures {
+
+    static final Path TEST_CASES = Paths.get("../../../../tests/data-clumps/test-cases");
+    static final Path TEST_SRC = Paths.get("../testSrc/java");
+
+    private ExtractionFixtures(){
+
+    }
+
+    static List<Path> getSourceFolders() throws IOException {
+        List<Path> folders = new ArrayList<Path>();
+        try (Stream<Path> paths = Files.walk(TEST_CASES)) {
+            folders.addAll(paths.filter(path -> Files.isDirectory(path) && path.getFileName().toString().equals("source"))
+                    .filter(path -> path.toString().contains("/java/"))
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        folders.add(TEST_SRC);
+        return folders;
+    }
+
+    /**
+     * @return a readable name of the fixture, e.g. "test-cases/field-field/simple/positive" or "testSrc"
+     */
+    static String getName(Path sourceFolder){
+        if (sourceFolder.equals(TEST_SRC)) {
+            return "testSrc";
+        }
+        Path testCase = TEST_CASES.relativize(sourceFolder).getParent().getParent(); // without "java/source"
+        return "test-cases/" + testCase.toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,418 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.sourceforge.pmd.examples.java.rules.index.ClassIndexReader;
+import net.sourceforge.pmd.examples.java.rules.index.ClassIndexWriter;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextConsumer;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextStreamWriter;
+import net.sourceforge.pmd.examples.java.rules.output.OutputFolders;
+import net.sourceforge.pmd.examples.java.rules.output.ReportingDetailsWriter;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ReportingDetailsContext;
+import net.sourceforge.pmd.examples.java.rules.projection.DetectionProjection;
+import net.sourceforge.pmd.examples.java.rules.watch.WatchModeExtractor;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Protects the output of the extraction: every fixture is extracted by every execution mode and compared with
+ * the checked-in golden files in src/test/resources/golden. Map entries are compared in key order, since the
+ * maps of the output are hash maps. An optimized execution mode is only safe to use once it is listed here.
+ * <p>
+ * After an intended output change, regenerate the golden files with {@code mvn test -Dgolden.update=true}
+ * and review their diff.
+ */
+class GoldenOutputTest {
+
+    static final Path GOLDEN = Paths.get("src/test/resources/golden");
+    private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    @TempDir
+    Path tempDir;
+    private final AtomicInteger destinationCounter = new AtomicInteger();
+
+    /**
+     * @return execution mode name -> extraction of a source folder into class key -> normalized JSON
+     */
+    private Map<String, ExecutionMode> getExecutionModes(){
+        Map<String, ExecutionMode> modes = new LinkedHashMap<String, ExecutionMode>();
+        modes.put("sequential", folder -> extract(folder, 1));
+        modes.put("parallel", folder -> extract(folder, 4));
+        modes.put("fork-join", this::extractTypeDeclarationsInParallel);
+        modes.put("stream", this::extractAsStream);
+        modes.put("file-writer", this::extractIntoFiles);
+        modes.put("watch", this::extractWithWatchMode);
+        modes.put("pipe", this::extractIntoPipe);
+        modes.put("binary", this::extractIntoClassIndex);
+        modes.put("declarations-only", this::extractDeclarationsOnly);
+        modes.put("package-index", this::extractWithPackageMemberIndex);
+        return modes;
+    }
+
+    @TestFactory
+    Stream<DynamicTest> everyExecutionModeProducesTheGoldenOutput() throws IOException {
+        List<Path> sourceFolders = ExtractionFixtures.getSourceFolders();
+        if (UPDATE) {
+            for (Path sourceFolder : sourceFolders) {
+                writeGolden(sourceFolder, extract(sourceFolder, 1));
+            }
+        }
+
+        List<DynamicTest> tests = new ArrayList<DynamicTest>();
+        for (Map.Entry<String, ExecutionMode> mode : this.getExecutionModes().entrySet()) {
+            for (Path sourceFolder : sourceFolders) {
+                String name = mode.getKey() + ": " + ExtractionFixtures.getName(sourceFolder);
+                tests.add(DynamicTest.dynamicTest(name, () -> assertGolden(sourceFolder, mode.getValue().extract(sourceFolder))));
+            }
+        }
+        return tests.stream();
+    }
+
+    /**
+     * OUTPUT_PROJECTION=detection drops members, so its output is compared with the golden output projected in
+     * memory. Both get their reporting details put back like the ParserHelper of the detector does it, so a
+     * position or modifier which does not reach ".extraction/reporting-details" fails the test.
+     */
+    @TestFactory
+    Stream<DynamicTest> theDetectionProjectionProducesTheProjectedGoldenOutput() throws IOException {
+        List<DynamicTest> tests = new ArrayList<DynamicTest>();
+        for (Path sourceFolder : ExtractionFixtures.getSourceFolders()) {
+            tests.add(DynamicTest.dynamicTest("detection: " + ExtractionFixtures.getName(sourceFolder), () -> {
+                ExtractionOptions options = createOptions(sourceFolder);
+                options.destination = this.newDestination().toString();
+                options.projection = OutputProjection.DETECTION;
+                try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(options)) {
+                    new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), consumer);
+                }
+                File detailsFolder = OutputFolders.getMetaFile(options, ReportingDetailsWriter.FOLDER_NAME);
+
+                Map<String, String> actual = new TreeMap<String, String>();
+                for (String classKey : readOutputFolder(new File(options.destination)).keySet()) {
+                    Object classContext = readTree(new File(options.destination, classKey + ".json"));
+                    restoreReportingDetails(classContext, readTree(new File(detailsFolder, classKey + ".json")));
+                    actual.put(classKey, normalize(classContext));
+                }
+                Map<String, String> expected = new TreeMap<String, String>();
+                DetectionProjection projection = new DetectionProjection(options);
+                for (Map.Entry<String, String> goldenClass : readGolden(sourceFolder).entrySet()) {
+                    ClassOrInterfaceTypeContext classContext = MAPPER.readValue(goldenClass.getValue(), ClassOrInterfaceTypeContext.class);
+                    ReportingDetailsContext details = projection.project(classContext);
+                    Object projectedClass = MAPPER.convertValue(classContext, Object.class);
+                    restoreReportingDetails(projectedClass, MAPPER.convertValue(details, Object.class));
+                    // apart from the dropped members nothing is lost on the way through the reporting details
+                    Object goldenTree = MAPPER.readValue(goldenClass.getValue(), Object.class);
+                    retainMembers(goldenTree, projectedClass);
+                    assertEquals(normalize(goldenTree), normalize(projectedClass), goldenClass.getKey());
+                    expected.put(goldenClass.getKey(), normalize(projectedClass));
+                }
+                assertEquals(expected, actual);
+            }));
+        }
+        return tests.stream();
+    }
+
+    /**
+     * Removes the fields, methods and constructors of the class tree which the projected tree does not have.
+     */
+    @SuppressWarnings("unchecked")
+    private static void retainMembers(Object classTree, Object projectedClassTree){
+        Map<String, Object> tree = (Map<String, Object>) classTree;
+        Map<String, Object> projectedTree = (Map<String, Object>) projectedClassTree;
+        for (String members : new String[]{"fields", "methods", "constructors"}) {
+            if (tree.get(members) != null) {
+                ((Map<String, Object>) tree.get(members)).keySet().retainAll(((Map<String, Object>) projectedTree.get(members)).keySet());
+            }
+        }
+        for (String innerClasses : new String[]{"innerDefinedClasses", "innerDefinedInterfaces"}) {
+            if (tree.get(innerClasses) != null) {
+                Map<String, Object> projectedInnerClasses = (Map<String, Object>) projectedTree.get(innerClasses);
+                for (Map.Entry<String, Object> innerClass : ((Map<String, Object>) tree.get(innerClasses)).entrySet()) {
+                    retainMembers(innerClass.getValue(), projectedInnerClasses.get(innerClass.getKey()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the positions and modifiers back into every element of the class tree which has none.
+     */
+    @SuppressWarnings("unchecked")
+    private static void restoreReportingDetails(Object classContext, Object details){
+        Map<String, Object> detailsTree = (Map<String, Object>) details;
+        Map<String, Object> positions = (Map<String, Object>) detailsTree.getOrDefault("positions", Collections.emptyMap());
+        Map<String, Object> modifiers = (Map<String, Object>) detailsTree.getOrDefault("modifiers", Collections.emptyMap());
+        restoreReportingDetails(classContext, positions, modifiers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restoreReportingDetails(Object element, Map<String, Object> positions, Map<String, Object> modifiers){
+        if (element instanceof List) {
+            for (Object item : (List<Object>) element) {
+                restoreReportingDetails(item, positions, modifiers);
+            }
+        } else if (element instanceof Map) {
+            Map<String, Object> tree = (Map<String, Object>) element;
+            Object key = tree.get("key");
+            if (key instanceof String) {
+                if (tree.get("position") == null && positions.containsKey(key)) {
+                    tree.put("position", positions.get(key));
+                }
+                Object elementModifiers = tree.get("modifiers");
+                if ((elementModifiers == null || ((List<?>) elementModifiers).isEmpty()) && modifiers.containsKey(key)) {
+                    tree.put("modifiers", modifiers.get(key));
+                }
+            }
+            for (Object value : tree.values()) {
+                restoreReportingDetails(value, positions, modifiers);
+            }
+        }
+    }
+
+    private static void assertGolden(Path sourceFolder, Map<String, String> actual) throws IOException {
+        Map<String, String> golden = readGolden(sourceFolder);
+        assertEquals(golden.keySet(), actual.keySet(), "class keys of " + sourceFolder);
+        for (Map.Entry<String, String> goldenClass : golden.entrySet()) {
+            assertEquals(goldenClass.getValue(), actual.get(goldenClass.getKey()), goldenClass.getKey());
+        }
+    }
+
+    private static ExtractionOptions createOptions(Path sourceFolder){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = sourceFolder.toString();
+        return options;
+    }
+
+    private static Map<String, String> extract(Path sourceFolder, int threads){
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.threads = threads;
+        Map<String, String> classes = new ConcurrentHashMap<String, String>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), classContext -> classes.put(classContext.key, normalize(classContext)));
+        return new TreeMap<String, String>(classes);
+    }
+
+    /**
+     * Every file is extracted with one fork-join task per class or interface.
+     */
+    private Map<String, String> extractTypeDeclarationsInParallel(Path sourceFolder){
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.threads = 1;
+        options.parallelTypeDeclarationsThreshold = 1;
+        Map<String, String> classes = new ConcurrentHashMap<String, String>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), classContext -> classes.put(classContext.key, normalize(classContext)));
+        return new TreeMap<String, String>(classes);
+    }
+
+    /**
+     * PMD parses the files with blank method bodies.
+     */
+    private Map<String, String> extractDeclarationsOnly(Path sourceFolder){
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.threads = 1;
+        options.declarationsOnly = true;
+        assertTrue(options.isDeclarationsOnly());
+        Map<String, String> classes = new TreeMap<String, String>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), classContext -> classes.put(classContext.key, normalize(classContext)));
+        return classes;
+    }
+
+    /**
+     * Resolves the types PMD can not resolve through the package member index of the fixture.
+     */
+    private Map<String, String> extractWithPackageMemberIndex(Path sourceFolder){
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.threads = 1;
+        options.ignoreWildcardImports = false;
+        Map<String, String> classes = new TreeMap<String, String>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), classContext -> classes.put(classContext.key, normalize(classContext)));
+        return classes;
+    }
+
+    private Map<String, String> extractAsStream(Path sourceFolder){
+        try (Stream<ClassOrInterfaceTypeContext> stream = new DataClumpsAstExtractor(createOptions(sourceFolder)).stream(Collections.singletonList(sourceFolder))) {
+            return stream.collect(Collectors.toMap(classContext -> classContext.key, GoldenOutputTest::normalize, (first, second) -> second, TreeMap::new));
+        }
+    }
+
+    /**
+     * The output of make run: the "[classKey].json" files of the ClassContextFileWriter.
+     */
+    private Map<String, String> extractIntoFiles(Path sourceFolder){
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.destination = this.newDestination().toString();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.extract(Collections.singletonList(sourceFolder), new ClassContextFileWriter(options));
+        return readOutputFolder(new File(options.destination));
+    }
+
+    /**
+     * The initial extraction of the watch mode and an update of every file, which must not change anything.
+     */
+    private Map<String, String> extractWithWatchMode(Path sourceFolder) throws IOException {
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.destination = this.newDestination().toString();
+        WatchModeExtractor watchModeExtractor = new WatchModeExtractor(options);
+        watchModeExtractor.initialExtraction();
+        try (Stream<Path> files = Files.walk(sourceFolder)) {
+            List<Path> javaFiles = files.filter(file -> file.toString().endsWith(".java")).collect(Collectors.toList());
+            assertEquals(Collections.emptyList(), watchModeExtractor.update(javaFiles), "an update without changes has no change events");
+        }
+        return readOutputFolder(new File(options.destination));
+    }
+
+    /**
+     * The length-prefixed records of the PIPE transport, written into a regular file instead of a named pipe.
+     */
+    private Map<String, String> extractIntoPipe(Path sourceFolder) throws IOException {
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.outputTransport = OutputTransport.PIPE;
+        options.outputPipe = this.newDestination().toString();
+        options.streamRecordFormat = StreamRecordFormat.LENGTH_PREFIXED;
+        try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(options)) {
+            new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), consumer);
+        }
+
+        Map<String, String> classes = new TreeMap<String, String>();
+        if (!new File(options.outputPipe).exists()) {
+            return classes; // no class was extracted
+        }
+        try (DataInputStream records = new DataInputStream(Files.newInputStream(Paths.get(options.outputPipe)))) {
+            while (true) {
+                int length;
+                try {
+                    length = records.readInt();
+                } catch (EOFException e) {
+                    return classes;
+                }
+                byte[] record = new byte[length];
+                records.readFully(record);
+                Map<?, ?> classContext = MAPPER.readValue(record, Map.class);
+                classes.put((String) classContext.get("key"), normalize(classContext));
+            }
+        }
+    }
+
+    /**
+     * The output files indexed into classes.index, every class looked up by its key.
+     */
+    private Map<String, String> extractIntoClassIndex(Path sourceFolder) throws IOException {
+        ExtractionOptions options = createOptions(sourceFolder);
+        options.destination = this.newDestination().toString();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(sourceFolder), new ClassContextFileWriter(options));
+        Map<String, String> outputFiles = readOutputFolder(new File(options.destination));
+        assertEquals(outputFiles.size(), ClassIndexWriter.write(options));
+
+        Map<String, String> classes = new TreeMap<String, String>();
+        try (ClassIndexReader reader = ClassIndexReader.open(OutputFolders.getMetaFile(options, ClassIndexWriter.FILE_NAME))) {
+            assertEquals(outputFiles.size(), reader.size());
+            for (String classKey : outputFiles.keySet()) {
+                classes.put(classKey, normalize(reader.read(classKey)));
+            }
+            assertEquals(null, reader.read(" not a class key"));
+        }
+        return classes;
+    }
+
+    private Path newDestination(){
+        return this.tempDir.resolve("destination-" + this.destinationCounter.incrementAndGet());
+    }
+
+    private static Map<String, String> readOutputFolder(File outputFolder){
+        Map<String, String> classes = new TreeMap<String, String>();
+        File[] files = outputFolder.listFiles();
+        if (files == null) {
+            return classes;
+        }
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(".json")) {
+                classes.put(file.getName().substring(0, file.getName().length() - ".json".length()), normalize(readTree(file)));
+            }
+        }
+        return classes;
+    }
+
+    private static Object readTree(File file){
+        try {
+            return MAPPER.readValue(file, Object.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the JSON of the output file with the map entries ordered by their keys
+     */
+    static String normalize(Object classContext){
+        try {
+            return MAPPER.writeValueAsString(MAPPER.convertValue(classContext, Object.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path getGoldenFolder(Path sourceFolder){
+        return GOLDEN.resolve(ExtractionFixtures.getName(sourceFolder));
+    }
+
+    private static Map<String, String> readGolden(Path sourceFolder) throws IOException {
+        Map<String, String> golden = new TreeMap<String, String>();
+        Path goldenFolder = getGoldenFolder(sourceFolder);
+        if (!Files.isDirectory(goldenFolder)) {
+            return golden;
+        }
+        try (Stream<Path> files = Files.list(goldenFolder)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String fileName = file.getFileName().toString();
+                golden.put(fileName.substring(0, fileName.length() - ".json".length()), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return golden;
+    }
+
+    private static void writeGolden(Path sourceFolder, Map<String, String> classes) throws IOException {
+        Path goldenFolder = getGoldenFolder(sourceFolder);
+        if (Files.isDirectory(goldenFolder)) {
+            try (Stream<Path> files = Files.list(goldenFolder)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.createDirectories(goldenFolder);
+        for (Map.Entry<String, String> classContext : classes.entrySet()) {
+            Files.write(goldenFolder.resolve(classContext.getKey() + ".json"), classContext.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private interface ExecutionMode {
+        Map<String, String> extract(Path sourceFolder) throws IOException;
+    }
+}
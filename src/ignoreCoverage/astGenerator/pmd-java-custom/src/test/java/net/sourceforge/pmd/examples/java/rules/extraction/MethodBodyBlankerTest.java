@@ -0,0 +1,58 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MethodBodyBlankerTest {
+
+    @Test
+    void blanksOnlyTheBodiesAndKeepsEveryPosition(){
+        String source = "@SuppressWarnings({\"a\", \"b\"})\n"
+                + "public class Invoice<T> {\n"
+                + "    private int[] numbers = {1, 2};\n"
+                + "    private Runnable task = () -> { run(\"}\"); };\n"
+                + "    static { LIMIT = 1; }\n"
+                + "    public Invoice(int number) throws Exception {\n"
+                + "        String text = \"{ not a brace\"; char c = '}'; // }\n"
+                + "        /* { */ if (number > 0) { text = \"\"\"\n"
+                + "            }\"\"\"; }\n"
+                + "    }\n"
+                + "    Class<?> type() { return String.class; }\n"
+                + "    void local() { class Line { void print() { } } }\n"
+                + "    record Point(int x, int y) { Point { check(x); } }\n"
+                + "    enum Kind { A { void a() { } }, B; void b() { } }\n"
+                + "    interface Formatter { default String format() { return \"\"; } }\n"
+                + "}\n";
+        String constructorBody = "\n"
+                + "        String text = \"{ not a brace\"; char c = '}'; // }\n"
+                + "        /* { */ if (number > 0) { text = \"\"\"\n"
+                + "            }\"\"\"; }\n"
+                + "    ";
+        String expected = "@SuppressWarnings({\"a\", \"b\"})\n"
+                + "public class Invoice<T> {\n"
+                + "    private int[] numbers = {1, 2};\n"
+                + "    private Runnable task = () -> { run(\"}\"); };\n"
+                + "    static {" + blank(" LIMIT = 1; ") + "}\n"
+                + "    public Invoice(int number) throws Exception {" + blank(constructorBody) + "}\n"
+                + "    Class<?> type() {" + blank(" return String.class; ") + "}\n"
+                + "    void local() { class Line { void print() { } } }\n"
+                + "    record Point(int x, int y) { Point {" + blank(" check(x); ") + "} }\n"
+                + "    enum Kind { A {" + blank(" void a() { } ") + "}, B; void b() {" + blank(" ") + "} }\n"
+                + "    interface Formatter { default String format() {" + blank(" return \"\"; ") + "} }\n"
+                + "}\n";
+        assertEquals(expected, MethodBodyBlanker.blankBodies(source));
+    }
+
+    private static String blank(String body){
+        return body.replaceAll("[^\\n]", " ");
+    }
+
+    @Test
+    void keepsAFileWhichCanNotBeScanned(){
+        String unbalanced = "class A { void a() { }\n";
+        assertEquals(unbalanced, MethodBodyBlanker.blankBodies(unbalanced));
+        String unicodeEscape = "class A { void a() \\u007B }\n";
+        assertEquals(unicodeEscape, MethodBodyBlanker.blankBodies(unicodeEscape));
+    }
+}
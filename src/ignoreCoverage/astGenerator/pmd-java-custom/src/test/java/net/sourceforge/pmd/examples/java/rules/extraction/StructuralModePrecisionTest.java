@@ -0,0 +1,156 @@
+package net.sourceforge.pmd.examples.java.rules.extraction;
+
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.AstElementTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.AstPosition;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MemberFieldParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodParameterTypeContext;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.MethodTypeContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the precision of the STRUCTURAL mode against the FULL mode on the test case fixtures. Every type
+ * name (fields, parameters, return types, supertypes) is compared by its position in the source code.
+ */
+class StructuralModePrecisionTest {
+
+    @Test
+    void exactStructuralTypesMatchTheFullMode() throws IOException {
+        Map<String, int[]> countsByPrecision = new TreeMap<String, int[]>(); // precision -> {values, equal to FULL}
+        Map<String, List<String>> differencesByPrecision = new TreeMap<String, List<String>>();
+
+        for (Path folder : ExtractionFixtures.getSourceFolders()) {
+            Map<String, AstElementTypeContext> fullTypes = extractTypes(folder, ExtractionMode.FULL);
+            Map<String, AstElementTypeContext> structuralTypes = extractTypes(folder, ExtractionMode.STRUCTURAL);
+
+            assertEquals(fullTypes.keySet(), structuralTypes.keySet(), folder.toString());
+            for (Map.Entry<String, AstElementTypeContext> structural : structuralTypes.entrySet()) {
+                AstElementTypeContext full = fullTypes.get(structural.getKey());
+                String precision = structural.getValue().typePrecision;
+                int[] counts = countsByPrecision.computeIfAbsent(precision, key -> new int[2]);
+                counts[0]++;
+                boolean equal = full.type.equals(structural.getValue().type) && full.hasTypeVariable == structural.getValue().hasTypeVariable;
+                if (equal) {
+                    counts[1]++;
+                } else {
+                    differencesByPrecision.computeIfAbsent(precision, key -> new ArrayList<String>())
+                            .add(folder.getFileName() + " " + structural.getKey() + ": " + full.type + " <> " + structural.getValue().type);
+                }
+            }
+        }
+
+        int values = 0;
+        int equalValues = 0;
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, int[]> counts : countsByPrecision.entrySet()) {
+            values += counts.getValue()[0];
+            equalValues += counts.getValue()[1];
+            summary.append("\n").append(counts.getKey()).append(": ").append(counts.getValue()[1]).append("/").append(counts.getValue()[0]).append(" equal to FULL");
+        }
+
+        assertTrue(values > 0);
+        int[] exact = countsByPrecision.get(TypePrecision.EXACT.name());
+        assertEquals(exact[0], exact[1], () -> "every EXACT type has to match the FULL mode, differences: "
+                + differencesByPrecision.get(TypePrecision.EXACT.name()) + summary);
+        int total = values;
+        int equalTotal = equalValues;
+        assertTrue(equalValues >= values * 0.95, () -> "at least 95% of the types have to match the FULL mode, "
+                + equalTotal + "/" + total + " do:" + summary + "\ndifferences: " + differencesByPrecision);
+    }
+
+    @Test
+    void jdkTypesHiddenByTheOwnPackageAreNotExact() {
+        Map<String, String> sources = new TreeMap<String, String>();
+        sources.put("p/Timer.java", "package p; class Timer { }");
+        sources.put("p/Record.java", "package p; class Record { }");
+        sources.put("p/Process.java", "package p; class Process { }");
+        sources.put("p/User.java", "package p; import java.util.*; public class User { Timer timer; Record record; Process process; String name; }");
+        ExtractionOptions options = new ExtractionOptions();
+        options.destination = null;
+        options.mode = ExtractionMode.STRUCTURAL;
+        options.ignoreWildcardImports = true; // no package member index knows the own package
+
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extractSources(sources, classes::add);
+
+        ClassOrInterfaceTypeContext user = classes.stream().filter(classContext -> classContext.key.equals("p.User")).findFirst().get();
+        for (String name : new String[]{"Timer", "Record", "Process"}) {
+            MemberFieldParameterTypeContext field = user.fields.get("p.User/memberField/" + name.toLowerCase());
+            // the JDK type (java.util.Timer, java.lang.Record from Java 16 on, java.lang.Process) is hidden by p
+            assertTrue(!TypePrecision.EXACT.name().equals(field.typePrecision) || field.type.equals("p." + name), field.type + " " + field.typePrecision);
+        }
+        assertEquals("java.lang.String", user.fields.get("p.User/memberField/name").type);
+    }
+
+    /**
+     * @return type names by a key which is the same in every mode: class key, kind and source position
+     */
+    static Map<String, AstElementTypeContext> extractTypes(Path folder, ExtractionMode mode){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = folder.toString();
+        options.mode = mode;
+        options.threads = 1;
+
+        List<ClassOrInterfaceTypeContext> classes = new CopyOnWriteArrayList<ClassOrInterfaceTypeContext>();
+        new DataClumpsAstExtractor(options).extract(Collections.singletonList(folder), classes::add);
+
+        Map<String, AstElementTypeContext> types = new TreeMap<String, AstElementTypeContext>();
+        for (ClassOrInterfaceTypeContext classContext : classes) {
+            collectTypes(classContext, types);
+        }
+        return types;
+    }
+
+    private static void collectTypes(ClassOrInterfaceTypeContext classContext, Map<String, AstElementTypeContext> types){
+        for (MemberFieldParameterTypeContext field : classContext.fields.values()) {
+            types.put(classContext.key + "/field@" + position(field.position), field);
+        }
+        List<MethodTypeContext> methods = new ArrayList<MethodTypeContext>(classContext.methods.values());
+        methods.addAll(classContext.constructors.values());
+        for (MethodTypeContext method : methods) {
+            if (method.type != null) {
+                types.put(classContext.key + "/return@" + position(method.position), method);
+            }
+            for (MethodParameterTypeContext parameter : method.parameters) {
+                types.put(classContext.key + "/parameter@" + position(parameter.position), parameter);
+            }
+        }
+        for (int i = 0; i < classContext.extends_.size(); i++) {
+            types.put(classContext.key + "/extends#" + i, supertype(classContext, classContext.extends_.get(i)));
+        }
+        for (int i = 0; i < classContext.implements_.size(); i++) {
+            types.put(classContext.key + "/implements#" + i, supertype(classContext, classContext.implements_.get(i)));
+        }
+        for (ClassOrInterfaceTypeContext inner : classContext.innerDefinedClasses.values()) {
+            collectTypes(inner, types);
+        }
+        for (ClassOrInterfaceTypeContext inner : classContext.innerDefinedInterfaces.values()) {
+            collectTypes(inner, types);
+        }
+    }
+
+    private static AstElementTypeContext supertype(ClassOrInterfaceTypeContext classContext, String name){
+        AstElementTypeContext supertype = new AstElementTypeContext();
+        supertype.type = name;
+        if (classContext.supertypeTypePrecisions != null) {
+            supertype.typePrecision = classContext.supertypeTypePrecisions.get(name);
+        }
+        return supertype;
+    }
+
+    private static String position(AstPosition position){
+        return position.startLine + ":" + position.startColumn;
+    }
+}
@@ -0,0 +1,89 @@
+package net.sourceforge.pmd.examples.java.rules.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassIndexReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void looksUpKeysAndPrefixes() throws IOException {
+        SortedMap<String, Path> records = new TreeMap<String, Path>();
+        for (String key : Arrays.asList("com.example.A", "com.example.B", "com.example.model.C", "org.other.D")) {
+            records.put(key, this.write(key + ".json", "{\"key\":\"" + key + "\",\"name\":\"" + key.substring(key.lastIndexOf('.') + 1) + "\"}"));
+        }
+        File indexFile = this.tempDir.resolve(ClassIndexWriter.FILE_NAME).toFile();
+        ClassIndexWriter.write(indexFile, records);
+
+        try (ClassIndexReader reader = ClassIndexReader.open(indexFile)) {
+            assertEquals(4, reader.size());
+            assertEquals("C", reader.read("com.example.model.C").name);
+            assertEquals(-3, reader.indexOf("com.example.Missing"));
+            assertNull(reader.getRecord("com.example.Missing"));
+            assertNull(reader.read("zzz.Last"));
+            assertEquals(Arrays.asList("com.example.A", "com.example.B", "com.example.model.C"), reader.getKeysWithPrefix("com.example."));
+            assertEquals(Collections.singletonList("com.example.model.C"), reader.getKeysWithPrefix("com.example.model."));
+            assertEquals(Collections.emptyList(), reader.getKeysWithPrefix("net."));
+        }
+    }
+
+    @Test
+    void refusesFilesWhichAreNoClassIndexOfThisVersion() throws IOException {
+        File indexFile = this.tempDir.resolve(ClassIndexWriter.FILE_NAME).toFile();
+        ClassIndexWriter.write(indexFile, new TreeMap<String, Path>(Collections.singletonMap("p.A", this.write("p.A.json", "{\"key\":\"p.A\"}"))));
+        byte[] index = Files.readAllBytes(indexFile.toPath());
+
+        byte[] badMagic = index.clone();
+        badMagic[0] = 'X';
+        Files.write(indexFile.toPath(), badMagic);
+        IOException magicError = assertThrows(IOException.class, () -> ClassIndexReader.open(indexFile));
+        assertTrue(magicError.getMessage().endsWith("is no class index"), magicError.getMessage());
+
+        byte[] badVersion = index.clone();
+        badVersion[7] = ClassIndexWriter.VERSION + 1;
+        Files.write(indexFile.toPath(), badVersion);
+        IOException versionError = assertThrows(IOException.class, () -> ClassIndexReader.open(indexFile));
+        assertTrue(versionError.getMessage().contains("has the version " + (ClassIndexWriter.VERSION + 1)), versionError.getMessage());
+
+        Files.write(indexFile.toPath(), Arrays.copyOf(index, 10));
+        assertThrows(IOException.class, () -> ClassIndexReader.open(indexFile));
+    }
+
+    @Test
+    void refusesToWriteAnIndexTheReaderCannotMap() throws IOException {
+        Path hugeClass = this.tempDir.resolve("p.Huge.json");
+        try (RandomAccessFile file = new RandomAccessFile(hugeClass.toFile(), "rw")) {
+            file.setLength(Integer.MAX_VALUE); // sparse, only its size is read before the index is refused
+        }
+        File indexFile = this.tempDir.resolve(ClassIndexWriter.FILE_NAME).toFile();
+
+        IOException error = assertThrows(IOException.class, () -> ClassIndexWriter.write(indexFile, new TreeMap<String, Path>(Collections.singletonMap("p.Huge", hugeClass))));
+        assertTrue(error.getMessage().contains("more than the 2 GB"), error.getMessage());
+        assertFalse(indexFile.exists());
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        Path file = this.tempDir.resolve(fileName);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,47 @@
+package net.sourceforge.pmd.examples.java.rules.output;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.extraction.OutputTransport;
+import net.sourceforge.pmd.examples.java.rules.extraction.StreamRecordFormat;
+import net.sourceforge.pmd.examples.java.rules.parsedAstTypes.ClassOrInterfaceTypeContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassContextStreamWriterTest {
+
+    @Test
+    void redirectsSystemOutOnlyWhileStreamingToStdout() throws IOException {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        PrintStream capturedOut = new PrintStream(stdout, true, "UTF-8");
+        System.setOut(capturedOut);
+        try {
+            ExtractionOptions options = new ExtractionOptions();
+            options.outputTransport = OutputTransport.STDOUT;
+            options.streamRecordFormat = StreamRecordFormat.NDJSON;
+            ClassOrInterfaceTypeContext classContext = new ClassOrInterfaceTypeContext();
+            classContext.key = "p.A";
+
+            try (ClassContextConsumer consumer = ClassContextStreamWriter.createClassConsumer(options)) {
+                assertSame(System.err, System.out);
+                System.out.println("AST Skipped for: p/B.java (PARSE_ERROR)");
+                consumer.accept(classContext);
+            }
+
+            assertSame(capturedOut, System.out);
+            String records = new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(records.startsWith("{") && records.contains("\"key\":\"p.A\""), records); // no log line before the record
+            assertEquals(1, records.split("\n").length);
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+}
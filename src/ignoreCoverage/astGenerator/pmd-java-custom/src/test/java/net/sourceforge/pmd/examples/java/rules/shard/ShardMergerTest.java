@@ -0,0 +1,86 @@
+package net.sourceforge.pmd.examples.java.rules.shard;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import net.sourceforge.pmd.examples.java.rules.output.ClassContextFileWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mergedShardsEqualASingleRun() throws IOException {
+        Path source = this.tempDir.resolve("source");
+        // the same class key in two files: the single run writes the one of b/ last
+        write(source.resolve("a/Duplicate.java"), "package p; public class Duplicate { String fromA; }");
+        write(source.resolve("b/Duplicate.java"), "package p; public class Duplicate { String fromB; int x; }");
+        for (int i = 0; i < 6; i++) {
+            write(source.resolve("p/Class" + i + ".java"), "package p; public class Class" + i + " { int value" + i + "; }");
+        }
+
+        ExtractionOptions single = this.createOptions(source, "single");
+        new DataClumpsAstExtractor(single).extract(Collections.singletonList(source), new ClassContextFileWriter(single));
+
+        ShardPartition partition = ShardPartition.compute(source, 3);
+        List<File> shardDestinations = new ArrayList<File>();
+        for (int i = 3; i >= 1; i--) {
+            ShardPartition.Shard shard = partition.getShard(i);
+            assertEquals(8, shard.sourceFiles);
+            ExtractionOptions options = this.createOptions(source, "shard" + i);
+            new DataClumpsAstExtractor(options).extract(shard.files, new ClassContextFileWriter(options));
+            ShardManifest.write(options, shard);
+            shardDestinations.add(new File(options.destination));
+        }
+        assertEquals(partition.getShard(1).files, ShardPartition.compute(source, 3).getShard(1).files);
+
+        ExtractionOptions merged = this.createOptions(source, "merged");
+        ShardMerger merger = new ShardMerger(merged);
+        merger.merge(shardDestinations);
+
+        assertEquals(7, merger.getClasses());
+        Map<String, String> singleOutput = readOutput(single);
+        assertTrue(singleOutput.get("p.Duplicate.json").contains("b/Duplicate.java"));
+        assertEquals(singleOutput, readOutput(merged));
+    }
+
+    private ExtractionOptions createOptions(Path source, String destination){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = source.toString();
+        options.destination = this.tempDir.resolve(destination).toString();
+        options.threads = 1;
+        return options;
+    }
+
+    private static Map<String, String> readOutput(ExtractionOptions options) throws IOException {
+        Map<String, String> output = new TreeMap<String, String>();
+        try (Stream<Path> files = Files.list(new File(options.destination).toPath())) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                output.put(file.getFileName().toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return output;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package net.sourceforge.pmd.examples.java.rules.statistics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.sourceforge.pmd.examples.java.rules.extraction.DataClumpsAstExtractor;
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExtractionStatisticsTest {
+
+    private static final String PERSON = "package com.example;\n"
+            + "public class Person {\n"
+            + "    String name; int age;\n"
+            + "    public Person(String name) {}\n"
+            + "    public void rename(String name, String reason) {}\n"
+            + "    static class Address { String street; interface Visitor { void visit(Address address); } }\n"
+            + "}\n";
+    private static final String ORDER = "package com.example;\n"
+            + "public class Order {\n"
+            + "    String id;\n"
+            + "    public void ship(String street, String city, int zip) {}\n"
+            + "}\n";
+
+    @Test
+    void countsTheClassesAndMergesLikeOneRun() throws Exception {
+        StatisticsSummary person = extract(Collections.singletonMap("com/example/Person.java", PERSON));
+
+        assertEquals(1, person.files);
+        assertEquals(3, person.classes);
+        assertEquals(3, person.fields);
+        assertEquals(2, person.methods);
+        assertEquals(1, person.constructors);
+        assertEquals(3, person.parameters);
+        assertEquals(map(0, 1L, 1, 1L, 2, 1L), person.nestingDepth.counts);
+        assertEquals(map(1, 1L, 2, 1L), person.parametersPerMethod.counts);
+        assertEquals(map(0, 1L, 1, 1L, 2, 1L), person.fieldsPerClass.counts);
+        assertEquals(Long.valueOf(4), person.typeFrequencies.get("java.lang.String")); // name, street and the parameters name and reason
+        assertEquals(Long.valueOf(1), person.typeFrequencies.get("com.example.Person$Address"));
+        assertEquals(1.5, person.parametersPerMethod.mean);
+
+        Map<String, String> both = new HashMap<String, String>();
+        both.put("com/example/Person.java", PERSON);
+        both.put("com/example/Order.java", ORDER);
+        StatisticsSummary oneRun = extract(both);
+        StatisticsSummary merged = person.merge(extract(Collections.singletonMap("com/example/Order.java", ORDER)));
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(Arrays.asList("run", "run"), merged.sources);
+        merged.sources = oneRun.sources;
+        assertEquals(mapper.writeValueAsString(oneRun), mapper.writeValueAsString(merged));
+        assertEquals(3, merged.parametersPerMethod.max);
+        assertEquals(2, merged.parametersPerMethod.median);
+    }
+
+    private static StatisticsSummary extract(Map<String, String> sources){
+        ExtractionOptions options = new ExtractionOptions();
+        ExtractionStatistics statistics = new ExtractionStatistics();
+        DataClumpsAstExtractor extractor = new DataClumpsAstExtractor(options);
+        extractor.setStatistics(statistics);
+        extractor.extractSources(sources, classContext -> { });
+        return statistics.toSummary("run");
+    }
+
+    private static Map<Integer, Long> map(Object... keysAndValues){
+        Map<Integer, Long> map = new TreeMap<Integer, Long>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((Integer) keysAndValues[i], (Long) keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,102 @@
+package net.sourceforge.pmd.examples.java.rules.watch;
+
+import net.sourceforge.pmd.examples.java.rules.extraction.ExtractionOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchModeExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void updatesOnlyTheClassesOfChangedFiles() throws IOException {
+        Path source = Files.createDirectories(this.tempDir.resolve("source/com/example"));
+        Path person = write(source.resolve("Person.java"), "package com.example; public class Person { String name; }");
+        Path address = write(source.resolve("Address.java"), "package com.example; public class Address { String street; }");
+        Path unchanged = write(source.resolve("Unchanged.java"), "package com.example; public class Unchanged { int id; }");
+        ExtractionOptions options = this.createOptions();
+
+        WatchModeExtractor watchModeExtractor = new WatchModeExtractor(options);
+        watchModeExtractor.initialExtraction();
+        assertEquals(set("com.example.Address.json", "com.example.Person.json", "com.example.Unchanged.json"), this.outputFiles());
+
+        write(person, "package com.example; public class Person { String name; int age; }");
+        Files.delete(address);
+        Path company = write(source.resolve("Company.java"), "package com.example; public class Company { String name; }");
+        List<ClassChangeEvent> events = watchModeExtractor.update(Arrays.asList(person, address, company, unchanged));
+
+        assertEquals(set("ADDED com.example.Company", "MODIFIED com.example.Person", "REMOVED com.example.Address"), eventNames(events));
+        assertEquals(set("com.example.Company.json", "com.example.Person.json", "com.example.Unchanged.json"), this.outputFiles());
+        String personJson = new String(Files.readAllBytes(this.tempDir.resolve("destination/com.example.Person.json")), StandardCharsets.UTF_8);
+        assertTrue(personJson.contains("com.example.Person/memberField/age"));
+    }
+
+    @Test
+    void keepsTheLastExtractedVersionOfAFileWhichDoesNotCompile() throws IOException {
+        Path source = Files.createDirectories(this.tempDir.resolve("source"));
+        Path person = write(source.resolve("Person.java"), "public class Person { String name; }");
+        ExtractionOptions options = this.createOptions();
+
+        WatchModeExtractor watchModeExtractor = new WatchModeExtractor(options);
+        watchModeExtractor.initialExtraction();
+
+        write(person, "public class Person { String name; int ");
+        List<ClassChangeEvent> events = watchModeExtractor.update(Collections.singletonList(person));
+
+        assertTrue(events.isEmpty());
+        assertEquals(set("Person.json"), this.outputFiles());
+        assertTrue(Files.exists(this.tempDir.resolve("destination/.extraction/skipped-files.jsonl")));
+
+        Files.delete(person);
+        events = watchModeExtractor.update(Collections.singletonList(person));
+        assertEquals(set("REMOVED Person"), eventNames(events));
+        assertFalse(Files.exists(this.tempDir.resolve("destination/Person.json")));
+    }
+
+    private ExtractionOptions createOptions(){
+        ExtractionOptions options = new ExtractionOptions();
+        options.source = this.tempDir.resolve("source").toString();
+        options.destination = this.tempDir.resolve("destination").toString();
+        options.threads = 1;
+        return options;
+    }
+
+    private Set<String> outputFiles() throws IOException {
+        Set<String> names = new TreeSet<String>();
+        try (java.util.stream.Stream<Path> files = Files.list(this.tempDir.resolve("destination"))) {
+            files.filter(Files::isRegularFile).forEach(file -> names.add(file.getFileName().toString()));
+        }
+        return names;
+    }
+
+    private static Set<String> eventNames(List<ClassChangeEvent> events){
+        Set<String> names = new TreeSet<String>();
+        for (ClassChangeEvent event : events) {
+            names.add(event.toString());
+        }
+        return names;
+    }
+
+    private static Set<String> set(String... values){
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -10,6 +10,7 @@ import { DetectorDataClumpsMethodsToOtherFields } from './DetectorDataClumpsMeth
 import { DetectorDataClumpsMethodsToOtherMethods } from './DetectorDataClumpsMethodsToOtherMethods';
 import { ClassOrInterfaceTypeContext, MemberFieldParameterTypeContext, MethodParameterTypeContext, MethodTypeContext, VariableTypeContext } from '../ParsedAstTypes';
 import { DetectorUtils } from './DetectorUtils';
+import { ParserHelper } from '../ParserHelper';
 import { NumberOccurenceDict } from '../AnalyseHelper';
 import { buildClusterInfoFromDataClumps } from '../ClusterHelper';
 
@@ -623,6 +624,8 @@ export class Detector {
       }
     }
 
+    ParserHelper.restoreReportingDetailsOfDataClumps(dataClumpsTypeContext.data_clumps, this.softwareProjectDicts);
+
     let detected_data_clumps = dataClumpsTypeContext.data_clumps;
     let data_clumps_keys = Object.keys(detected_data_clumps);
     dataClumpsTypeContext.report_summary.amount_data_clumps = data_clumps_keys.length;
@@ -0,0 +1,51 @@
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import { ParserHelper } from '../src/ignoreCoverage/ParserHelper';
+import { Detector } from '../src/ignoreCoverage/detector/Detector';
+
+// A.foo(final int a, int b, int c) and B.bar(int a, int b, final int c), extracted with OUTPUT_PROJECTION=detection
+function resolveProjectedAstDir(): string {
+  const candidates = [path.resolve(__dirname, 'data-clumps', 'reporting-details', 'ast'), path.resolve(__dirname, '..', '..', 'tests/data-clumps/reporting-details/ast')];
+  return candidates.find(candidate => fs.existsSync(candidate)) ?? candidates[0];
+}
+
+describe('Reporting details of the detection projection', () => {
+  const astDir = resolveProjectedAstDir();
+
+  test('only the details path is kept when the classes are loaded', async () => {
+    const softwareProjectDicts = await ParserHelper.getSoftwareProjectDictsFromParsedAstFolder(astDir, {});
+
+    expect(softwareProjectDicts.dictClassOrInterface['A'].reporting_details_path).toBe(path.join(astDir, ParserHelper.REPORTING_DETAILS_FOLDER, 'A.json'));
+    expect(softwareProjectDicts.dictMethodParameters['A/method/foo(int a, int b, int c)/parameter/a'].position).toBeNull();
+  });
+
+  test('positions and modifiers are restored for the reported data clump', async () => {
+    const softwareProjectDicts = await ParserHelper.getSoftwareProjectDictsFromParsedAstFolder(astDir, {});
+    const detector = new Detector(softwareProjectDicts, null, null, null, 'reporting-details', null, null, null, null, null, 'java');
+    const result = await detector.detect();
+
+    const dataClumps = Object.keys(result.data_clumps)
+      .map(dataClumpKey => result.data_clumps[dataClumpKey])
+      .filter(dataClump => dataClump.from_class_or_interface_key === 'A');
+    expect(dataClumps).toHaveLength(1);
+    const variable = dataClumps[0].data_clump_data['A/method/foo(int a, int b, int c)/parameter/a'];
+    expect(variable.position).toEqual({ startLine: 2, startColumn: 31, endLine: 2, endColumn: 32 });
+    expect(variable.modifiers).toEqual(['FINAL']);
+    const otherVariable = dataClumps[0].data_clump_data['A/method/foo(int a, int b, int c)/parameter/c'].to_variable;
+    expect(otherVariable.position).toEqual({ startLine: 2, startColumn: 38, endLine: 2, endColumn: 39 });
+    expect(otherVariable.modifiers).toEqual(['FINAL']);
+  });
+
+  test('no details path without the reporting details folder', async () => {
+    const fullAstDir = fs.mkdtempSync(path.join(os.tmpdir(), 'reporting-details-'));
+    try {
+      fs.copyFileSync(path.join(astDir, 'A.json'), path.join(fullAstDir, 'A.json'));
+      const softwareProjectDicts = await ParserHelper.getSoftwareProjectDictsFromParsedAstFolder(fullAstDir, {});
+
+      expect(softwareProjectDicts.dictClassOrInterface['A'].reporting_details_path).toBeUndefined();
+    } finally {
+      fs.rmSync(fullAstDir, { recursive: true, force: true });
+    }
+  });
+});